@@ -458,6 +458,29 @@ public class GeckoInstance {
         }
     }
 
+    /**
+     * Recomputes only the statistics of the gene clusters of the data set, the clusters are not searched again.
+     */
+    class StatisticsRecomputationTask extends GeneClusterDetectionTask {
+        public StatisticsRecomputationTask(Parameter p, double groupingFactor, DataSet data) {
+            super(p, false, groupingFactor, data);
+        }
+
+        @Override
+        protected List<GeneCluster> doInBackground() throws Exception {
+            List<Set<Integer>> genomeGroups = null;
+            if (super.groupingFactor <= 1.0)
+                genomeGroups = BreakPointDistance.groupGenomes(super.data, super.groupingFactor, false);
+
+            Date before = new Date();
+            List<GeneCluster> res = ReferenceClusterAlgorithm.recomputeStatistics(super.data, super.data.getClusters(), super.p, USE_MEMORY_REDUCTION_DEFAULT, genomeGroups, this);
+            Date after = new Date();
+            setProgressStatus(100, AlgorithmStatusEvent.Task.Done);
+            logger.info("Time required for statistics: {}s", (after.getTime() - before.getTime()) / 1000F);
+            return res;
+        }
+    }
+
     public void mergeClusters(List<GeneCluster> results, Parameter p) {
         data.mergeClusters(results, p);
         handleUpdatedClusterResults();
@@ -480,6 +503,22 @@ public class GeckoInstance {
         return geneClusterSwingWorker;
 	}
 	
+	/**
+	 * Creates and executes the swing worker that recomputes the statistics of the current gene clusters.
+	 * Returns the SwingWorker, so the calling method can wait (by calling get() ) until it is done.
+	 * @param p the parameters the gene clusters were computed with
+	 * @param genomeGroupingFactor
+	 * @return
+	 */
+	public SwingWorker<List<GeneCluster>, Void> performStatisticsRecomputation(Parameter p, double genomeGroupingFactor) {
+		if (gui != null)
+			gui.changeMode(Gui.Mode.PREPARING_COMPUTATION);
+
+		geneClusterSwingWorker = new StatisticsRecomputationTask(p, genomeGroupingFactor, GeckoInstance.this.getData());
+		geneClusterSwingWorker.execute();
+		return geneClusterSwingWorker;
+	}
+	
 	public void displayMessage(String message) {
 		final String m = message;
 		SwingUtilities.invokeLater(new Runnable() {
@@ -21,6 +21,7 @@ package de.unijena.bioinf.gecko3.algo;
 
 import de.unijena.bioinf.gecko3.datastructures.Parameter;
 
+import java.io.File;
 import java.util.Arrays;
 
 /**
@@ -31,6 +32,7 @@ public class AlgorithmParameters{
     private final int[][] deltaTable;
     private final boolean useDeltaTable;
 	private final int minClusterSize;       // minimal size of each cluster
+	private final int maxClusterSize;       // maximal size of each cluster, 0 for no maximum
 	private int maxUncoveredGenomes;
 	private final int minCoveredGenomes;
     private int nrOfGenomes;
@@ -40,14 +42,47 @@ public class AlgorithmParameters{
     private final boolean refInRef;
 
     private final boolean noStatistics;
+
+    private final int nrOfThreads;
+    private final Parameter.ParallelMode parallelMode;
+    private final Parameter.StorageMode storageMode;
+    private final File scratchDirectory;
+    private final boolean coveragePruning;
+    private final boolean leftBorderSkipping;
 	
 	public AlgorithmParameters(Parameter p, int alphabetSize, int nrOfGenomes) {
-		this(p.getDelta(), p.getDeltaTable(), p.getMinClusterSize(), p.getQ(), nrOfGenomes, alphabetSize, (p.getRefType() != Parameter.ReferenceType.allAgainstAll), p.searchRefInRef(), p.noStatistics());
+		this(p.getDelta(), p.getDeltaTable(), p.getMinClusterSize(), p.getQ(), nrOfGenomes, alphabetSize, (p.getRefType() != Parameter.ReferenceType.allAgainstAll), p.searchRefInRef(), p.noStatistics(), p.getNrOfThreads(), p.getParallelMode(), p.getStorageMode(), p.getScratchDirectory(), p.useCoveragePruning(), p.useLeftBorderSkipping(), p.getMaxClusterSize());
 		if (!p.useJavaAlgorithm())
 			throw new IllegalArgumentException("Parameters not compatible to Java mode.");
 	}
+
+	/**
+	 * Copy constructor, used to give each parallel search its own parameters,
+	 * as the number of genomes is changed when searching the reference in the reference.
+	 * @param other the parameters that are copied
+	 */
+	AlgorithmParameters(AlgorithmParameters other) {
+		this.delta = other.delta;
+		this.deltaTable = other.deltaTable;
+		this.useDeltaTable = other.useDeltaTable;
+		this.minClusterSize = other.minClusterSize;
+		this.maxClusterSize = other.maxClusterSize;
+		this.maxUncoveredGenomes = other.maxUncoveredGenomes;
+		this.minCoveredGenomes = other.minCoveredGenomes;
+		this.nrOfGenomes = other.nrOfGenomes;
+		this.alphabetSize = other.alphabetSize;
+		this.singleReference = other.singleReference;
+		this.refInRef = other.refInRef;
+		this.noStatistics = other.noStatistics;
+		this.nrOfThreads = other.nrOfThreads;
+		this.parallelMode = other.parallelMode;
+		this.storageMode = other.storageMode;
+		this.scratchDirectory = other.scratchDirectory;
+		this.coveragePruning = other.coveragePruning;
+		this.leftBorderSkipping = other.leftBorderSkipping;
+	}
 	
-	private AlgorithmParameters(int delta, int[][] deltaTable, int minClusterSize, int q, int nrOfGenomes, int alphabetSize, boolean singleReference, boolean refInRef, boolean noStatistics) {
+	private AlgorithmParameters(int delta, int[][] deltaTable, int minClusterSize, int q, int nrOfGenomes, int alphabetSize, boolean singleReference, boolean refInRef, boolean noStatistics, int nrOfThreads, Parameter.ParallelMode parallelMode, Parameter.StorageMode storageMode, File scratchDirectory, boolean coveragePruning, boolean leftBorderSkipping, int maxClusterSize) {
 		if (delta >= 0 && deltaTable != null)
 			throw new IllegalArgumentException("Invalid delta and deltaTable values. Cannot use both!");
 		if (delta < 0 && deltaTable == null)
@@ -69,6 +104,9 @@ public class AlgorithmParameters{
 			}
 		}
 		this.minClusterSize = minClusterSize;
+		if (maxClusterSize < 0)
+			throw new IllegalArgumentException("Maximum cluster size has to be >= 0!");
+		this.maxClusterSize = maxClusterSize;
         if (q == 0) {
             this.maxUncoveredGenomes = 0;
             this.minCoveredGenomes = nrOfGenomes;
@@ -81,6 +119,14 @@ public class AlgorithmParameters{
         this.singleReference = singleReference;
         this.refInRef = refInRef;
         this.noStatistics = noStatistics;
+        if (nrOfThreads < 1)
+            throw new IllegalArgumentException("Number of threads has to be >= 1!");
+        this.nrOfThreads = nrOfThreads;
+        this.parallelMode = parallelMode;
+        this.storageMode = storageMode;
+        this.scratchDirectory = scratchDirectory;
+        this.coveragePruning = coveragePruning;
+        this.leftBorderSkipping = leftBorderSkipping;
 	}
 	
 	/**
@@ -126,6 +172,14 @@ public class AlgorithmParameters{
 	public int getMinClusterSize() {
 		return minClusterSize;
 	}
+
+	/**
+	 * The maximum size of a cluster, patterns are not extended beyond this size.
+	 * @return the maximum cluster size, 0 for no maximum
+	 */
+	public int getMaxClusterSize() {
+		return maxClusterSize;
+	}
 	
 	public int getDeltaInsertions(int clusterSize){
 		if (!useDeltaTable)
@@ -224,6 +278,30 @@ public class AlgorithmParameters{
         return noStatistics;
     }
 
+    public int getNrOfThreads() {
+        return nrOfThreads;
+    }
+
+    public Parameter.ParallelMode getParallelMode() {
+        return parallelMode;
+    }
+
+    public Parameter.StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    public File getScratchDirectory() {
+        return scratchDirectory;
+    }
+
+    public boolean useCoveragePruning() {
+        return coveragePruning;
+    }
+
+    public boolean useLeftBorderSkipping() {
+        return leftBorderSkipping;
+    }
+
     public String toString() {
 		if (delta >= 0)
         	return String.format("Delta: %1$d Size: %2$d",  delta, minClusterSize);
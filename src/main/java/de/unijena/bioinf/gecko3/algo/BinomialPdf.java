@@ -0,0 +1,86 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.unijena.bioinf.gecko3.algo;
+
+import cern.jet.math.Arithmetic;
+
+import java.util.Arrays;
+
+/**
+ * The probability mass function of binomial distributions. Computes the values for all k of one distribution
+ * at once, with the same log space formula as cern.jet.random.Binomial.pdf(k), so the values are identical.
+ * In contrast to Binomial, no distribution object and no random engine are allocated.
+ * The log factorials are cached in a table that is shared by all threads.
+ */
+class BinomialPdf {
+    /**
+     * Position i contains the log of i!. Extended on demand and replaced by the extended array.
+     */
+    private static volatile double[] logFactorials = new double[0];
+
+    private BinomialPdf() {
+    }
+
+    /**
+     * Computes the probabilities of k successes in n trials, for all k between 0 and n.
+     * @param n the number of trials, has to be >= 1.
+     * @param p the probability of success, has to be > 0.0 and < 1.0.
+     * @return an array of length n+1, containing the probability of k successes at position k.
+     * @throws IllegalArgumentException if n*min(p, 1-p) <= 0.0.
+     */
+    static double[] pdf(int n, double p) {
+        if (n * Math.min(p, 1.0 - p) <= 0.0)
+            throw new IllegalArgumentException("Invalid binomial distribution, n: " + n + " p: " + p);
+        double[] logFac = getLogFactorials(n);
+        double log_p = Math.log(p);
+        double log_q = Math.log(1.0 - p);
+        double log_n = logFac[n];
+
+        double[] pdf = new double[n + 1];
+        for (int k=0; k<=n; k++)
+            pdf[k] = Math.exp(log_n - logFac[k] - logFac[n - k] + log_p * k + log_q * (n - k));
+        return pdf;
+    }
+
+    /**
+     * Returns the table of log factorials, that contains at least the values up to n.
+     * @param n the maximum value.
+     * @return the table.
+     */
+    private static double[] getLogFactorials(int n) {
+        double[] logFac = logFactorials;
+        if (logFac.length <= n)
+            logFac = extendLogFactorials(n);
+        return logFac;
+    }
+
+    private static synchronized double[] extendLogFactorials(int n) {
+        double[] logFac = logFactorials;
+        if (logFac.length <= n) {
+            int oldLength = logFac.length;
+            logFac = Arrays.copyOf(logFac, Math.max(n + 1, 2 * oldLength));
+            for (int i=oldLength; i<logFac.length; i++)
+                logFac[i] = Arithmetic.logFactorial(i);
+            logFactorials = logFac;
+        }
+        return logFac;
+    }
+}
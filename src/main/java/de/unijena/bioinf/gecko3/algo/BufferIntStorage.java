@@ -0,0 +1,53 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.unijena.bioinf.gecko3.algo;
+
+import java.nio.IntBuffer;
+
+/**
+ * IntStorage backed by an IntBuffer, a view of a direct ByteBuffer or of a memory mapped file region.
+ * Only absolute get and put operations are used, so the position of the buffer is never changed.
+ */
+class BufferIntStorage extends IntStorage {
+    private final IntBuffer values;
+
+    /**
+     * Uses the buffer as storage.
+     * @param values the buffer, starting at position 0.
+     */
+    BufferIntStorage(IntBuffer values) {
+        this.values = values;
+    }
+
+    @Override
+    int get(int index) {
+        return values.get(index);
+    }
+
+    @Override
+    void set(int index, int value) {
+        values.put(index, value);
+    }
+
+    @Override
+    int size() {
+        return values.capacity();
+    }
+}
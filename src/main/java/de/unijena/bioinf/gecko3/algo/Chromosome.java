@@ -25,21 +25,20 @@ import java.util.*;
 
 /**
  * Chromosome stores the gene sequence of one chromosome.
+ * After initialization for calculation it also holds the position and occurrence indexes.
+ * Both are not changed during the calculation, so a chromosome can be shared by several searches.
+ * The genes, the position index and the occurrence indexes are held by an {@link IntStorage},
+ * so they can be stored outside the heap.
  *
  * @author Sascha Winter (sascha.winter@uni-jena.de)
  */
 class Chromosome { 
     private final int nr;                 //nr of the chromosome in the genome
-	private final int[] genes;
-    private int[] prevOcc;
-    private int[] nextOcc;
-    private int[][] pos;
-    private int[][] L;
-    private int[][] R;
-    private int[][] L_prime;
-    private int[][] R_prime;
-
-    private int delta;
+	private IntStorage genes;
+    private IntStorage prevOcc;
+    private IntStorage nextOcc;
+    private PositionIndex pos;
+
     private int alphabetSize;
 
     /**
@@ -49,15 +48,11 @@ class Chromosome {
      * @param number       the number of the chromosome.
      */
     public Chromosome(List<Integer> genes, int number) {
-        this.genes = IntArray.newZeroTerminatedInstance(genes);
+        this.genes = new HeapIntStorage(IntArray.newZeroTerminatedInstance(genes));
         this.nr = number;
         this.pos = null;
         this.prevOcc = null;
         this.nextOcc = null;
-        this.L = null;
-        this.R = null;
-        this.L_prime = null;
-        this.R_prime = null;
     }
     
     /**
@@ -69,84 +64,40 @@ class Chromosome {
      */
     public Chromosome(int[] genes, int number, boolean zeroTerminated) {
     	if (zeroTerminated)
-    		this.genes = IntArray.newZeroTerminatedInstance(genes);
+    		this.genes = new HeapIntStorage(IntArray.newZeroTerminatedInstance(genes));
     	else
-    		this.genes = IntArray.newIntArray(genes, zeroTerminated);
+    		this.genes = new HeapIntStorage(IntArray.newIntArray(genes, zeroTerminated));
         this.nr = number;
         this.pos = null;
         this.prevOcc = null;
         this.nextOcc = null;
-        this.L = null;
-        this.R = null;
-        this.L_prime = null;
-        this.R_prime = null;
     }
 
-    public Chromosome(Chromosome other) {
-		this.genes = Arrays.copyOf(other.genes, other.genes.length);
-		this.nr = other.nr;
-        this.pos = null;
-        this.prevOcc = null;
-        this.nextOcc = null;
-        this.L = null;
-        this.R = null;
-        this.L_prime = null;
-        this.R_prime = null;
-	}
+    /**
+     * Initializes the Chromosome for the calculation of gene clusters.
+     * Computes the position and occurrence indexes, that are not changed during the calculation.
+     * The matrices of a running search are held by a {@link ChromosomeCursor}.
+     * @param alphabetSize the size of the complete alphabet.
+     */
+    public void initializeForCalculation(int alphabetSize) {
+        initializeForCalculation(alphabetSize, IntStorageFactory.HEAP);
+    }
 
-	/**
+    /**
      * Initializes the Chromosome for the calculation of gene clusters.
+     * The genes, the position index and the occurrence indexes are moved to storages of the given factory.
      * @param alphabetSize the size of the complete alphabet.
-     * @param maxDelta the maximum allowed distance
+     * @param storage the factory for the storages of the genes and indexes.
      */
-    public void initializeForCalculation(int alphabetSize, int maxDelta) {
+    void initializeForCalculation(int alphabetSize, IntStorageFactory storage) {
         this.alphabetSize = alphabetSize;
-        this.pos = this.computePOS();
-
-        this.L = new int[this.genes.length][];
-        this.R = new int[this.genes.length][];
-        this.L_prime = new int[this.genes.length][];
-        this.R_prime = new int[this.genes.length][];
-        for (int i = 0; i < this.genes.length; i++) {
-            L[i] = new int[maxDelta + 2];
-            R[i] = IntArray.newIntArray(maxDelta + 2, this.getEffectiveGeneNumber() + 1);
-            L_prime[i] = new int[maxDelta + 2];
-            R_prime[i] = IntArray.newIntArray(maxDelta + 2, this.getEffectiveGeneNumber() + 1);
-        }
-        this.delta = maxDelta;
-
-        this.prevOcc = this.computePrevOcc();
-        this.nextOcc = this.computeNextOcc();
-    }
+        // genes starts and ends with 0 that is not part of the genome
+        this.pos = PositionIndex.ofPositions(alphabetSize, genes.toArray(), 1, this.getEffectiveGeneNumber(), storage);
 
-    private int[][] computePOS() {
-        List<LinkedList<Integer>> tmp = new ArrayList<>(alphabetSize+1);
-        for (int i=0; i<=alphabetSize; i++) {
-            tmp.add(null);
-        }
-        for (int i=1; i<=this.getEffectiveGeneNumber(); i++) {       // genes starts and ends with 0 that is not part of the genome
-            if (genes[i] < 0)
-                continue;
-            if (tmp.get(genes[i])==null) {
-                tmp.set(genes[i], new LinkedList<Integer>());
-            }
-            tmp.get(genes[i]).add(i);
-        }
-        int[][] newPos = new int[alphabetSize+1][];
-        for (int i=0; i<=alphabetSize; i++) {
-            if (tmp.get(i) == null) {
-                newPos[i] = new int[0];
-            }
-            else {
-                newPos[i] = new int[tmp.get(i).size()];
-                int j = 0;
-                for (Integer p : tmp.get(i)) {
-                    newPos[i][j] = p;
-                    j++;
-                }
-            }
-        }
-        return newPos;
+        this.prevOcc = storage.take(this.computePrevOcc());
+        this.nextOcc = storage.take(this.computeNextOcc());
+        if (storage != IntStorageFactory.HEAP)
+            this.genes = storage.copyOf(genes.toArray());
     }
     
     private int[] computePrevOcc() {
@@ -154,9 +105,9 @@ class Chromosome {
         int[] newPrevOcc = new int[this.getEffectiveGeneNumber() + 2];//max(this.genes)+1];
 
         for (int i = 1; i <= this.getEffectiveGeneNumber(); i++) {
-        	if(genes[i]>=0){
-            	newPrevOcc[i] = occ[genes[i]];
-            	occ[genes[i]] = i;
+        	if(genes.get(i)>=0){
+            	newPrevOcc[i] = occ[genes.get(i)];
+            	occ[genes.get(i)] = i;
         	}
         }
 
@@ -168,9 +119,9 @@ class Chromosome {
         int[] newNextOcc = IntArray.newIntArray(this.getEffectiveGeneNumber() + 2, this.getEffectiveGeneNumber() + 1);
 
         for (int i = this.getEffectiveGeneNumber() + 1; i >= 1; i--) {
-        	if(genes[i]>=0){
-        		newNextOcc[i] = occ[genes[i]];
-        		occ[genes[i]] = i;
+        	if(genes.get(i)>=0){
+        		newNextOcc[i] = occ[genes.get(i)];
+        		occ[genes.get(i)] = i;
         	}
         }
 
@@ -191,7 +142,7 @@ class Chromosome {
      * @return the id of the gene.
      */
     public int getGene(int n) {
-        return genes[n];
+        return genes.get(n);
     }
 
     /**
@@ -199,7 +150,7 @@ class Chromosome {
      * @return the effective number of genes in the chromosome.
      */
     public int getEffectiveGeneNumber() {
-        return (genes.length-2);   //genes begins and ends with a zero that is not part of the chromosome
+        return (genes.size()-2);   //genes begins and ends with a zero that is not part of the chromosome
     }
 
     /**
@@ -208,10 +159,10 @@ class Chromosome {
      * @return the total number of genes
      */
     public int getTotalGeneNumber() {
-        int geneNumber = genes.length-2;
-        for (int i=1; i<genes.length-1; i++)
-            if (genes[i] < -1)
-                geneNumber -= genes[i]+1;
+        int geneNumber = genes.size()-2;
+        for (int i=1; i<genes.size()-1; i++)
+            if (genes.get(i) < -1)
+                geneNumber -= genes.get(i)+1;
         return geneNumber;
     }
 
@@ -222,16 +173,63 @@ class Chromosome {
      * @return the number of different characters in the interval.
      */
     public int getNUM(int l, int r) {
+        return getAdditionalNUM(l, l, r);
+    }
+
+    /**
+     * The number of different characters in the interval [from, r], that do not occur in the interval [l, from-1].
+     * getNUM(l, r) is getNUM(l, from-1) + getAdditionalNUM(l, from, r), so NUM can be updated
+     * incrementally while an interval is extended to the right.
+     * @param l the left border of the whole interval.
+     * @param from the first position that was not counted before.
+     * @param r the right border of the interval.
+     * @return the number of additional different characters.
+     */
+    public int getAdditionalNUM(int l, int from, int r) {
         int numCount = 0;
-        for (int i=l; i<=r; i++) {
-            if (genes[i] < 0)
-                numCount-=genes[i];
-            else if (prevOcc[i] < l)
+        for (int i=from; i<=r; i++) {
+            if (genes.get(i) < 0)
+                numCount-=genes.get(i);
+            else if (prevOcc.get(i) < l)
                 numCount++;
         }
         return numCount;
     }
 
+    /**
+     * The sum of the weights of the different characters in the interval [from, r], that do not occur in the
+     * interval [l, from-1]. Analogous to {@link #getAdditionalNUM(int, int, int)}, the sum over [l, r] is a hash
+     * of the character set of the interval, that can be updated incrementally while the interval is extended to the right.
+     * Each position of a negative character is counted as an own character, like in
+     * {@link #intervalContentIdentical(int, int, int, int)}.
+     * @param l the left border of the whole interval.
+     * @param from the first position that was not hashed before.
+     * @param r the right border of the interval.
+     * @return the additional sum of the weights.
+     */
+    public long getAdditionalSetHash(int l, int from, int r) {
+        long hash = 0L;
+        for (int i=from; i<=r; i++) {
+            if (genes.get(i) < 0)
+                hash += weight(~(long)i);
+            else if (prevOcc.get(i) < l)
+                hash += weight(genes.get(i));
+        }
+        return hash;
+    }
+
+    /**
+     * A pseudo random 64 bit weight for the key (splitmix64 finalizer).
+     * @param key the character, or the complement of the position for negative characters.
+     * @return the weight.
+     */
+    private static long weight(long key) {
+        long z = key + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
     /**
      * Checks if the character at position l-1 appears in the interval [l, r]
      * @param l
@@ -239,7 +237,7 @@ class Chromosome {
      * @return
      */
     public boolean previousInInterval(int l, int r) {
-        return nextOcc[l-1] <= r;
+        return nextOcc.get(l-1) <= r;
     }
 
     /**
@@ -249,7 +247,7 @@ class Chromosome {
      * @return
      */
     public boolean nextInInterval(int l, int r) {
-        return prevOcc[r+1] >= l;
+        return prevOcc.get(r+1) >= l;
     }
 
     /**
@@ -265,7 +263,7 @@ class Chromosome {
             int rightmostToTest = Math.max(r1, r2);
             int leftmostToTest = Math.min(r1, r2);
             for (int i=rightmostToTest; i>leftmostToTest; i--){
-                if (prevOcc[i] < l1)
+                if (prevOcc.get(i) < l1)
                     return false;
             }
         }
@@ -274,7 +272,7 @@ class Chromosome {
             int leftmostToTest = Math.min(l1, l2);
             int rightmostToTest = Math.max(l1, l2);
             for (int i=rightmostToTest; i<leftmostToTest; i++){
-                if (nextOcc[i] > r1)
+                if (nextOcc.get(i) > r1)
                     return false;
             }
         }
@@ -299,7 +297,7 @@ class Chromosome {
 
         int numCount = 0;
         for (int i=largeL; i<=largeR; i++) {
-            if (prevOcc[i] < largeL){
+            if (prevOcc.get(i) < largeL){
                 numCount++;
                 if (numCount > maxNUM)
                     return false;
@@ -307,7 +305,7 @@ class Chromosome {
         }
 
         for (int i=smallL; i<=smallR; i++) {
-            if (prevOcc[i] < smallL) {
+            if (prevOcc.get(i) < smallL) {
                 numCount--;
             } else {
                 maxNUM--;
@@ -319,665 +317,66 @@ class Chromosome {
     }
 
     /**
-     * Returns the list of positions of the specified character c.
-     * @param c the character for which the positions shall be returned.
-     * @return the IntArray of positions of the character.
+     * Returns the offset of the first position of the character c, see {@link #getPosition(int)}.
+     * @param c the character.
+     * @return the offset of the positions of the character.
      */
-    public int[] getPOS(int c) {
-        return (c < 0) ? new int[0] : pos[c];
+    public int getPOSOffset(int c) {
+        return pos.offset(c);
     }
 
     /**
-     * Returns the next occurrence of the character at position index in the chromosome.
-     * @param index the position of the character.
-     * @return the position of the next occurrence of the character.
+     * Returns the number of positions of the character c in the chromosome.
+     * @param c the character.
+     * @return the number of positions of the character, 0 for negative characters.
      */
-    public int getNextOCC(int index) {
-        return nextOcc[index];
+    public int getPOSLength(int c) {
+        return pos.length(c);
     }
 
     /**
-     * Returns the previous occurrence of the character at position index in the chromosome.
-     * @param index the position of the character.
-     * @return the position of the previous occurrence of the character.
+     * Returns a position from the position index. The positions of the character c in ascending order are
+     * getPosition(getPOSOffset(c)), ..., getPosition(getPOSOffset(c) + getPOSLength(c) - 1).
+     * @param offset the offset of the position.
+     * @return the position.
      */
-    public int getPrevOCC(int index) {
-        return prevOcc[index];
+    public int getPosition(int offset) {
+        return pos.get(offset);
     }
 
     /**
-     * Computes the matrix L.
-     * <br>L holds the max. maxDist positions of the next unmarked characters left of each position in the chromosome.
-     * <br>rank is used to determine unmarked characters. An unmarked character must have a higher rank then the character at the current position.
-     * @param rank the rank array of the current reference interval.
+     * Returns the offset of the first position that is at least position, searching the offsets in [from, to).
+     * With from = getPOSOffset(c) and to = getPOSOffset(c) + getPOSLength(c) this is the first occurrence of c at or
+     * right of position. Uses binary search, so it is fast also for characters that occur very often.
+     * @param from the first offset.
+     * @param to the end of the offsets (exclusive).
+     * @param position the position.
+     * @return the offset of the first position >= position, to if there is none.
      */
-    void computeL(Rank rank){
-        resetL();                                           
-        for (int i=1; i<=this.getEffectiveGeneNumber(); i++) {
-            L[i][0] = i;                                 // no mismatch left of position is the position
-            int d = 1;
-            if (genes[i] <0)
-                continue;
-
-            for (int j=i-1; j>0 && d<=delta+1; j--) {                                 // search for unmarked char left of i
-                if (genes[j] < 0) {
-                    int k = Math.abs(genes[j]);
-                    while(d<=delta+1 && k>0){
-                        L[i][d]=j;
-                        d++;
-                        k--;
-                    }
-                    continue;
-                }
-
-                if (rank.getRank(genes[j]) > rank.getRank(genes[i])) {  // if unmarked char found
-                    if(!this.previousInInterval(j+1, i)) {              // if unmarked char found for the 1st time
-                        L[i][d] = j;
-                        d++;
-                    }
-                }
-            }
-        }
+    public int getPOSLowerBound(int from, int to, int position) {
+        return pos.lowerBound(from, to, position);
     }
 
     /**
-     * Calculate new values for L for positions with characters with rank smaller than c_old
-     * @param rank the rank array of the current reference interval.
-     * @param c_old must not be < 0
-     */
-    private void updateL_characterRankSmallerC_Old(Rank rank, int c_old){
-        int lastOcc = 0;
-        for (int j=1; j<=this.getEffectiveGeneNumber(); j++){
-            if (genes[j] < 0)
-                continue;
-
-            if (lastOcc!=0) {                                                       // if c_old has already occurred in the list
-                if (rank.getRank(genes[j]) < rank.getRank(c_old)) {             // if rank of character smaller than the new rank of c_old
-                    for (int l=1; l<=delta+1; l++) {                              // test if entries for position i in array L change,
-                        if  (this.getL(j, l) < lastOcc) {                            // because c_old is a new mismatch left of i
-                            System.arraycopy(L[j], l, L[j], l+1, (L[j].length-l)-1); // shift all higher entries in L
-                            L[j][l] = lastOcc;                                // and insert the new mismatch position
-                            break;                                                  // no further changes in L[j] possible
-                        }
-                    }
-                }
-            }                                       // if c_old not yet read, L[j] cannot change
-            if (this.getGene(j) == c_old) {
-                lastOcc = j;                        // new occurrence of c_old read
-            }
-        }
-    }
-
-    /**
-     * Calculate new values for L for positions with character c_old
-     * @param rank the rank array of the current reference interval.
-     * @param c_old must not be < 0
-     */
-    private void updateL_characterEqualsC_Old(Rank rank, int c_old){
-        if (getPOS(c_old).length == 0)
-            return;
-
-        int[] c_old_L = new int[delta+2];
-
-        for (int j=1; j<=this.getEffectiveGeneNumber(); j++) {
-            if (genes[j]<0) {
-                if (-genes[j] <= delta + 1)
-                    System.arraycopy(c_old_L, 1, c_old_L, (-genes[j]+1), (c_old_L.length -(-genes[j]+1)));
-                
-                for (int k=Math.min(-genes[j], delta+1); k>0; k--) {
-                	c_old_L[k] = j;
-                }
-            }
-            else if(rank.getRank(genes[j]) > rank.getRank(c_old)) {
-                int prevOcc = delta + 1;          // the sign is at last position per default
-
-                for (int d=1; d<=delta+1; d++) {
-                    if (genes[j] == genes[c_old_L[d]]) {    // search for the first entry in the neighbor array
-                        prevOcc = d;                                        // that has the char chr[j], and store the position in prevOcc
-                        break;
-                    }
-                }
-
-                System.arraycopy(c_old_L, 1, c_old_L, 2, prevOcc - 1);      // shift all entries between position 1 and the old occurrence of c_old
-                c_old_L[1] = j;
-            }
-
-            if (genes[j] == c_old) {                                  // if occurrence of the c_old found
-                System.arraycopy(c_old_L, 1, L[j], 1, delta + 1);   // replace all entries in L[j] with the entries in c_old_L
-            }
-        }
-    }
-
-    /**
-     * Updates or computes the matrix L.
-     * <br>L holds the max. maxDist positions of the next unmarked characters left of each position in the chromosome.
-     * <br>rank is used to determine unmarked characters. An unmarked character must have a higher rank then the character at the current position.
-     * @param rank the rank array of the current reference interval.
-     * @param c_old the character that was last added to the reference interval. Must not be < 0.
-     */
-    void updateL(Rank rank, int c_old){
-        if (getPOS(c_old).length == 0)
-            return;
-
-        updateL_characterRankSmallerC_Old(rank, c_old);
-        updateL_characterEqualsC_Old(rank, c_old);
-    }
-
-    /**
-     * Resets the matrix L to its default value 0.
-     */
-    private void resetL () {
-        for (int i=0; i<L.length; i++) {
-            IntArray.reset(L[i], 0);
-        }
-    }
-
-    /**
-     * Returns the next position to the left of position pos of the interval with diff unmarked characters.
-     * @param pos the position based on which the unmarked position is determined.
-     * @param diff the number of unmarked characters between pos and the returned value.
-     * @return the position of the unmarked character.
-     */
-    public int getL (int pos, int diff) {
-        return L[pos][diff];
-    }
-
-    /**
-     * Computes the matrix R
-     * <br>R holds the max. maxDist positions of the next unmarked characters right of each position in the chromosome.
-     * <br>rank is used to determine unmarked characters. An unmarked character must have a higher rank then the character at the current position.
-     * @param rank the rank array of the current reference interval.
-     */
-    void computeR(Rank rank){
-    	resetR();
-        for (int i=1; i<=this.getEffectiveGeneNumber(); i++) {
-            R[i][0] = i;                          // first mismatch right of position is the position
-            int d = 1;
-            
-            if(genes[i]<0)
-                continue;
-
-            for (int j=i+1; j<=this.getEffectiveGeneNumber() && d<=delta+1; j++) {                   // search for unmarked char right of i
-                if (genes[j]<0 ) {
-                    int k = 0;
-                    while(d<=delta+1 && k<Math.abs(genes[j])){
-                        R[i][d] = j;
-                        d++;
-                        k++;
-                    }
-                    continue;
-                }
-                if (rank.getRank(genes[j]) > rank.getRank(genes[i])) {  // if unmarked char found
-                    if(!this.nextInInterval(i, j-1)) {                         // if unmarked char found for the 1st time
-                        R[i][d] = j;
-                        d++;
-                    }
-                }
-            }
-    	}
-    }
-
-    /**
-     * Calculate new values for R for positions with characters with rank smaller than c_old
-     * @param rank the rank array of the current reference interval.
-     * @param c_old must not be < 0
-     */
-    private void updateR_characterRankSmallerC_Old(Rank rank, int c_old){
-        int lastOcc = this.getEffectiveGeneNumber()+1;
-
-        for (int j=this.getEffectiveGeneNumber(); j>=1; j--) {
-            if (genes[j] < 0)
-                continue;
-            if (lastOcc != this.getEffectiveGeneNumber() + 1) {                                            // if c_old has already occurred in the list
-                if (rank.getRank(genes[j]) < rank.getRank(c_old)) {       // if rank of character smaller than the new rank of c_old
-                    for (int l = 1; l <= delta + 1; l++) {                              // test if entries for position i in array R change,
-                        if (R[j][l] > lastOcc) {                            // because c_old is a new mismatch left of i
-                            System.arraycopy(R[j], l, R[j], l+1, (R[j].length-l)-1); // shift all higher entries in R
-                            R[j][l] = lastOcc;                                // and insert the new mismatch position
-                            break;                                                  // no further changes in R[j] possible
-                        }
-                    }
-                }
-            }                                       // if c_old not yet read, R[j] cannot change
-            if (genes[j] == c_old) {
-                lastOcc = j;                        // new occurrence of c_old read
-            }
-        }
-    }
-
-    /**
-     * Calculate new values for R for positions with character c_old
-     * @param rank the rank array of the current reference interval.
-     * @param c_old must not be < 0
-     */
-    private void updateR_characterEqualsC_Old(Rank rank, int c_old){
-        if (getPOS(c_old).length == 0)
-            return;
-
-        int[] c_old_R = IntArray.newIntArray(delta+2, this.getEffectiveGeneNumber()+1);
-
-        for (int j=this.getEffectiveGeneNumber(); j>=1; j--) {
-            if (genes[j]<0) {
-                if (-genes[j] <= delta + 1)
-                    System.arraycopy(c_old_R, 1, c_old_R, (-genes[j]+1),(c_old_R.length-(-genes[j]+1)));
-
-                for (int k=Math.min(-genes[j], delta+1); k>0; k--) {
-                    c_old_R[k] = j;
-                }
-            } else if (rank.getRank(genes[j]) > rank.getRank(c_old)) {
-                int prevOcc = delta + 1;          // the sign is at last position per default
-
-                for (int p=1; p<=delta+1; p++) {
-                    if (genes[j] >= 0 && genes[j] == genes[c_old_R[p]]) {    // search for the first entry in the neighbor array
-                        prevOcc = p;                                        // that has the char chr[j], and store the position in prevOcc
-                        break;
-                    }
-                }
-
-                System.arraycopy(c_old_R, 1, c_old_R, 2, prevOcc - 1);    // shift all entries between position 1 and the old occurrence of c_old
-                c_old_R[1] = j;
-            }
-
-            if (genes[j] == c_old) {                                  // if occurrence of the c_old found
-                System.arraycopy(c_old_R, 1, R[j], 1, delta + 1);   // replace all entries in R[j] with the entries in c_old_R
-            }
-        }
-    }
-
-    /**
-     * Updates or computes the matrix R.
-     * <br>R holds the max. maxDist positions of the next unmarked characters right of each position in the chromosome.
-     * <br>rank is used to determine unmarked characters. An unmarked character must have a higher rank then the character at the current position.
-     * @param rank the rank array of the current reference interval.
-     * @param c_old the character that was last added to the reference interval. Must not be < 0
-     */
-    void updateR(Rank rank, int c_old){
-        if (getPOS(c_old).length == 0)
-            return;
-
-        updateR_characterRankSmallerC_Old(rank, c_old);
-        updateR_characterEqualsC_Old(rank, c_old);
-    }
-
-    /**
-     * Resets the matrix R to its default value chr.size()+1.
-     */
-    private void resetR () {
-        for (int i=0; i<R.length; i++) {
-            IntArray.reset(R[i], this.getEffectiveGeneNumber()+1);
-        }
-    }
-
-    /**
-     * Returns the next position to the right of position pos of the interval with diff unmarked characters.
-     * @param pos the position based on which the unmarked position is determined.
-     * @param diff the number of unmarked characters between pos and the returned value.
-     * @return the position of the unmarked character.
-     */
-    public int getR (int pos, int diff) {
-        return R[pos][diff];
-    }
-
-    /**
-     * Resets the matrix L_prime to its default value 0.
-     */
-    private void resetL_prime () {
-        for (int i=0; i<L_prime.length; i++) {
-            IntArray.reset(L_prime[i], 0);
-        }
-    }
-
-    void computeL_prime(Rank rank) {
-        resetL_prime();
-        for(int j=1;j<=this.getEffectiveGeneNumber();j++){
-            if(genes[j]<0)
-                continue;
-            int last_match = j+1;
-            for(int d=1; d<=delta+1; d++) {
-                boolean notFound = true;
-                for(int l=L[j][d]+1; l<last_match && notFound; l++) {
-                    if(genes[l] >= 0 && rank.getRank(genes[l]) <= rank.getRank(genes[j])) {
-                        L_prime[j][d] = l;
-                        notFound = false;
-                    }
-                }
-                if (notFound)
-                    L_prime[j][d] = L_prime[j][d-1];
-                last_match = L[j][d]+1;
-            }
-        }
-    }
-
-    int[] getNextRankingsRightOfPos(Rank rank, int pos, int c_old){
-        int[] lowerRankingNeighbors = IntArray.newIntArray(delta+1,  getEffectiveGeneNumber()+1);
-
-        int index = 0;
-        int lastRank = rank.getRank(c_old);
-        for (int i=pos+1; i<=getEffectiveGeneNumber(); i++) {
-            if (genes[i] < 0)
-                continue;
-            if (rank.getRank(genes[i]) < lastRank) {
-                lowerRankingNeighbors[index] = i;
-                lastRank = rank.getRank(genes[i]);
-                index++;
-                if (index == lowerRankingNeighbors.length)
-                    break;
-            }
-        }
-        return lowerRankingNeighbors;
-    }
-
-    /**
-     * Updates or computes the matrix L_prime.
-     * <br>L_prime holds the max. maxDist positions of the next characters right of the corresponding L.
-     * <br>rank is used to determine marked characters. An marked character must have a lower or equal rank then the character at the current position.
-     * @param rank the rank array of the current reference interval.
-     * @param c_old the character that was last added to the reference interval. Must not be < 0.
-     */
-    void updateL_prime(Rank rank, int c_old){
-        if (getPOS(c_old).length == 0)
-            return;
-
-        updateL_primeCharacterRankSmallerC_Old(rank, c_old);
-        updateL_primeCharacterEqualsC_Old(rank, c_old);
-    }
-
-    private void updateL_primeCharacterRankSmallerC_Old(Rank rank, int c_old) {
-        Map<Integer, int[]> lowerRankedNeighbors = new HashMap<>();
-
-        for (int i=1;i<=this.getEffectiveGeneNumber(); i++){
-            if (genes[i]<0)
-                continue;
-            if (rank.getRank(genes[i]) < rank.getRank(c_old)) {
-                for (int d=1; d<=delta+1; d++) {
-                    if (genes[L_prime[i][d]] == c_old || L[i][d] >= L_prime[i][d]) {
-                        // get update position
-                        int pos = Math.max(L_prime[i][d], L[i][d]);
-
-                        int[] newPossitions = lowerRankedNeighbors.get(pos);
-                        if (newPossitions == null) {
-                            newPossitions = getNextRankingsRightOfPos(rank, pos, c_old);
-                            lowerRankedNeighbors.put(pos, newPossitions);
-                        }
-                        for (int j=0; j< newPossitions.length; j++){
-                            if (rank.getRank(genes[newPossitions[j]]) <= rank.getRank(genes[i])) {
-                                L_prime[i][d] = newPossitions[j];
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-    private static class UpdateLPrime {
-        final int p;
-        final int[] primes;
-        final int[] L;
-        int lastToUpdate;
-
-        UpdateLPrime(int pos, int delta, int[] L) {
-            p=pos;
-            primes = new int[delta+2];
-            lastToUpdate = 1;
-            primes[1] = pos;
-            this.L = L;
-        }
-
-        /**
-         * Updates the prime for the new match position
-         * @param matchPosition the next position of a matching character
-         * @return true if done updating, false otherwise
-         */
-        boolean updatePosition(int matchPosition) {
-            while (lastToUpdate < primes.length && matchPosition <= L[lastToUpdate]) {
-                if (lastToUpdate < primes.length-1)
-                    primes[lastToUpdate+1] = primes[lastToUpdate];
-                lastToUpdate++;
-            }
-
-            if (lastToUpdate == primes.length)
-                return true;
-
-            primes[lastToUpdate] = matchPosition;
-            return false;
-        }
-
-        int[] getLPrime() {
-            while (lastToUpdate < primes.length-1) {
-                primes[lastToUpdate+1] = primes[lastToUpdate];
-                lastToUpdate++;
-            }
-            return primes;
-        }
-    }
-
-    private void updateL_primeCharacterEqualsC_Old(Rank rank, int c_old) {
-        int[] pos = getPOS(c_old);
-        Set<UpdateLPrime> currentlyUpdating = new HashSet<>();
-
-        for (int pos_index=pos.length-1; pos_index>=0; pos_index--) {
-            // Start new iteration from next unused pos
-            int nextPos = pos_index>0 ? pos[pos_index-1] : 0;
-            currentlyUpdating.add(new UpdateLPrime(pos[pos_index], delta, L[pos[pos_index]]));
-
-            // iterate from the position left of pos, as long as we are currently updating an Lprime
-            int i = pos[pos_index]-1;
-            while (!currentlyUpdating.isEmpty() && i > 0){
-                if (nextPos==i){
-                    currentlyUpdating.add(new UpdateLPrime(i, delta, L[i]));
-                    pos_index--;
-                    nextPos = pos_index>0 ? pos[pos_index-1] : 0;
-                }
-
-                // if marked gene found
-                if(genes[i] >= 0 && rank.getRank(genes[i]) <= rank.getRank(c_old)) {
-                    Iterator<UpdateLPrime> iterator = currentlyUpdating.iterator();
-                    while (iterator.hasNext()) {
-                        UpdateLPrime updateLPrime = iterator.next();
-                        if (updateLPrime.updatePosition(i)){
-                            L_prime[updateLPrime.p] = updateLPrime.getLPrime();
-                            iterator.remove();
-                        }
-                    }
-                }
-
-                i--;
-            }
-
-        }
-        // Get all unfinished Primes
-        for (UpdateLPrime updateLPrime : currentlyUpdating){
-            L_prime[updateLPrime.p] = updateLPrime.getLPrime();
-        }
-    }
-
-    /**
-     * Resets the matrix R_prime to its default value chr.size()+1.
+     * Returns the next occurrence of the character at position index in the chromosome.
+     * @param index the position of the character.
+     * @return the position of the next occurrence of the character.
      */
-    private void resetR_prime () {
-        for (int i=0; i<R_prime.length; i++) {
-            IntArray.reset(R_prime[i], getEffectiveGeneNumber()+1);
-        }
-    }
-
-    void computeR_prime(Rank rank) {
-        resetR_prime();
-        for(int j=1;j<=getEffectiveGeneNumber();j++){
-            if (genes[j]<0)
-                continue;
-            int lastEnd = j-1;  // we only need to scan before the last scanned position for different d
-            for(int d=1; d<=delta+1; d++) {
-                boolean notFound = true;
-                for (int l = R[j][d] - 1; l > lastEnd && notFound; l--) {
-                    if (genes[l] >= 0 && rank.getRank(genes[l]) <= rank.getRank(genes[j])) {
-                        R_prime[j][d] = l;
-                        notFound = false;
-                    }
-                }
-                if (notFound)
-                    R_prime[j][d] = R_prime[j][d - 1];
-                lastEnd = R[j][d] - 1;
-            }
-        }
-    }
-
-    int[] getNextRankingsLeftOfPos(Rank rank, int pos, int c_old){
-        int[] lowerRankingNeighbors = IntArray.newIntArray(delta + 1, 0);
-
-        int index = 0;
-        int lastRank = rank.getRank(c_old);
-        for (int i=pos-1; i>=1; i--) {
-            if (genes[i] < 0)
-                continue;
-            if (rank.getRank(genes[i]) < lastRank) {
-                lowerRankingNeighbors[index] = i;
-                lastRank = rank.getRank(genes[i]);
-                index++;
-                if (index == lowerRankingNeighbors.length)
-                    break;
-            }
-        }
-        return lowerRankingNeighbors;
+    public int getNextOCC(int index) {
+        return nextOcc.get(index);
     }
 
     /**
-     * Updates or computes the matrix R_prime.
-     * <br>R_prime holds the max. maxDist positions of the next characters left of the corresponding R.
-     * <br>rank is used to determine marked characters. An marked character must have a lower or equal rank then the character at the current position.
-     * @param rank the rank array of the current reference interval.
-     * @param c_old the character that was last added to the reference interval. Must not be < 0.
+     * Returns the previous occurrence of the character at position index in the chromosome.
+     * @param index the position of the character.
+     * @return the position of the previous occurrence of the character.
      */
-    void updateR_prime(Rank rank, int c_old){
-        if (getPOS(c_old).length == 0)
-            return;
-
-        updateR_primeCharacterRankSmallerC_Old(rank, c_old);
-        updateR_primeCharacterEqualsC_Old(rank, c_old);
-    }
-
-    private void updateR_primeCharacterRankSmallerC_Old(Rank rank, int c_old) {
-        Map<Integer, int[]> lowerRankedNeighbors = new HashMap<>();
-
-        for (int i=this.getEffectiveGeneNumber();i>=1; i--){
-            if (genes[i]<0)
-                continue;
-            if (rank.getRank(genes[i]) < rank.getRank(c_old)) {
-                for (int d=1; d<=delta+1; d++) {
-                    if (genes[R_prime[i][d]] == c_old || R[i][d] <= R_prime[i][d]) {
-                        // get update position
-                        int pos = Math.min(R_prime[i][d], R[i][d]);
-
-                        int[] newPossitions = lowerRankedNeighbors.get(pos);
-                        if (newPossitions == null) {
-                            newPossitions = getNextRankingsLeftOfPos(rank, pos, c_old);
-                            lowerRankedNeighbors.put(pos, newPossitions);
-                        }
-                        for (int j=0; j< newPossitions.length; j++){
-                            if (rank.getRank(genes[newPossitions[j]]) <= rank.getRank(genes[i])) {
-                                R_prime[i][d] = newPossitions[j];
-                                break;
-                            }
-                        }
-                    }
-                }
-            }
-        }
-    }
-
-    private static class UpdateRPrime {
-        final int p;
-        final int[] primes;
-        final int[] R;
-        int lastToUpdate;
-
-        UpdateRPrime(int pos, int delta, int[] R) {
-            p=pos;
-            primes = new int[delta+2];
-            lastToUpdate = 1;
-            primes[1] = pos;
-            this.R = R;
-        }
-
-        /**
-         * Updates the prime for the new match position
-         * @param matchPosition the next position of a matching character
-         * @return true if done updating, false otherwise
-         */
-        boolean updatePosition(int matchPosition) {
-            while (lastToUpdate < primes.length && R[lastToUpdate] < matchPosition ) {
-                if (lastToUpdate < primes.length-1)
-                    primes[lastToUpdate+1] = primes[lastToUpdate];
-                lastToUpdate++;
-            }
-
-            if (lastToUpdate == primes.length)
-                return true;
-
-            primes[lastToUpdate] = matchPosition;
-            return false;
-        }
-
-        int[] getRPrime() {
-            while (lastToUpdate < primes.length-1) {
-                primes[lastToUpdate+1] = primes[lastToUpdate];
-                lastToUpdate++;
-            }
-            return primes;
-        }
-    }
-
-    private void updateR_primeCharacterEqualsC_Old(Rank rank, int c_old) {
-        int[] pos = getPOS(c_old);
-        Set<UpdateRPrime> currentlyUpdating = new HashSet<>();
-
-        for (int pos_index=0; pos_index<pos.length; pos_index++) {
-            // Start new iteration from next unused pos
-            int nextPos = pos_index<pos.length-1 ? pos[pos_index+1] : getEffectiveGeneNumber()+1;
-            currentlyUpdating.add(new UpdateRPrime(pos[pos_index], delta, R[pos[pos_index]]));
-
-            // iterate from the position right of pos, as long as we are currently updating an Rprime
-            int i = pos[pos_index]+1;
-            while (!currentlyUpdating.isEmpty() && i < getEffectiveGeneNumber()+1){
-                if (nextPos==i){
-                    currentlyUpdating.add(new UpdateRPrime(i, delta, R[i]));
-                    pos_index++;
-                    nextPos = pos_index<pos.length-1 ? pos[pos_index+1] : getEffectiveGeneNumber()+1;
-                }
-
-                // if marked gene found
-                if(genes[i] >= 0 && rank.getRank(genes[i]) <= rank.getRank(c_old)) {
-                    Iterator<UpdateRPrime> iterator = currentlyUpdating.iterator();
-                    while (iterator.hasNext()) {
-                        UpdateRPrime updateRPrime = iterator.next();
-                        if (updateRPrime.updatePosition(i)){
-                            R_prime[updateRPrime.p] = updateRPrime.getRPrime();
-                            iterator.remove();
-                        }
-                    }
-                }
-
-                i++;
-            }
-
-        }
-        // Get all unfinished Primes
-        for (UpdateRPrime updateRPrime : currentlyUpdating){
-            R_prime[updateRPrime.p] = updateRPrime.getRPrime();
-        }
-    }
-
-    public int getL_prime (int pos, int diff) {
-        return L_prime[pos][diff];
-    }
-    
-    public int getR_prime (int pos, int diff) {
-        return R_prime[pos][diff];
+    public int getPrevOCC(int index) {
+        return prevOcc.get(index);
     }
 
     @Override public String toString() {
-        return String.format("Chromosome Nr: %1$d => %2$s", nr, Arrays.toString(genes));
+        return String.format("Chromosome Nr: %1$d => %2$s", nr, Arrays.toString(genes.toArray()));
     }
 
     /**
@@ -986,11 +385,6 @@ class Chromosome {
     public void removeCalculationFields() {
         this.pos = null;
 
-        this.L = null;
-        this.R = null;
-        this.L_prime = null;
-        this.R_prime = null;
-
         this.prevOcc = null;
         this.nextOcc = null;
     }
@@ -0,0 +1,745 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.unijena.bioinf.gecko3.algo;
+
+import de.unijena.bioinf.gecko3.algo.util.IntArray;
+
+import java.util.*;
+
+/**
+ * ChromosomeCursor holds the matrices L, R, L_prime and R_prime of one chromosome for one running search.
+ * The chromosome itself is not changed by the search, so several cursors can share one chromosome.
+ * Each matrix is stored in one flat {@link IntStorage}, row by row with stride delta+2, the entry for position pos
+ * and distance diff is at index pos*stride + diff.
+ */
+class ChromosomeCursor {
+    private final Chromosome chr;
+    private final int delta;
+    private final int stride;
+
+    private final IntStorage L;
+    private final IntStorage R;
+    private final IntStorage L_prime;
+    private final IntStorage R_prime;
+
+    // scratch of the prime updates, allocated on the first update and reused afterwards
+    private int[] neighborSlot;     // slot+1 of the computed lower ranking neighbors of a position, 0 if not computed
+    private int[] neighborPos;      // the position of each slot
+    private int[] neighbors;        // the lower ranking neighbors, delta+1 per slot
+    private int neighborCount;
+    private int[] updatingPos;      // the row of each prime update in progress
+    private int[] updatingLast;     // the last updated distance of each prime update in progress
+    private int[] updatingPrimes;   // the new row of each prime update in progress, stride per update
+    private int updatingCount;
+
+    /**
+     * Allocates the matrices for the chromosome on the heap.
+     * @param chr the chromosome, has to be initialized for calculation.
+     * @param maxDelta the maximum allowed distance
+     */
+    ChromosomeCursor(Chromosome chr, int maxDelta) {
+        this(chr, maxDelta, IntStorageFactory.HEAP);
+    }
+
+    /**
+     * Allocates the matrices for the chromosome.
+     * @param chr the chromosome, has to be initialized for calculation.
+     * @param maxDelta the maximum allowed distance
+     * @param storage the factory for the storage of the matrices
+     */
+    ChromosomeCursor(Chromosome chr, int maxDelta, IntStorageFactory storage) {
+        this.chr = chr;
+        this.delta = maxDelta;
+
+        this.stride = maxDelta + 2;
+
+        int length = (chr.getEffectiveGeneNumber() + 2) * stride;
+        this.L = storage.allocate(length, 0);
+        this.R = storage.allocate(length, chr.getEffectiveGeneNumber() + 1);
+        this.L_prime = storage.allocate(length, 0);
+        this.R_prime = storage.allocate(length, chr.getEffectiveGeneNumber() + 1);
+    }
+
+    /**
+     * Returns the chromosome the cursor belongs to.
+     * @return the chromosome.
+     */
+    Chromosome getChromosome() {
+        return chr;
+    }
+
+    /**
+     * Computes the matrix L.
+     * <br>L holds the max. maxDist positions of the next unmarked characters left of each position in the chromosome.
+     * <br>rank is used to determine unmarked characters. An unmarked character must have a higher rank then the character at the current position.
+     * @param rank the rank array of the current reference interval.
+     */
+    void computeL(Rank rank){
+        resetL();                                           
+        for (int i=1; i<=chr.getEffectiveGeneNumber(); i++) {
+            L.set(i*stride, i);                                     // no mismatch left of position is the position
+            int d = 1;
+            if (chr.getGene(i) <0)
+                continue;
+
+            for (int j=i-1; j>0 && d<=delta+1; j--) {                                 // search for unmarked char left of i
+                if (chr.getGene(j) < 0) {
+                    int k = Math.abs(chr.getGene(j));
+                    while(d<=delta+1 && k>0){
+                        L.set(i*stride + d, j);
+                        d++;
+                        k--;
+                    }
+                    continue;
+                }
+
+                if (rank.getRank(chr.getGene(j)) > rank.getRank(chr.getGene(i))) {  // if unmarked char found
+                    if(!chr.previousInInterval(j+1, i)) {              // if unmarked char found for the 1st time
+                        L.set(i*stride + d, j);
+                        d++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculate new values for L for positions with characters with rank smaller than c_old
+     * @param rank the rank array of the current reference interval.
+     * @param c_old must not be < 0
+     */
+    private void updateL_characterRankSmallerC_Old(Rank rank, int c_old){
+        int lastOcc = 0;
+        for (int j=1; j<=chr.getEffectiveGeneNumber(); j++){
+            if (chr.getGene(j) < 0)
+                continue;
+
+            if (lastOcc!=0) {                                                       // if c_old has already occurred in the list
+                if (rank.getRank(chr.getGene(j)) < rank.getRank(c_old)) {             // if rank of character smaller than the new rank of c_old
+                    for (int l=1; l<=delta+1; l++) {                              // test if entries for position i in array L change,
+                        if  (this.getL(j, l) < lastOcc) {                            // because c_old is a new mismatch left of i
+                            L.copyWithin(j*stride+l, j*stride+l+1, (stride-l)-1); // shift all higher entries in L
+                            L.set(j*stride + l, lastOcc);                                // and insert the new mismatch position
+                            break;                                                  // no further changes in L[j] possible
+                        }
+                    }
+                }
+            }                                       // if c_old not yet read, L[j] cannot change
+            if (chr.getGene(j) == c_old) {
+                lastOcc = j;                        // new occurrence of c_old read
+            }
+        }
+    }
+
+    /**
+     * Calculate new values for L for positions with character c_old
+     * @param rank the rank array of the current reference interval.
+     * @param c_old must not be < 0
+     */
+    private void updateL_characterEqualsC_Old(Rank rank, int c_old){
+        if (chr.getPOSLength(c_old) == 0)
+            return;
+
+        int[] c_old_L = new int[delta+2];
+
+        for (int j=1; j<=chr.getEffectiveGeneNumber(); j++) {
+            if (chr.getGene(j)<0) {
+                if (-chr.getGene(j) <= delta + 1)
+                    System.arraycopy(c_old_L, 1, c_old_L, (-chr.getGene(j)+1), (c_old_L.length -(-chr.getGene(j)+1)));
+                
+                for (int k=Math.min(-chr.getGene(j), delta+1); k>0; k--) {
+                	c_old_L[k] = j;
+                }
+            }
+            else if(rank.getRank(chr.getGene(j)) > rank.getRank(c_old)) {
+                int prevOcc = delta + 1;          // the sign is at last position per default
+
+                for (int d=1; d<=delta+1; d++) {
+                    if (chr.getGene(j) == chr.getGene(c_old_L[d])) {    // search for the first entry in the neighbor array
+                        prevOcc = d;                                        // that has the char chr[j], and store the position in prevOcc
+                        break;
+                    }
+                }
+
+                System.arraycopy(c_old_L, 1, c_old_L, 2, prevOcc - 1);      // shift all entries between position 1 and the old occurrence of c_old
+                c_old_L[1] = j;
+            }
+
+            if (chr.getGene(j) == c_old) {                                  // if occurrence of the c_old found
+                L.put(c_old_L, 1, j*stride + 1, delta + 1);   // replace all entries in L[j] with the entries in c_old_L
+            }
+        }
+    }
+
+    /**
+     * Updates or computes the matrix L.
+     * <br>L holds the max. maxDist positions of the next unmarked characters left of each position in the chromosome.
+     * <br>rank is used to determine unmarked characters. An unmarked character must have a higher rank then the character at the current position.
+     * @param rank the rank array of the current reference interval.
+     * @param c_old the character that was last added to the reference interval. Must not be < 0.
+     */
+    void updateL(Rank rank, int c_old){
+        if (chr.getPOSLength(c_old) == 0)
+            return;
+
+        updateL_characterRankSmallerC_Old(rank, c_old);
+        updateL_characterEqualsC_Old(rank, c_old);
+    }
+
+    /**
+     * Resets the matrix L to its default value 0.
+     */
+    private void resetL () {
+        L.fill(0);
+    }
+
+    /**
+     * Returns the next position to the left of position pos of the interval with diff unmarked characters.
+     * @param pos the position based on which the unmarked position is determined.
+     * @param diff the number of unmarked characters between pos and the returned value.
+     * @return the position of the unmarked character.
+     */
+    public int getL (int pos, int diff) {
+        return L.get(pos*stride + diff);
+    }
+
+    /**
+     * Computes the matrix R
+     * <br>R holds the max. maxDist positions of the next unmarked characters right of each position in the chromosome.
+     * <br>rank is used to determine unmarked characters. An unmarked character must have a higher rank then the character at the current position.
+     * @param rank the rank array of the current reference interval.
+     */
+    void computeR(Rank rank){
+    	resetR();
+        for (int i=1; i<=chr.getEffectiveGeneNumber(); i++) {
+            R.set(i*stride, i);                              // first mismatch right of position is the position
+            int d = 1;
+            
+            if(chr.getGene(i)<0)
+                continue;
+
+            for (int j=i+1; j<=chr.getEffectiveGeneNumber() && d<=delta+1; j++) {                   // search for unmarked char right of i
+                if (chr.getGene(j)<0 ) {
+                    int k = 0;
+                    while(d<=delta+1 && k<Math.abs(chr.getGene(j))){
+                        R.set(i*stride + d, j);
+                        d++;
+                        k++;
+                    }
+                    continue;
+                }
+                if (rank.getRank(chr.getGene(j)) > rank.getRank(chr.getGene(i))) {  // if unmarked char found
+                    if(!chr.nextInInterval(i, j-1)) {                         // if unmarked char found for the 1st time
+                        R.set(i*stride + d, j);
+                        d++;
+                    }
+                }
+            }
+    	}
+    }
+
+    /**
+     * Calculate new values for R for positions with characters with rank smaller than c_old
+     * @param rank the rank array of the current reference interval.
+     * @param c_old must not be < 0
+     */
+    private void updateR_characterRankSmallerC_Old(Rank rank, int c_old){
+        int lastOcc = chr.getEffectiveGeneNumber()+1;
+
+        for (int j=chr.getEffectiveGeneNumber(); j>=1; j--) {
+            if (chr.getGene(j) < 0)
+                continue;
+            if (lastOcc != chr.getEffectiveGeneNumber() + 1) {                                            // if c_old has already occurred in the list
+                if (rank.getRank(chr.getGene(j)) < rank.getRank(c_old)) {       // if rank of character smaller than the new rank of c_old
+                    for (int l = 1; l <= delta + 1; l++) {                              // test if entries for position i in array R change,
+                        if (R.get(j*stride + l) > lastOcc) {                            // because c_old is a new mismatch left of i
+                            R.copyWithin(j*stride+l, j*stride+l+1, (stride-l)-1); // shift all higher entries in R
+                            R.set(j*stride + l, lastOcc);                                // and insert the new mismatch position
+                            break;                                                  // no further changes in R[j] possible
+                        }
+                    }
+                }
+            }                                       // if c_old not yet read, R[j] cannot change
+            if (chr.getGene(j) == c_old) {
+                lastOcc = j;                        // new occurrence of c_old read
+            }
+        }
+    }
+
+    /**
+     * Calculate new values for R for positions with character c_old
+     * @param rank the rank array of the current reference interval.
+     * @param c_old must not be < 0
+     */
+    private void updateR_characterEqualsC_Old(Rank rank, int c_old){
+        if (chr.getPOSLength(c_old) == 0)
+            return;
+
+        int[] c_old_R = IntArray.newIntArray(delta+2, chr.getEffectiveGeneNumber()+1);
+
+        for (int j=chr.getEffectiveGeneNumber(); j>=1; j--) {
+            if (chr.getGene(j)<0) {
+                if (-chr.getGene(j) <= delta + 1)
+                    System.arraycopy(c_old_R, 1, c_old_R, (-chr.getGene(j)+1),(c_old_R.length-(-chr.getGene(j)+1)));
+
+                for (int k=Math.min(-chr.getGene(j), delta+1); k>0; k--) {
+                    c_old_R[k] = j;
+                }
+            } else if (rank.getRank(chr.getGene(j)) > rank.getRank(c_old)) {
+                int prevOcc = delta + 1;          // the sign is at last position per default
+
+                for (int p=1; p<=delta+1; p++) {
+                    if (chr.getGene(j) >= 0 && chr.getGene(j) == chr.getGene(c_old_R[p])) {    // search for the first entry in the neighbor array
+                        prevOcc = p;                                        // that has the char chr[j], and store the position in prevOcc
+                        break;
+                    }
+                }
+
+                System.arraycopy(c_old_R, 1, c_old_R, 2, prevOcc - 1);    // shift all entries between position 1 and the old occurrence of c_old
+                c_old_R[1] = j;
+            }
+
+            if (chr.getGene(j) == c_old) {                                  // if occurrence of the c_old found
+                R.put(c_old_R, 1, j*stride + 1, delta + 1);   // replace all entries in R[j] with the entries in c_old_R
+            }
+        }
+    }
+
+    /**
+     * Updates or computes the matrix R.
+     * <br>R holds the max. maxDist positions of the next unmarked characters right of each position in the chromosome.
+     * <br>rank is used to determine unmarked characters. An unmarked character must have a higher rank then the character at the current position.
+     * @param rank the rank array of the current reference interval.
+     * @param c_old the character that was last added to the reference interval. Must not be < 0
+     */
+    void updateR(Rank rank, int c_old){
+        if (chr.getPOSLength(c_old) == 0)
+            return;
+
+        updateR_characterRankSmallerC_Old(rank, c_old);
+        updateR_characterEqualsC_Old(rank, c_old);
+    }
+
+    /**
+     * Resets the matrix R to its default value chr.size()+1.
+     */
+    private void resetR () {
+        R.fill(chr.getEffectiveGeneNumber()+1);
+    }
+
+    /**
+     * Returns the next position to the right of position pos of the interval with diff unmarked characters.
+     * @param pos the position based on which the unmarked position is determined.
+     * @param diff the number of unmarked characters between pos and the returned value.
+     * @return the position of the unmarked character.
+     */
+    public int getR (int pos, int diff) {
+        return R.get(pos*stride + diff);
+    }
+
+    /**
+     * Resets the matrix L_prime to its default value 0.
+     */
+    private void resetL_prime () {
+        L_prime.fill(0);
+    }
+
+    void computeL_prime(Rank rank) {
+        resetL_prime();
+        for(int j=1;j<=chr.getEffectiveGeneNumber();j++){
+            if(chr.getGene(j)<0)
+                continue;
+            int last_match = j+1;
+            for(int d=1; d<=delta+1; d++) {
+                boolean notFound = true;
+                for(int l=L.get(j*stride + d)+1; l<last_match && notFound; l++) {
+                    if(chr.getGene(l) >= 0 && rank.getRank(chr.getGene(l)) <= rank.getRank(chr.getGene(j))) {
+                        L_prime.set(j*stride + d, l);
+                        notFound = false;
+                    }
+                }
+                if (notFound)
+                    L_prime.set(j*stride + d, L_prime.get(j*stride + d-1));
+                last_match = L.get(j*stride + d)+1;
+            }
+        }
+    }
+
+    /**
+     * Computes the next delta+1 positions right of pos, with characters of decreasing rank lower than the rank of c_old.
+     * The positions are computed once per update and stored in the scratch array neighbors, missing positions are
+     * chr.size()+1.
+     * @return the offset of the positions in neighbors.
+     */
+    private int getNextRankingsRightOfPos(Rank rank, int pos, int c_old){
+        int offset = newNeighborSlot(pos);
+        if (offset < 0)
+            return -offset - 1;
+        Arrays.fill(neighbors, offset, offset + delta + 1, chr.getEffectiveGeneNumber()+1);
+
+        int index = 0;
+        int lastRank = rank.getRank(c_old);
+        for (int i=pos+1; i<=chr.getEffectiveGeneNumber(); i++) {
+            if (chr.getGene(i) < 0)
+                continue;
+            if (rank.getRank(chr.getGene(i)) < lastRank) {
+                neighbors[offset + index] = i;
+                lastRank = rank.getRank(chr.getGene(i));
+                index++;
+                if (index == delta + 1)
+                    break;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Reserves a slot for the lower ranking neighbors of pos.
+     * @return the offset of the new slot, or -(offset of the existing slot)-1 if the neighbors of pos are already computed.
+     */
+    private int newNeighborSlot(int pos) {
+        if (neighborSlot == null) {
+            neighborSlot = new int[chr.getEffectiveGeneNumber() + 2];
+            neighborPos = new int[16];
+            neighbors = new int[16 * (delta + 1)];
+        }
+        if (neighborSlot[pos] != 0)
+            return -(neighborSlot[pos] - 1) * (delta + 1) - 1;
+        if (neighborCount == neighborPos.length) {
+            neighborPos = Arrays.copyOf(neighborPos, 2 * neighborCount);
+            neighbors = Arrays.copyOf(neighbors, 2 * neighborCount * (delta + 1));
+        }
+        neighborPos[neighborCount] = pos;
+        neighborSlot[pos] = ++neighborCount;
+        return (neighborCount - 1) * (delta + 1);
+    }
+
+    /**
+     * Forgets all computed lower ranking neighbors.
+     */
+    private void clearNeighbors() {
+        for (int i=0; i<neighborCount; i++)
+            neighborSlot[neighborPos[i]] = 0;
+        neighborCount = 0;
+    }
+
+    /**
+     * Updates or computes the matrix L_prime.
+     * <br>L_prime holds the max. maxDist positions of the next characters right of the corresponding L.
+     * <br>rank is used to determine marked characters. An marked character must have a lower or equal rank then the character at the current position.
+     * @param rank the rank array of the current reference interval.
+     * @param c_old the character that was last added to the reference interval. Must not be < 0.
+     */
+    void updateL_prime(Rank rank, int c_old){
+        if (chr.getPOSLength(c_old) == 0)
+            return;
+
+        updateL_primeCharacterRankSmallerC_Old(rank, c_old);
+        updateL_primeCharacterEqualsC_Old(rank, c_old);
+    }
+
+    private void updateL_primeCharacterRankSmallerC_Old(Rank rank, int c_old) {
+        for (int i=1;i<=chr.getEffectiveGeneNumber(); i++){
+            if (chr.getGene(i)<0)
+                continue;
+            if (rank.getRank(chr.getGene(i)) < rank.getRank(c_old)) {
+                for (int d=1; d<=delta+1; d++) {
+                    if (chr.getGene(L_prime.get(i*stride + d)) == c_old || L.get(i*stride + d) >= L_prime.get(i*stride + d)) {
+                        // get update position
+                        int pos = Math.max(L_prime.get(i*stride + d), L.get(i*stride + d));
+
+                        int offset = getNextRankingsRightOfPos(rank, pos, c_old);
+                        for (int j=offset; j<offset + delta + 1; j++){
+                            if (rank.getRank(chr.getGene(neighbors[j])) <= rank.getRank(chr.getGene(i))) {
+                                L_prime.set(i*stride + d, neighbors[j]);
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        clearNeighbors();
+    }
+
+    /**
+     * Starts the update of the prime row of pos, with prime[1] = pos.
+     */
+    private void startPrimeUpdate(int pos) {
+        if (updatingPos == null) {
+            updatingPos = new int[16];
+            updatingLast = new int[16];
+            updatingPrimes = new int[16 * stride];
+        } else if (updatingCount == updatingPos.length) {
+            updatingPos = Arrays.copyOf(updatingPos, 2 * updatingCount);
+            updatingLast = Arrays.copyOf(updatingLast, 2 * updatingCount);
+            updatingPrimes = Arrays.copyOf(updatingPrimes, 2 * updatingCount * stride);
+        }
+        updatingPos[updatingCount] = pos;
+        updatingLast[updatingCount] = 1;
+        updatingPrimes[updatingCount * stride] = 0;
+        updatingPrimes[updatingCount * stride + 1] = pos;
+        updatingCount++;
+    }
+
+    /**
+     * Updates the L_prime row of the update u for the new match position
+     * @param u the index of the update
+     * @param matchPosition the next position of a matching character
+     * @return true if done updating, false otherwise
+     */
+    private boolean updateL_primePosition(int u, int matchPosition) {
+        int offset = updatingPos[u] * stride;
+        int base = u * stride;
+        int last = updatingLast[u];
+        while (last < stride && matchPosition <= L.get(offset + last)) {
+            if (last < stride-1)
+                updatingPrimes[base + last+1] = updatingPrimes[base + last];
+            last++;
+        }
+        updatingLast[u] = last;
+
+        if (last == stride)
+            return true;
+
+        updatingPrimes[base + last] = matchPosition;
+        return false;
+    }
+
+    /**
+     * Fills the remaining distances of the update u, writes the row to prime and removes the update.
+     * The last update in progress takes the index u.
+     */
+    private void finishPrimeUpdate(int u, IntStorage prime) {
+        int base = u * stride;
+        for (int last=updatingLast[u]; last < stride-1; last++)
+            updatingPrimes[base + last+1] = updatingPrimes[base + last];
+        prime.put(updatingPrimes, base, updatingPos[u]*stride, stride);
+
+        updatingCount--;
+        if (u != updatingCount) {
+            updatingPos[u] = updatingPos[updatingCount];
+            updatingLast[u] = updatingLast[updatingCount];
+            System.arraycopy(updatingPrimes, updatingCount * stride, updatingPrimes, base, stride);
+        }
+    }
+
+    private void updateL_primeCharacterEqualsC_Old(Rank rank, int c_old) {
+        int posOffset = chr.getPOSOffset(c_old);
+        int posLength = chr.getPOSLength(c_old);
+
+        for (int pos_index=posLength-1; pos_index>=0; pos_index--) {
+            // Start new iteration from next unused pos
+            int nextPos = pos_index>0 ? chr.getPosition(posOffset + pos_index-1) : 0;
+            startPrimeUpdate(chr.getPosition(posOffset + pos_index));
+
+            // iterate from the position left of pos, as long as we are currently updating an Lprime
+            int i = chr.getPosition(posOffset + pos_index)-1;
+            while (updatingCount > 0 && i > 0){
+                if (nextPos==i){
+                    startPrimeUpdate(i);
+                    pos_index--;
+                    nextPos = pos_index>0 ? chr.getPosition(posOffset + pos_index-1) : 0;
+                }
+
+                // if marked gene found
+                if(chr.getGene(i) >= 0 && rank.getRank(chr.getGene(i)) <= rank.getRank(c_old)) {
+                    int u = 0;
+                    while (u < updatingCount) {
+                        if (updateL_primePosition(u, i))
+                            finishPrimeUpdate(u, L_prime);
+                        else
+                            u++;
+                    }
+                }
+
+                i--;
+            }
+
+        }
+        // Get all unfinished Primes
+        while (updatingCount > 0)
+            finishPrimeUpdate(updatingCount - 1, L_prime);
+    }
+
+    /**
+     * Resets the matrix R_prime to its default value chr.size()+1.
+     */
+    private void resetR_prime () {
+        R_prime.fill(chr.getEffectiveGeneNumber()+1);
+    }
+
+    void computeR_prime(Rank rank) {
+        resetR_prime();
+        for(int j=1;j<=chr.getEffectiveGeneNumber();j++){
+            if (chr.getGene(j)<0)
+                continue;
+            int lastEnd = j-1;  // we only need to scan before the last scanned position for different d
+            for(int d=1; d<=delta+1; d++) {
+                boolean notFound = true;
+                for (int l = R.get(j*stride + d) - 1; l > lastEnd && notFound; l--) {
+                    if (chr.getGene(l) >= 0 && rank.getRank(chr.getGene(l)) <= rank.getRank(chr.getGene(j))) {
+                        R_prime.set(j*stride + d, l);
+                        notFound = false;
+                    }
+                }
+                if (notFound)
+                    R_prime.set(j*stride + d, R_prime.get(j*stride + d - 1));
+                lastEnd = R.get(j*stride + d) - 1;
+            }
+        }
+    }
+
+    /**
+     * Computes the next delta+1 positions left of pos, with characters of decreasing rank lower than the rank of c_old.
+     * The positions are computed once per update and stored in the scratch array neighbors, missing positions are 0.
+     * @return the offset of the positions in neighbors.
+     */
+    private int getNextRankingsLeftOfPos(Rank rank, int pos, int c_old){
+        int offset = newNeighborSlot(pos);
+        if (offset < 0)
+            return -offset - 1;
+        Arrays.fill(neighbors, offset, offset + delta + 1, 0);
+
+        int index = 0;
+        int lastRank = rank.getRank(c_old);
+        for (int i=pos-1; i>=1; i--) {
+            if (chr.getGene(i) < 0)
+                continue;
+            if (rank.getRank(chr.getGene(i)) < lastRank) {
+                neighbors[offset + index] = i;
+                lastRank = rank.getRank(chr.getGene(i));
+                index++;
+                if (index == delta + 1)
+                    break;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Updates or computes the matrix R_prime.
+     * <br>R_prime holds the max. maxDist positions of the next characters left of the corresponding R.
+     * <br>rank is used to determine marked characters. An marked character must have a lower or equal rank then the character at the current position.
+     * @param rank the rank array of the current reference interval.
+     * @param c_old the character that was last added to the reference interval. Must not be < 0.
+     */
+    void updateR_prime(Rank rank, int c_old){
+        if (chr.getPOSLength(c_old) == 0)
+            return;
+
+        updateR_primeCharacterRankSmallerC_Old(rank, c_old);
+        updateR_primeCharacterEqualsC_Old(rank, c_old);
+    }
+
+    private void updateR_primeCharacterRankSmallerC_Old(Rank rank, int c_old) {
+        for (int i=chr.getEffectiveGeneNumber();i>=1; i--){
+            if (chr.getGene(i)<0)
+                continue;
+            if (rank.getRank(chr.getGene(i)) < rank.getRank(c_old)) {
+                for (int d=1; d<=delta+1; d++) {
+                    if (chr.getGene(R_prime.get(i*stride + d)) == c_old || R.get(i*stride + d) <= R_prime.get(i*stride + d)) {
+                        // get update position
+                        int pos = Math.min(R_prime.get(i*stride + d), R.get(i*stride + d));
+
+                        int offset = getNextRankingsLeftOfPos(rank, pos, c_old);
+                        for (int j=offset; j<offset + delta + 1; j++){
+                            if (rank.getRank(chr.getGene(neighbors[j])) <= rank.getRank(chr.getGene(i))) {
+                                R_prime.set(i*stride + d, neighbors[j]);
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        clearNeighbors();
+    }
+
+    /**
+     * Updates the R_prime row of the update u for the new match position
+     * @param u the index of the update
+     * @param matchPosition the next position of a matching character
+     * @return true if done updating, false otherwise
+     */
+    private boolean updateR_primePosition(int u, int matchPosition) {
+        int offset = updatingPos[u] * stride;
+        int base = u * stride;
+        int last = updatingLast[u];
+        while (last < stride && R.get(offset + last) < matchPosition) {
+            if (last < stride-1)
+                updatingPrimes[base + last+1] = updatingPrimes[base + last];
+            last++;
+        }
+        updatingLast[u] = last;
+
+        if (last == stride)
+            return true;
+
+        updatingPrimes[base + last] = matchPosition;
+        return false;
+    }
+
+    private void updateR_primeCharacterEqualsC_Old(Rank rank, int c_old) {
+        int posOffset = chr.getPOSOffset(c_old);
+        int posLength = chr.getPOSLength(c_old);
+
+        for (int pos_index=0; pos_index<posLength; pos_index++) {
+            // Start new iteration from next unused pos
+            int nextPos = pos_index<posLength-1 ? chr.getPosition(posOffset + pos_index+1) : chr.getEffectiveGeneNumber()+1;
+            startPrimeUpdate(chr.getPosition(posOffset + pos_index));
+
+            // iterate from the position right of pos, as long as we are currently updating an Rprime
+            int i = chr.getPosition(posOffset + pos_index)+1;
+            while (updatingCount > 0 && i < chr.getEffectiveGeneNumber()+1){
+                if (nextPos==i){
+                    startPrimeUpdate(i);
+                    pos_index++;
+                    nextPos = pos_index<posLength-1 ? chr.getPosition(posOffset + pos_index+1) : chr.getEffectiveGeneNumber()+1;
+                }
+
+                // if marked gene found
+                if(chr.getGene(i) >= 0 && rank.getRank(chr.getGene(i)) <= rank.getRank(c_old)) {
+                    int u = 0;
+                    while (u < updatingCount) {
+                        if (updateR_primePosition(u, i))
+                            finishPrimeUpdate(u, R_prime);
+                        else
+                            u++;
+                    }
+                }
+
+                i++;
+            }
+
+        }
+        // Get all unfinished Primes
+        while (updatingCount > 0)
+            finishPrimeUpdate(updatingCount - 1, R_prime);
+    }
+
+    public int getL_prime (int pos, int diff) {
+        return L_prime.get(pos*stride + diff);
+    }
+    
+    public int getR_prime (int pos, int diff) {
+        return R_prime.get(pos*stride + diff);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.unijena.bioinf.gecko3.algo;
+
+import java.util.Arrays;
+
+/**
+ * CoverageBound counts the genomes that can not contain a delta location of the current pattern,
+ * nor of any extension of the pattern with the same left border.
+ * A delta location lies on one chromosome, so it misses at least the characters of the pattern that do not occur
+ * on its chromosome. For each chromosome the number of pattern characters occurring on it is counted,
+ * a genome can not contain a delta location, if even its best chromosome misses more than delta characters.
+ * The number of missing characters of each chromosome never decreases when the pattern is extended,
+ * so the bound is valid for all extensions. It is at least as tight as counting the characters that are missing
+ * in the whole genome.
+ *
+ * A copy of the reference genome is not counted.
+ */
+class CoverageBound {
+    private final GenomeList genomes;
+    private final int nrOfGenomes;
+    private final int[] chrBase;          // index of the first chromosome of each genome
+    private final int[] present;          // number of pattern characters occurring on each chromosome
+    private final int[] presentStamp;     // the pattern present belongs to, older counts are 0
+    private final int[] maxPresent;       // maximum of present over the chromosomes of each genome
+    private int stamp;
+
+    /**
+     * Constructs the bound for all genomes of the list, except a copy of the reference genome.
+     * @param genomes the genomes, initialized for the calculation.
+     */
+    CoverageBound(GenomeList genomes) {
+        this.genomes = genomes;
+        this.nrOfGenomes = genomes.getNrOfOriginalGenomes();
+        this.chrBase = new int[nrOfGenomes];
+        int nrOfChromosomes = 0;
+        for (int k=0; k<nrOfGenomes; k++) {
+            chrBase[k] = nrOfChromosomes;
+            nrOfChromosomes += genomes.get(k).getNumberOfChromosomes();
+        }
+        this.present = new int[nrOfChromosomes];
+        this.presentStamp = new int[nrOfChromosomes];
+        this.maxPresent = new int[nrOfGenomes];
+        this.stamp = 0;
+    }
+
+    /**
+     * Starts a new empty pattern. Does not clear the counts of the chromosomes.
+     */
+    void reset() {
+        stamp++;
+        Arrays.fill(maxPresent, 0);
+    }
+
+    /**
+     * Adds the character c to the pattern. Has to be called once for each character added to the pattern.
+     * @param c the added character.
+     * @param patternSize the size of the pattern including c.
+     * @param delta the maximum distance.
+     * @return the number of genomes that can not contain a delta location of the pattern.
+     */
+    int add(int c, int patternSize, int delta) {
+        int uncovered = 0;
+        for (int k=0; k<nrOfGenomes; k++) {
+            if (genomes.occursIn(c, k)) {
+                Genome genome = genomes.get(k);
+                int end = genome.getCHROffset(c) + genome.getCHRLength(c);
+                for (int o=genome.getCHROffset(c); o<end; o++) {
+                    int j = chrBase[k] + genome.getCHR(o);
+                    int count = (presentStamp[j] == stamp) ? present[j] + 1 : 1;
+                    present[j] = count;
+                    presentStamp[j] = stamp;
+                    if (count > maxPresent[k])
+                        maxPresent[k] = count;
+                }
+            }
+            if (patternSize - maxPresent[k] > delta)
+                uncovered++;
+        }
+        return uncovered;
+    }
+}
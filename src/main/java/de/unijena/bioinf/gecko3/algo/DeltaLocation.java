@@ -22,7 +22,7 @@ package de.unijena.bioinf.gecko3.algo;
 import java.util.List;
 
 public class DeltaLocation implements Comparable<DeltaLocation> {
-	private static final int MIN_HIT_COUNT = 2;
+	static final int MIN_HIT_COUNT = 2;
 	
 	private int genomeNr;
 	private final int chrNr;
@@ -65,11 +65,6 @@ public class DeltaLocation implements Comparable<DeltaLocation> {
 		this.valid = org.valid;
 	}
 	
-	public static DeltaLocation getReferenceLocation(int referenceGenomeNr,
-			int referenceChromosomeNr, int l, int r, int patternSize) {
-		return new DeltaLocation(referenceGenomeNr, referenceChromosomeNr, l, r, 0, 0, 0, patternSize, patternSize, true);
-	}
-	
 	public static DeltaLocation getArtificialDeltaLocation(int genomeNr, int distance) {
 		return new DeltaLocation(genomeNr, -1, 0, 0, distance, 0, 0, 0, 0, false);
 	}
@@ -114,6 +109,14 @@ public class DeltaLocation implements Comparable<DeltaLocation> {
 		return hitCount;
 	}
 
+	public int getMissingChars() {
+		return missingChars;
+	}
+
+	public int getAdditionalChars() {
+		return additionalChars;
+	}
+
 	public double getpValue() {
 		return pValue;
 	}
@@ -226,18 +229,28 @@ public class DeltaLocation implements Comparable<DeltaLocation> {
 
 
 
-	public boolean isFirstRefOcc(List<ListOfDeltaLocations> otherLocs) {
+	/**
+	 * Checks if the reference occurrence [l, r] is the first occurrence with distance 0 in all lists up to the reference genome.
+	 * @param genomeNr the number of the reference genome
+	 * @param chrNr the number of the reference chromosome
+	 * @param l the left border of the reference occurrence
+	 * @param r the right border of the reference occurrence
+	 * @param otherLocs the delta locations of all genomes
+	 * @return true if no other occurrence with distance 0 comes first
+	 */
+	public static boolean isFirstRefOcc(int genomeNr, int chrNr, int l, int r, List<ListOfDeltaLocations> otherLocs) {
 		for (int k=0; k<=genomeNr; k++) {
-			for (DeltaLocation otherLoc : otherLocs.get(k)){
-				if (otherLoc.getDistance() == 0) {
+			ListOfDeltaLocations otherList = otherLocs.get(k);
+			for (int i=0; i<otherList.size(); i++){
+				if (otherList.getDistance(i) == 0) {
 					if (k < genomeNr)
 						return false;
-					if (otherLoc.getChrNr() < chrNr)
+					if (otherList.getChrNr(i) < chrNr)
 						return false;
-					if (otherLoc.getChrNr() == chrNr){
-						if(otherLoc.getL() < l)
+					if (otherList.getChrNr(i) == chrNr){
+						if(otherList.getL(i) < l)
 							return false;
-						if(otherLoc.getL() == l && otherLoc.getR() < r)
+						if(otherList.getL(i) == l && otherList.getR(i) < r)
 							return false;
 					}
 				}
@@ -246,7 +259,7 @@ public class DeltaLocation implements Comparable<DeltaLocation> {
 		return true;
 	}
 
-	public int leftMostEssentialChar(Chromosome chr) {
+	public static int leftMostEssentialChar(Chromosome chr, int l, int r) {
 		if (l > r)
 			return -1;
 		for (int i = l; i<=r; i++){
@@ -257,7 +270,7 @@ public class DeltaLocation implements Comparable<DeltaLocation> {
 		throw new RuntimeException("No left border found!");
 	}
 	
-	public int rightMostEssentialChar(Chromosome chr) {
+	public static int rightMostEssentialChar(Chromosome chr, int l, int r) {
 		if (l > r)
 			return -1;
 		for (int i = r; i>=l; i--){
@@ -307,6 +320,14 @@ public class DeltaLocation implements Comparable<DeltaLocation> {
                 distance <= param.getDeltaTotal(clusterSize);
 	}
 
+	/**
+	 * Returns the valid flag of the delta table check, without checking the hit count.
+	 * @return the valid flag
+	 */
+	boolean isDeltaTableValid() {
+		return valid;
+	}
+
 	/**
 	 * Returns if the delta location is valid. You have to call @link checkForDeltaTableValidity first!
 	 * @return if the delta location is valid
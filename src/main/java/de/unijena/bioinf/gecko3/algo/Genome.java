@@ -20,6 +20,7 @@
 package de.unijena.bioinf.gecko3.algo;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 
@@ -31,12 +32,24 @@ class Genome implements Iterable<Chromosome> {
     private final List<Chromosome> chromosomes;
     private final int nr;
 
+    /**
+     * The chromosomes each character occurs on, computed by {@link #initializeForCalculation(int, IntStorageFactory)}.
+     */
+    private PositionIndex chrIndex;
+
     /**
      *  Needed for statistics calculations.
      *  Position 0 contains the total length of the genome.
      *  Positions i contains the total number of intervals of length i that fit into the genome.
+     *  Extended on demand and replaced by the extended array, so it can be read by several threads.
+     */
+    private volatile int[] possibleIntervalsPerIntervalLength;
+
+    /**
+     *  The number of occurrences of each character, position 0 contains the number of singleton genes.
+     *  Computed on demand and kept, so all computations of statistics on this genome share it.
      */
-    private final List<Integer> possibleIntervalsPerIntervalLength;
+    private volatile int[] charFrequency;
 
     /**
      * 
@@ -49,29 +62,108 @@ class Genome implements Iterable<Chromosome> {
         int l = 0;
         for (Chromosome chr : chromosomes)
             l += chr.getTotalGeneNumber();
-        possibleIntervalsPerIntervalLength = new ArrayList<>();
-        possibleIntervalsPerIntervalLength.add(l);
+        possibleIntervalsPerIntervalLength = new int[]{l};
 	}
 
     public Genome(int nr, Chromosome chromosome) {
         this.chromosomes = new ArrayList<>(1);
         this.chromosomes.add(chromosome);
         this.nr = nr;
-        possibleIntervalsPerIntervalLength = new ArrayList<>();
-        possibleIntervalsPerIntervalLength.add(chromosome.getTotalGeneNumber());
+        possibleIntervalsPerIntervalLength = new int[]{chromosome.getTotalGeneNumber()};
     }
     
-    public Genome(Genome other) {
-    	this.chromosomes = new ArrayList<>(other.chromosomes.size());
-    	for (Chromosome chr : other.chromosomes)
-    		this.chromosomes.add(new Chromosome(chr));
-    	this.nr = other.nr;
-        possibleIntervalsPerIntervalLength = new ArrayList<>(other.possibleIntervalsPerIntervalLength);
+    private Genome(Genome other) {
+        this.chromosomes = other.chromosomes;
+        this.nr = other.nr;
+        this.chrIndex = other.chrIndex;
+        possibleIntervalsPerIntervalLength = other.possibleIntervalsPerIntervalLength;
+        charFrequency = other.charFrequency;
+    }
+
+    /**
+     * Returns a view of the genome, that shares the chromosomes and the chromosome index with this genome.
+     * Both are not changed during the calculation, and the matrices of the search are held by the cursors,
+     * so the view can be searched like a copy of the genome without copying and initializing the chromosomes again.
+     * @return the view of the genome.
+     */
+    Genome createView() {
+        return new Genome(this);
     }
 
 	public Chromosome get(int nr) {
         return chromosomes.get(nr);
     }
+
+    /**
+     * Initializes all chromosomes for the calculation of gene clusters and indexes the chromosomes each character
+     * occurs on.
+     * @param alphabetSize the size of the complete alphabet.
+     * @param storage the factory for the storages of the chromosomes and the index.
+     */
+    void initializeForCalculation(int alphabetSize, IntStorageFactory storage) {
+        int size = 0;
+        for (Chromosome chromosome : chromosomes) {
+            chromosome.initializeForCalculation(alphabetSize, storage);
+            size += chromosome.getEffectiveGeneNumber();
+        }
+
+        // one entry per chromosome for each character, at its first occurrence
+        int[] chars = new int[size];
+        int[] chrIndices = new int[size];
+        size = 0;
+        for (int j=0; j<chromosomes.size(); j++) {
+            Chromosome chromosome = chromosomes.get(j);
+            for (int i=1; i<=chromosome.getEffectiveGeneNumber(); i++) {
+                if (chromosome.getGene(i) >= 0 && chromosome.getPrevOCC(i) == 0) {
+                    chars[size] = chromosome.getGene(i);
+                    chrIndices[size] = j;
+                    size++;
+                }
+            }
+        }
+        this.chrIndex = PositionIndex.ofValues(alphabetSize, chars, chrIndices, size, storage);
+    }
+
+    /**
+     * Removes all fields used only in computation of gene clusters, so they can be garbage collected
+     */
+    void removeCalculationFields() {
+        for (Chromosome chromosome : chromosomes)
+            chromosome.removeCalculationFields();
+        this.chrIndex = null;
+    }
+
+    /**
+     * Returns the offset of the first chromosome the character c occurs on, see {@link #getCHR(int)}.
+     * @param c the character.
+     * @return the offset of the chromosomes of the character.
+     */
+    int getCHROffset(int c) {
+        return chrIndex.offset(c);
+    }
+
+    /**
+     * Returns the number of chromosomes the character c occurs on.
+     * @param c the character.
+     * @return the number of chromosomes, 0 for negative characters.
+     */
+    int getCHRLength(int c) {
+        return chrIndex.length(c);
+    }
+
+    /**
+     * Returns a chromosome index from the chromosome index. The indices of the chromosomes the character c occurs on
+     * in ascending order are getCHR(getCHROffset(c)), ..., getCHR(getCHROffset(c) + getCHRLength(c) - 1).
+     * @param offset the offset of the chromosome index.
+     * @return the index of the chromosome in the genome.
+     */
+    int getCHR(int offset) {
+        return chrIndex.get(offset);
+    }
+
+    public int getNumberOfChromosomes() {
+        return chromosomes.size();
+    }
     
     public int getNr(){
     	return nr;
@@ -82,16 +174,27 @@ class Genome implements Iterable<Chromosome> {
      * @return the length.
      */
     public int getLength() {
-        return possibleIntervalsPerIntervalLength.get(0);
+        return possibleIntervalsPerIntervalLength[0];
     }
 
     public int getNrOfPossibleIntervals(int intervalLength) {
-        if (possibleIntervalsPerIntervalLength.size() <= intervalLength) {
-            for (int i=possibleIntervalsPerIntervalLength.size(); i<=intervalLength; i++){
-                possibleIntervalsPerIntervalLength.add(computePossibleIntervals(i));
+        int[] possibleIntervals = possibleIntervalsPerIntervalLength;
+        if (possibleIntervals.length <= intervalLength)
+            possibleIntervals = extendPossibleIntervals(intervalLength);
+        return possibleIntervals[intervalLength];
+    }
+
+    private synchronized int[] extendPossibleIntervals(int intervalLength) {
+        int[] possibleIntervals = possibleIntervalsPerIntervalLength;
+        if (possibleIntervals.length <= intervalLength) {
+            int oldLength = possibleIntervals.length;
+            possibleIntervals = Arrays.copyOf(possibleIntervals, intervalLength + 1);
+            for (int i=oldLength; i<=intervalLength; i++){
+                possibleIntervals[i] = computePossibleIntervals(i);
             }
+            possibleIntervalsPerIntervalLength = possibleIntervals;
         }
-        return possibleIntervalsPerIntervalLength.get(intervalLength);
+        return possibleIntervals;
     }
 
     private int computePossibleIntervals(int intervalLength) {
@@ -110,11 +213,7 @@ class Genome implements Iterable<Chromosome> {
         if (c < 0)
             return -c;
 
-    	for (Chromosome chr: chromosomes){
-    		if (chr.getPOS(c).length != 0)
-    			return 0;
-    	}
-    	return 1;
+    	return (chrIndex.length(c) != 0) ? 0 : 1;
     }
     
     /**
@@ -129,22 +228,37 @@ class Genome implements Iterable<Chromosome> {
         if (c<0)
             return -c;
 
-		for (Chromosome chr: chromosomes){
-			if (chr.getNr() != chrNr){
-	    		if (chr.getPOS(c).length != 0)
-	    			return 0;
-			} else {
-				int[] pos = chr.getPOS(c);
-                for (int position : pos) {
-                    if (position < l || position > r)
-                        return 0;
-                }
+		int end = chrIndex.offset(c) + chrIndex.length(c);
+		for (int o=chrIndex.offset(c); o<end; o++){
+			Chromosome chromosome = chromosomes.get(chrIndex.get(o));
+			if (chromosome.getNr() != chrNr)
+				return 0;
+			int posEnd = chromosome.getPOSOffset(c) + chromosome.getPOSLength(c);
+			for (int p=chromosome.getPOSOffset(c); p<posEnd; p++) {
+				int position = chromosome.getPosition(p);
+				if (position < l || position > r)
+					return 0;
 			}
 		}
 		return 1;
 	}
 
+    /**
+     * Returns the number of occurrences of each character, position 0 contains the number of singleton genes.
+     * The array is computed once and shared, so it must not be changed.
+     * @param alphabetSize the size of the complete alphabet.
+     * @return the char frequencies.
+     */
     public int[] getCharFrequency(int alphabetSize) {
+        int[] charFreq = charFrequency;
+        if (charFreq == null || charFreq.length != alphabetSize + 1) {
+            charFreq = computeCharFrequency(alphabetSize);
+            charFrequency = charFreq;
+        }
+        return charFreq;
+    }
+
+    private int[] computeCharFrequency(int alphabetSize) {
         int[] charFreq = new int[alphabetSize + 1];
 
         for (Chromosome chr : chromosomes)
@@ -28,10 +28,22 @@ import java.util.*;
 class GenomeList {
 
     private final List<Genome> genomes;
-    private Rank rank;
     private final int alphabetSize;
     
     private boolean containsReferenceCopy;
+
+    /**
+     * The genomes each character occurs in, as bitmap with presenceWords words per character.
+     * Only the genomes of the initialization are contained, not a copy of the reference genome.
+     * Bits of genomes that do not exist are set.
+     */
+    private long[] presence;
+    private int presenceWords;
+    private int presenceGenomes;
+    /**
+     * The number of genomes each character occurs in.
+     */
+    private int[] genomeCount;
     /**
      * Constructor for generating a SetOfSequences from an array of integer with given alphabet size.
      * @param genomes the lists of Integers.
@@ -84,19 +96,32 @@ class GenomeList {
         this.containsReferenceCopy = false;
     }
     
+    /**
+     * Copy constructor, the copy shares all genomes with the other genome list.
+     * Used to give each parallel search its own list, to which the reference copy can be appended.
+     * If the other list contains a reference copy, the copy also contains it.
+     * @param other the genome list that is copied
+     */
+    GenomeList(GenomeList other) {
+        this.genomes = new ArrayList<>(other.genomes);
+        this.alphabetSize = other.alphabetSize;
+        this.containsReferenceCopy = other.containsReferenceCopy;
+        this.presence = other.presence;
+        this.presenceWords = other.presenceWords;
+        this.presenceGenomes = other.presenceGenomes;
+        this.genomeCount = other.genomeCount;
+    }
+
     /**
      * Appends a copy of the reference genome to the genome list. 
      * Used for searching reference occurrences in the reference genome.
+     * The copy is a view of the reference genome, see {@link Genome#createView()}.
      * @param referenceGenomeNr the number of the reference genome.
      */
     void appendCopyOfReferenceGenome(int referenceGenomeNr, AlgorithmParameters param) {
     	if (containsReferenceCopy)
     		throw new RuntimeException("Trying to append additional reference copy!");
-    	Genome newGenome = new Genome(genomes.get(referenceGenomeNr));
-    	for (Chromosome chr : newGenome) {
-            chr.initializeForCalculation(alphabetSize, param.getMaximumDelta());
-        }
-    	genomes.add(newGenome);
+    	genomes.add(genomes.get(referenceGenomeNr).createView());
     	param.increaseNrOfGenomes();
     	this.containsReferenceCopy = true;
     }
@@ -112,15 +137,89 @@ class GenomeList {
     
     /**
      * Initializes the SetOfSequences for a calculation of gene clusters.
-     * @param maxDelta the maximum distance
+     * The fields that change during the calculation are held by a {@link GenomeListCursor}.
+     */
+    void initializeForCalculation() {
+        initializeForCalculation(IntStorageFactory.HEAP);
+    }
+
+    /**
+     * Initializes the SetOfSequences for a calculation of gene clusters.
+     * The genes and occurrence indexes of all chromosomes are moved to storages of the factory.
+     * A copy of the reference genome shares the storages of the reference genome.
+     * @param storage the factory for the storages.
      */
-    void initializeForCalculation(int maxDelta) {
-        for (Genome g : genomes) {
-            for (Chromosome chr : g) {
-                chr.initializeForCalculation(alphabetSize, maxDelta);
+    void initializeForCalculation(IntStorageFactory storage) {
+        for (Genome g : genomes)
+            g.initializeForCalculation(alphabetSize, storage);
+
+        presenceGenomes = genomes.size();
+        presenceWords = (presenceGenomes + 63) >>> 6;
+        presence = new long[(alphabetSize + 1) * presenceWords];
+        genomeCount = new int[alphabetSize + 1];
+        for (int c=0; c<=alphabetSize; c++) {
+            int offset = c * presenceWords;
+            for (int k=0; k<presenceGenomes; k++) {
+                if (genomes.get(k).getCHRLength(c) != 0) {
+                    presence[offset + (k >>> 6)] |= 1L << k;
+                    genomeCount[c]++;
+                }
             }
+            if ((presenceGenomes & 63) != 0)
+                presence[offset + presenceWords - 1] |= -1L << presenceGenomes;
         }
-        rank = new Rank(alphabetSize);
+    }
+
+    /**
+     * Returns the number of genomes the character c occurs in. A copy of the reference genome is not counted.
+     * @param c the character.
+     * @return the number of genomes, 0 for negative characters.
+     */
+    int getNrOfGenomesContaining(int c) {
+        return (c < 0) ? 0 : genomeCount[c];
+    }
+
+    /**
+     * Checks if the character c occurs in genome k. Not defined for a copy of the reference genome.
+     * @param c the character.
+     * @param k the number of the genome.
+     * @return true if c occurs in genome k, false otherwise.
+     */
+    boolean occursIn(int c, int k) {
+        return c >= 0 && (presence[c * presenceWords + (k >>> 6)] & (1L << k)) != 0;
+    }
+
+    /**
+     * Adds the number of characters, that are missing if c is added to a pattern, to the counts of all genomes
+     * that do not contain c. A copy of the reference genome is not changed.
+     * @param c the character added to the pattern.
+     * @param noOccCount the number of missing characters per genome.
+     * @param delta the maximum distance.
+     * @return the number of genomes, whose count exceeded delta by this addition.
+     */
+    int addNoOccs(int c, int[] noOccCount, int delta) {
+        int exceeded = 0;
+        if (c < 0) {
+            // -c genes that do not occur in any genome
+            for (int k=0; k<presenceGenomes; k++) {
+                if (noOccCount[k] <= delta && noOccCount[k] - c > delta)
+                    exceeded++;
+                noOccCount[k] -= c;
+            }
+            return exceeded;
+        }
+
+        int offset = c * presenceWords;
+        for (int w=0; w<presenceWords; w++) {
+            long missing = ~presence[offset + w];
+            while (missing != 0) {
+                int k = (w << 6) + Long.numberOfTrailingZeros(missing);
+                missing &= missing - 1;
+                if (++noOccCount[k] == delta + 1)
+                    exceeded++;
+            }
+        }
+        return exceeded;
     }
 
     /**
@@ -140,6 +239,14 @@ class GenomeList {
         return genomes.size();
     }
 
+    /**
+     * Returns the number of genomes without a copy of the reference genome.
+     * @return the number of genomes without a copy of the reference genome.
+     */
+    int getNrOfOriginalGenomes() {
+        return containsReferenceCopy ? genomes.size() - 1 : genomes.size();
+    }
+
     /**
      * Returns the size of the alphabet of all sequences.
      * @return the size of the alphabet of all sequences.
@@ -149,100 +256,16 @@ class GenomeList {
     }
 
     /**
-     * Updates the left border of the pattern to the position leftBorder in the reference chromosome refChr from the genome refGenomeNr.
-     * @param leftBorder the new left border of the pattern.
-     * @param refChr the reference chromosome.
-     * @param refGenomeNr the number of the genome the reference chromosome is located on.
+     * Checks if the character at the position of the reference chromosome does not occur in any other genome.
+     * A copy of the reference genome is not checked.
      */
-    public void updateLeftBorder(int leftBorder, Chromosome refChr, int refGenomeNr) {
-        rank.updateRank(refChr, leftBorder);  //TODO rank really in seqSet? Alternative Rank in Pattern
-
-        this.updateL(refGenomeNr, leftBorder, refChr.getGene(leftBorder - 1));
-        this.updateR(refGenomeNr, leftBorder, refChr.getGene(leftBorder - 1));
-        this.updateL_R_prime(refGenomeNr, leftBorder, refChr.getGene(leftBorder - 1));
-    }
-    
-    public boolean zeroOccs(int refGenomeNr, int refChrNr, int position, boolean searchRefInRef){
+    public boolean zeroOccs(int refGenomeNr, int refChrNr, int position){
     	int c = genomes.get(refGenomeNr).get(refChrNr).getGene(position);
-    	
-    	for (int l=0; l<genomes.size(); l++){
-    		if (l==refGenomeNr)
-    			continue;
-    			
-    		if (searchRefInRef && l == genomes.size()-1){
-    			//TODO refInRef
-    		} else {
-    			if (genomes.get(l).noOcc(c) == 0)
-    				return false;
-    		}
-    	}
-    	return true;
-    }
-
-    /**
-     * Updates or computes the matrix L for each genome in the SetOfGenomes.
-     *
-     * L holds the max. maxDist positions of the next unmarked characters left of each position in the chromosome.
-     * The array rank is used to determine unmarked characters.
-     * @param refGenomeNr the number of the current reference genome.
-     * @param i the start position of the current reference interval on the reference chromosome.
-     * @param c_old the character that was last added to the reference interval.
-     */
-    private void updateL(int refGenomeNr, int i, int c_old) {  //TODO parallel?
-        for (int k=0; k<this.size(); k++) {
-            if (k==refGenomeNr) {
-                    continue;
-            }
-
-            for (Chromosome chr: genomes.get(k)) {
-                if (i==1)
-                    chr.computeL(rank);
-                else if (c_old >= 0)
-                    chr.updateL(rank, c_old);
-            }
-        }
+    	if (c < 0)
+    		return true;
+    	return genomeCount[c] - (occursIn(c, refGenomeNr) ? 1 : 0) == 0;
     }
 
-    /**
-     * Updates or computes the matrix R for each genome in the SetOfGenomes.
-     *
-     * R holds the max. maxDist positions of the next unmarked characters right of each position in the chromosome.
-     * The array rank is used to determine unmarked characters.
-     * @param refGenomeNr the number of the current reference genome.
-     * @param i the start position of the current reference interval on the reference chromosome.
-     * @param c_old the character that was last added to the reference interval.
-     */
-    private void updateR(int refGenomeNr, int i, int c_old){
-        for (int k=0; k<this.size(); k++) {
-            if (k==refGenomeNr)
-                continue;
-
-            for (Chromosome chr: genomes.get(k))
-                if (i==1)
-                    chr.computeR(rank);
-                else if (c_old >= 0)
-                    chr.updateR(rank, c_old);
-        }
-    }
-    
-    private void updateL_R_prime(int refGenomeNr, int leftBorder, int c_old) {
-		for (int k=0; k<this.size(); k++) {
-			if (k==refGenomeNr)
-                continue;
-
-            for (Chromosome c: genomes.get(k)) {
-                if (leftBorder==1) {
-                    c.computeL_prime(rank);
-                    c.computeR_prime(rank);
-                } else if (c_old >= 0) {
-                    c.updateL_prime(rank, c_old);
-                    c.updateR_prime(rank, c_old);
-                }
-			}
-		}
-		
-	}
-
     @Override public String toString() {
         StringBuilder b = new StringBuilder(String.format("Alphabet size: %1$d%n", alphabetSize));
         for (Genome genome : genomes) {
@@ -252,11 +275,7 @@ class GenomeList {
     }
 
     public void removeCalculationFields() {
-        for (Genome g : genomes) {
-            for (Chromosome chr : g) {
-                chr.removeCalculationFields();
-            }
-        }
-        rank = null;
+        for (Genome g : genomes)
+            g.removeCalculationFields();
     }
 }
\ No newline at end of file
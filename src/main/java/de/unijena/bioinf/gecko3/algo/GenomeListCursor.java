@@ -0,0 +1,246 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.unijena.bioinf.gecko3.algo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * GenomeListCursor holds all fields of one running search that change with the left border of the reference interval,
+ * the rank table and the matrices L, R, L_prime and R_prime of each chromosome.
+ * The GenomeList is not changed by the search, so several cursors can be used in parallel on one GenomeList.
+ * If a {@link WorkerGroup} is given, the matrices of the chromosomes are updated in parallel, as the
+ * updates of different chromosomes are independent.
+ */
+class GenomeListCursor {
+    /**
+     * The minimum number of genes in all non reference chromosomes, for which the updates are done in parallel.
+     * Below, synchronizing the worker group costs more than the update itself.
+     */
+    static final int MIN_GENES_FOR_PARALLEL_UPDATE = 100000;
+
+    private final List<ChromosomeCursor[]> chromosomes;
+    private final Rank rank;
+    private final int maxDelta;
+
+    private final WorkerGroup workers;
+    private final int minGenesForParallelUpdate;
+    private final UpdateJob updateJob;
+    private ChromosomeCursor[][] partition;
+    private int partitionRefGenomeNr;
+    private int partitionNrOfGenomes;
+    private boolean parallelUpdate;
+
+    /**
+     * Allocates the rank table and the matrices for all genomes of the list.
+     * @param genomes the genomes, have to be initialized for calculation.
+     * @param maxDelta the maximum allowed distance.
+     */
+    GenomeListCursor(GenomeList genomes, int maxDelta) {
+        this(genomes, maxDelta, null, MIN_GENES_FOR_PARALLEL_UPDATE, IntStorageFactory.HEAP);
+    }
+
+    /**
+     * Allocates the rank table and the matrices for all genomes of the list.
+     * The matrices are updated by the worker group, if the genomes contain at least minGenesForParallelUpdate genes.
+     * @param genomes the genomes, have to be initialized for calculation.
+     * @param maxDelta the maximum allowed distance.
+     * @param workers the worker group, or null for sequential updates.
+     * @param minGenesForParallelUpdate the minimum number of genes in all non reference chromosomes for parallel updates.
+     * @param storage the factory for the storage of the matrices.
+     */
+    GenomeListCursor(GenomeList genomes, int maxDelta, WorkerGroup workers, int minGenesForParallelUpdate, IntStorageFactory storage) {
+        this.chromosomes = new ArrayList<>(genomes.size() + 1);
+        this.maxDelta = maxDelta;
+        this.workers = (workers != null && workers.size() > 1) ? workers : null;
+        this.minGenesForParallelUpdate = minGenesForParallelUpdate;
+        this.updateJob = new UpdateJob();
+        for (int k=0; k<genomes.size(); k++)
+            appendGenome(genomes.get(k), storage);
+        this.rank = new Rank(genomes.getAlphabetSize());
+    }
+
+    /**
+     * Allocates the matrices for an additional genome, used for the copy of the reference genome.
+     * The copy is exchanged for every reference genome, so its matrices are always allocated on the heap.
+     * @param genome the genome, has to be initialized for calculation.
+     */
+    void appendGenome(Genome genome) {
+        appendGenome(genome, IntStorageFactory.HEAP);
+    }
+
+    private void appendGenome(Genome genome, IntStorageFactory storage) {
+        ChromosomeCursor[] cursors = new ChromosomeCursor[genome.getNumberOfChromosomes()];
+        for (int i=0; i<cursors.length; i++)
+            cursors[i] = new ChromosomeCursor(genome.get(i), maxDelta, storage);
+        chromosomes.add(cursors);
+    }
+
+    /**
+     * Removes the matrices of the last genome.
+     */
+    void removeLastGenome() {
+        chromosomes.remove(chromosomes.size() - 1);
+    }
+
+    /**
+     * Returns the cursors of all chromosomes of the genome at index k, ordered by chromosome number.
+     * @param k the index of the genome.
+     * @return the cursors of all chromosomes of the genome.
+     */
+    ChromosomeCursor[] get(int k) {
+        return chromosomes.get(k);
+    }
+
+    /**
+     * Updates the left border of the pattern to the position leftBorder in the reference chromosome refChr from the genome refGenomeNr.
+     * @param leftBorder the new left border of the pattern.
+     * @param refChr the reference chromosome.
+     * @param refGenomeNr the number of the genome the reference chromosome is located on.
+     */
+    void updateLeftBorder(int leftBorder, Chromosome refChr, int refGenomeNr) {
+        rank.updateRank(refChr, leftBorder);
+
+        int c_old = refChr.getGene(leftBorder - 1);
+        if (leftBorder==1)
+            updateMatrices(refGenomeNr, true, c_old);
+        else if (c_old >= 0)
+            updateMatrices(refGenomeNr, false, c_old);
+    }
+
+    /**
+     * Sets the left border of the pattern to the position leftBorder in the reference chromosome refChr from the genome refGenomeNr.
+     * Other than {@link #updateLeftBorder(int, Chromosome, int)}, the rank table and the matrices are computed anew,
+     * so the previous left border can be anywhere. Used to start the search in the middle of a chromosome.
+     * @param leftBorder the new left border of the pattern.
+     * @param refChr the reference chromosome.
+     * @param refGenomeNr the number of the genome the reference chromosome is located on.
+     */
+    void setLeftBorder(int leftBorder, Chromosome refChr, int refGenomeNr) {
+        rank.computeRank(refChr, leftBorder);
+
+        updateMatrices(refGenomeNr, true, refChr.getGene(leftBorder - 1));
+    }
+
+    private void updateMatrices(int refGenomeNr, boolean compute, int c_old) {
+        if (workers != null && updatePartition(refGenomeNr)) {
+            updateJob.compute = compute;
+            updateJob.c_old = c_old;
+            workers.run(updateJob);
+        } else {
+            for (int k=0; k<chromosomes.size(); k++) {
+                if (k==refGenomeNr)
+                    continue;
+                for (ChromosomeCursor chr: chromosomes.get(k))
+                    updateChromosome(chr, compute, c_old);
+            }
+        }
+    }
+
+    /**
+     * Updates or computes the matrices L, R, L_prime and R_prime of one chromosome.
+     *
+     * L and R hold the max. maxDist positions of the next unmarked characters left and right of each position in the chromosome.
+     * The array rank is used to determine unmarked characters.
+     * @param chr the cursor of the chromosome.
+     * @param compute if the matrices are computed anew instead of updated.
+     * @param c_old the character that was last added to the reference interval.
+     */
+    private void updateChromosome(ChromosomeCursor chr, boolean compute, int c_old) {
+        if (compute) {
+            chr.computeL(rank);
+            chr.computeR(rank);
+            chr.computeL_prime(rank);
+            chr.computeR_prime(rank);
+        } else {
+            chr.updateL(rank, c_old);
+            chr.updateR(rank, c_old);
+            chr.updateL_prime(rank, c_old);
+            chr.updateR_prime(rank, c_old);
+        }
+    }
+
+    /**
+     * Distributes the chromosomes of all genomes except the reference genome on the members of the worker group.
+     * Each chromosome is given to the member with the fewest genes so far, starting with the largest chromosome.
+     * The partition is only recomputed if the reference genome or the number of genomes changed.
+     * @param refGenomeNr the number of the current reference genome.
+     * @return true if the chromosomes are large enough to be updated in parallel, false otherwise.
+     */
+    private boolean updatePartition(int refGenomeNr) {
+        if (partition != null && partitionRefGenomeNr == refGenomeNr && partitionNrOfGenomes == chromosomes.size())
+            return parallelUpdate;
+
+        List<ChromosomeCursor> cursors = new ArrayList<>();
+        int totalGenes = 0;
+        for (int k=0; k<chromosomes.size(); k++) {
+            if (k==refGenomeNr)
+                continue;
+            for (ChromosomeCursor chr : chromosomes.get(k)) {
+                cursors.add(chr);
+                totalGenes += chr.getChromosome().getEffectiveGeneNumber();
+            }
+        }
+        Collections.sort(cursors, new Comparator<ChromosomeCursor>() {
+            @Override
+            public int compare(ChromosomeCursor o1, ChromosomeCursor o2) {
+                return Integer.compare(o2.getChromosome().getEffectiveGeneNumber(), o1.getChromosome().getEffectiveGeneNumber());
+            }
+        });
+
+        List<List<ChromosomeCursor>> parts = new ArrayList<>(workers.size());
+        int[] genesPerPart = new int[workers.size()];
+        for (int i=0; i<workers.size(); i++)
+            parts.add(new ArrayList<ChromosomeCursor>());
+        for (ChromosomeCursor chr : cursors) {
+            int min = 0;
+            for (int i=1; i<genesPerPart.length; i++)
+                if (genesPerPart[i] < genesPerPart[min])
+                    min = i;
+            parts.get(min).add(chr);
+            genesPerPart[min] += chr.getChromosome().getEffectiveGeneNumber();
+        }
+
+        partition = new ChromosomeCursor[workers.size()][];
+        for (int i=0; i<partition.length; i++)
+            partition[i] = parts.get(i).toArray(new ChromosomeCursor[parts.get(i).size()]);
+        partitionRefGenomeNr = refGenomeNr;
+        partitionNrOfGenomes = chromosomes.size();
+        parallelUpdate = totalGenes >= minGenesForParallelUpdate;
+        return parallelUpdate;
+    }
+
+    /**
+     * Updates the chromosomes of the current partition, each member of the worker group its own part.
+     * The job is reused for all left borders.
+     */
+    private class UpdateJob implements WorkerGroup.Job {
+        private boolean compute;
+        private int c_old;
+
+        @Override
+        public void run(int member) {
+            for (ChromosomeCursor chr : partition[member])
+                updateChromosome(chr, compute, c_old);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.unijena.bioinf.gecko3.algo;
+
+import java.util.Arrays;
+
+/**
+ * IntStorage backed by an int array on the heap.
+ */
+class HeapIntStorage extends IntStorage {
+    private final int[] values;
+
+    /**
+     * Uses the array as storage, the array is not copied.
+     * @param values the array.
+     */
+    HeapIntStorage(int[] values) {
+        this.values = values;
+    }
+
+    @Override
+    int get(int index) {
+        return values[index];
+    }
+
+    @Override
+    void set(int index, int value) {
+        values[index] = value;
+    }
+
+    @Override
+    int size() {
+        return values.length;
+    }
+
+    @Override
+    void fill(int value) {
+        Arrays.fill(values, value);
+    }
+
+    @Override
+    void copyWithin(int srcPos, int destPos, int length) {
+        System.arraycopy(values, srcPos, values, destPos, length);
+    }
+
+    @Override
+    void put(int[] src, int srcPos, int destPos, int length) {
+        System.arraycopy(src, srcPos, values, destPos, length);
+    }
+
+    @Override
+    int[] toArray() {
+        return Arrays.copyOf(values, values.length);
+    }
+}
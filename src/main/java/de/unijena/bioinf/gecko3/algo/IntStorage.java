@@ -0,0 +1,95 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.unijena.bioinf.gecko3.algo;
+
+/**
+ * IntStorage is a fixed size array of int values, that can be held on the heap or outside of it.
+ * All working arrays of the algorithm that grow with the number of genes use this class,
+ * so the same algorithm code runs on heap arrays, direct buffers or a memory mapped scratch file.
+ */
+abstract class IntStorage {
+    /**
+     * Returns the value at the index.
+     * @param index the index.
+     * @return the value.
+     */
+    abstract int get(int index);
+
+    /**
+     * Sets the value at the index.
+     * @param index the index.
+     * @param value the new value.
+     */
+    abstract void set(int index, int value);
+
+    /**
+     * Returns the number of values.
+     * @return the number of values.
+     */
+    abstract int size();
+
+    /**
+     * Sets all values to value.
+     * @param value the new value.
+     */
+    void fill(int value) {
+        for (int i=0; i<size(); i++)
+            set(i, value);
+    }
+
+    /**
+     * Copies length values from srcPos to destPos, both ranges may overlap, like {@link System#arraycopy}.
+     * @param srcPos the first index of the source range.
+     * @param destPos the first index of the destination range.
+     * @param length the number of values.
+     */
+    void copyWithin(int srcPos, int destPos, int length) {
+        if (srcPos < destPos) {
+            for (int i=length-1; i>=0; i--)
+                set(destPos + i, get(srcPos + i));
+        } else {
+            for (int i=0; i<length; i++)
+                set(destPos + i, get(srcPos + i));
+        }
+    }
+
+    /**
+     * Copies length values from the array src, starting at srcPos, to destPos.
+     * @param src the source array.
+     * @param srcPos the first index in the source array.
+     * @param destPos the first index in the storage.
+     * @param length the number of values.
+     */
+    void put(int[] src, int srcPos, int destPos, int length) {
+        for (int i=0; i<length; i++)
+            set(destPos + i, src[srcPos + i]);
+    }
+
+    /**
+     * Returns a copy of all values as array.
+     * @return the values.
+     */
+    int[] toArray() {
+        int[] values = new int[size()];
+        for (int i=0; i<values.length; i++)
+            values[i] = get(i);
+        return values;
+    }
+}
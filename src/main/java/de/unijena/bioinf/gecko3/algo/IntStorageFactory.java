@@ -0,0 +1,158 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.unijena.bioinf.gecko3.algo;
+
+import de.unijena.bioinf.gecko3.algo.util.IntArray;
+import de.unijena.bioinf.gecko3.datastructures.Parameter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * IntStorageFactory allocates the {@link IntStorage} of one computation, depending on the {@link Parameter.StorageMode}.
+ * In mapped mode all storages are consecutive regions of one scratch file, that is deleted by {@link #close()}.
+ * The regions are not reused, the file grows with every allocation until the computation is finished.
+ */
+class IntStorageFactory {
+    /**
+     * Allocates all storages on the heap.
+     */
+    static final IntStorageFactory HEAP = new IntStorageFactory(Parameter.StorageMode.heap, null);
+
+    /**
+     * The maximum number of values of one storage in direct or mapped mode, a buffer holds at most 2 GB.
+     */
+    static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE / 4;
+
+    private final Parameter.StorageMode mode;
+    private final File scratchDirectory;
+
+    private File scratchFile;
+    private RandomAccessFile scratchAccess;
+    private long scratchPosition;
+
+    /**
+     * Constructs a factory for the storage mode.
+     * @param mode the storage mode.
+     * @param scratchDirectory the directory of the scratch file in mapped mode, or null for the default temporary directory.
+     */
+    IntStorageFactory(Parameter.StorageMode mode, File scratchDirectory) {
+        this.mode = mode;
+        this.scratchDirectory = scratchDirectory;
+    }
+
+    /**
+     * Allocates a storage of size values, all set to initialValue.
+     * @param size the number of values.
+     * @param initialValue the initial value.
+     * @return the new storage.
+     * @throws IllegalArgumentException if size exceeds {@link #MAX_BUFFER_SIZE} in direct or mapped mode.
+     */
+    IntStorage allocate(int size, int initialValue) {
+        if (mode != Parameter.StorageMode.heap && size > MAX_BUFFER_SIZE)
+            throw new IllegalArgumentException(String.format("Storage of %d values exceeds the maximum of %d values for storage mode \"%s\", use heap storage!", size, MAX_BUFFER_SIZE, mode));
+        switch (mode) {
+            case heap:
+                return new HeapIntStorage(IntArray.newIntArray(size, initialValue));
+            case direct:
+                IntStorage direct = new BufferIntStorage(ByteBuffer.allocateDirect(4 * size).order(ByteOrder.nativeOrder()).asIntBuffer());
+                if (initialValue != 0)
+                    direct.fill(initialValue);
+                return direct;
+            case mapped:
+                IntStorage mapped = new BufferIntStorage(map(size));
+                if (initialValue != 0)
+                    mapped.fill(initialValue);
+                return mapped;
+            default:
+                throw new RuntimeException("Unknown storage mode " + mode);
+        }
+    }
+
+    /**
+     * Allocates a storage that contains a copy of the array.
+     * @param values the array.
+     * @return the new storage.
+     */
+    IntStorage copyOf(int[] values) {
+        if (mode == Parameter.StorageMode.heap)
+            return new HeapIntStorage(values.clone());
+        IntStorage storage = allocate(values.length, 0);
+        storage.put(values, 0, 0, values.length);
+        return storage;
+    }
+
+    /**
+     * Allocates a storage with the values of the array, that must not be changed afterwards.
+     * In heap mode the array is used as storage without copying it.
+     * @param values the array.
+     * @return the new storage.
+     */
+    IntStorage take(int[] values) {
+        if (mode == Parameter.StorageMode.heap)
+            return new HeapIntStorage(values);
+        return copyOf(values);
+    }
+
+    /**
+     * Maps the next region of the scratch file. Regions of a new file are zero.
+     */
+    private synchronized IntBuffer map(int size) {
+        try {
+            if (scratchAccess == null) {
+                scratchFile = File.createTempFile("gecko", ".scratch", scratchDirectory);
+                scratchFile.deleteOnExit();
+                scratchAccess = new RandomAccessFile(scratchFile, "rw");
+            }
+            long bytes = 4L * size;
+            ByteBuffer buffer = scratchAccess.getChannel().map(FileChannel.MapMode.READ_WRITE, scratchPosition, bytes);
+            scratchPosition += bytes;
+            return buffer.order(ByteOrder.nativeOrder()).asIntBuffer();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not map scratch file!", e);
+        }
+    }
+
+    /**
+     * Closes and deletes the scratch file. Storages that are still referenced stay valid,
+     * the memory is released when they are garbage collected.
+     */
+    synchronized void close() {
+        if (scratchAccess == null)
+            return;
+        try {
+            scratchAccess.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not close scratch file!", e);
+        } finally {
+            if (!scratchFile.delete())
+                scratchFile.deleteOnExit();
+            scratchAccess = null;
+            scratchFile = null;
+            scratchPosition = 0;
+        }
+    }
+}
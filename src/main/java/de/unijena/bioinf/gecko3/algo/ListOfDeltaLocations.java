@@ -19,164 +19,448 @@
 
 package de.unijena.bioinf.gecko3.algo;
 
-import java.io.Serializable;
-import java.util.Comparator;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.NoSuchElementException;
 
+/**
+ * ListOfDeltaLocations stores the delta locations of one genome during the extension of a pattern.
+ * The values of the delta locations are stored in parallel arrays, ordered by chromosome, left and right border,
+ * so no objects are created during the search. Each interval is contained at most once.
+ * {@link DeltaLocation} objects are only created when the list is iterated, i.e. for a new {@link ReferenceCluster}.
+ */
 public class ListOfDeltaLocations implements Iterable<DeltaLocation>{
-	private Set<DeltaLocation> deltaLocations;
+	private static final int[] EMPTY = new int[0];
+	private static final boolean[] EMPTY_VALID = new boolean[0];
+
+	private int size;
+	private int[] genomeNr;
+	private int[] chrNr;
+	private int[] l;
+	private int[] r;
+	private int[] distance;
+	private int[] missingChars;
+	private int[] additionalChars;
+	private int[] charSetSize;
+	private int[] hitCount;
+	private boolean[] valid;
 	
 	ListOfDeltaLocations(){
-		deltaLocations = new TreeSet<>(new DeltaLocationOrderComparator());
+		size = 0;
+		genomeNr = chrNr = l = r = distance = missingChars = additionalChars = charSetSize = hitCount = EMPTY;
+		valid = EMPTY_VALID;
 	}
 
 	public void emptyList(){
-		deltaLocations.clear();
+		size = 0;
 	}
 
 	public void removeNonInheritableElements(GenomeList genomes, int c, int delta) {
-		int chrNr = -1;
-		int[] pos = null;
-		Iterator<DeltaLocation> dLocIt = deltaLocations.iterator();
-
-        while(dLocIt.hasNext()) {
-            DeltaLocation dLoc = dLocIt.next();
-            if (dLoc.getChrNr() != chrNr) {
-                chrNr = dLoc.getChrNr();
-                pos = genomes.get(dLoc.getGenomeNr()).get(chrNr).getPOS(c);
-            }
+		int chr = -1;
+		Chromosome chromosome = null;
+		int p = 0;
+		int posEnd = 0;
+		int newSize = 0;
 
-            if (pos == null)
-                continue;
-
-            int i=0;
-            for (; i<pos.length; i++) {
-                if (dLoc.getL() <= pos[i])
-                    break;
+        // the delta locations of one chromosome are sorted by l, so the first occurrence of c at or right of l
+        // only moves to the right
+        for (int i=0; i<size; i++) {
+            if (chrNr[i] != chr) {
+                chr = chrNr[i];
+                chromosome = genomes.get(genomeNr[i]).get(chr);
+                p = chromosome.getPOSOffset(c);
+                posEnd = p + chromosome.getPOSLength(c);
             }
 
-            if (i<pos.length && dLoc.getR() >= pos[i])
-                dLoc.increaseHitCount();
-            else {
-                dLoc.increaseDistance(Math.max(1, -c));
+            p = chromosome.getPOSLowerBound(p, posEnd, l[i]);
+
+            if (p<posEnd && r[i] >= chromosome.getPosition(p)) {
+                hitCount[i]++;
+                distance[i]--;
+                additionalChars[i]--;
+            } else {
+                distance[i] += Math.max(1, -c);
+                missingChars[i] += Math.max(1, -c);
 
-                if (!dLoc.isInheritableWithoutC(genomes.get(dLoc.getGenomeNr()).get(dLoc.getChrNr()), delta, c)){
-                    dLocIt.remove();
-                }
+                if (!isInheritableWithoutC(i, genomes.get(genomeNr[i]).get(chrNr[i]), delta, c))
+                    continue;
             }
+            if (newSize != i)
+                copy(this, i, this, newSize);
+            newSize++;
         }
-	}		
+        size = newSize;
+	}
 
+	private boolean isInheritableWithoutC(int i, Chromosome chromosome, int delta, int c) {
+		if (distance[i] > delta)
+			return false;
+		if (c < 0)
+			return true;
+		if (chromosome.getGene(l[i]-1) == c)
+			return false;
+		if (chromosome.getGene(r[i]+1) == c)
+			return false;
+		return true;
+	}
 
 	public void insertDeltaLocation(DeltaLocation deltaLocation) {
-		deltaLocations.add(deltaLocation);
+		insertDeltaLocation(deltaLocation.getGenomeNr(), deltaLocation.getChrNr(), deltaLocation.getL(), deltaLocation.getR(),
+				deltaLocation.getDistance(), deltaLocation.getMissingChars(), deltaLocation.getAdditionalChars(),
+				deltaLocation.size(), deltaLocation.getHitCount(), deltaLocation.isDeltaTableValid());
+	}
+
+	/**
+	 * Inserts the reference occurrence [l, r] of a pattern, with distance 0.
+	 */
+	public void insertReferenceLocation(int referenceGenomeNr, int referenceChromosomeNr, int l, int r, int patternSize) {
+		insertDeltaLocation(referenceGenomeNr, referenceChromosomeNr, l, r, 0, 0, 0, patternSize, patternSize, true);
+	}
+
+	/**
+	 * Inserts a delta location at its position in the order of the list.
+	 * If the list already contains a delta location with the same interval, the list is not changed.
+	 */
+	public void insertDeltaLocation(int genomeNr, int chrNr, int l, int r,
+			int distance, int missingChars, int additionalChars, int size, int hitCount, boolean valid) {
+		int index;
+		if (this.size == 0 || compare(this, this.size-1, chrNr, l, r) < 0)
+			index = this.size;
+		else {
+			index = search(chrNr, l, r);
+			if (index >= 0)
+				return;
+			index = -(index + 1);
+		}
+		ensureCapacity(this.size + 1);
+		if (index < this.size)
+			move(index, index + 1, this.size - index);
+		set(index, genomeNr, chrNr, l, r, distance, missingChars, additionalChars, size, hitCount, valid);
+		this.size++;
+	}
+
+	/**
+	 * Binary search for the interval.
+	 * @return the index of the interval, or (-(insertion point) - 1) if the list does not contain it.
+	 */
+	private int search(int chr, int left, int right) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = compare(this, mid, chr, left, right);
+			if (cmp < 0)
+				low = mid + 1;
+			else if (cmp > 0)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -(low + 1);
 	}
 
+	/**
+	 * Merges the new delta locations into the list. If both lists contain the same interval, the new delta location is kept.
+	 * The merged list uses the arrays of newList, newList gets the old arrays and is empty afterwards.
+	 * @param newList the new delta locations
+	 */
 	public void mergeLists(ListOfDeltaLocations newList) {
-		if (deltaLocations.isEmpty()) {
-			deltaLocations = newList.deltaLocations;
+		int newSize = newList.size;
+		if (newSize != 0 && size != 0) {
+			// merge from the back into the arrays of newList, new delta locations first on equal intervals
+			newList.ensureCapacity(newSize + size);
+			int i = newSize - 1;
+			int j = size - 1;
+			int w = newSize + size - 1;
+			while (j >= 0) {
+				int cmp = (i >= 0) ? compare(newList, i, chrNr[j], l[j], r[j]) : -1;
+				if (cmp >= 0) {
+					if (cmp == 0)
+						j--;
+					copy(newList, i--, newList, w--);
+				} else
+					copy(this, j--, newList, w--);
+			}
+			// the remaining new delta locations, are already in place if no interval was contained in both lists
+			int start = w - i;
+			if (start > 0) {
+				newList.move(0, start, i + 1);
+				newList.move(start, 0, newSize + size - start);
+			}
+			newSize = newSize + size - start;
+		} else if (newSize == 0) {
 			return;
 		}
-		newList.deltaLocations.addAll(deltaLocations);
-		deltaLocations = newList.deltaLocations;
+		swapArrays(newList);
+		newList.size = 0;
+		size = newSize;
 	}
 
 	public boolean minHitsCovered() {
-		for (DeltaLocation dLoc : deltaLocations){
-			if (dLoc.isValid())
+		for (int i=0; i<size; i++){
+			if (isValid(i))
 				return true;
 		}
 		return false;
 	}
 
+	/**
+	 * Iterates over copies of the delta locations.
+	 */
 	@Override
 	public Iterator<DeltaLocation> iterator() {
-		return deltaLocations.iterator();
+		return new Iterator<DeltaLocation>() {
+			private int index = 0;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			public DeltaLocation next() {
+				if (index >= size)
+					throw new NoSuchElementException();
+				DeltaLocation dLoc = get(index);
+				index++;
+				return dLoc;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Creates a new DeltaLocation with the values of the delta location at the index.
+	 * @param i the index.
+	 * @return the new DeltaLocation.
+	 */
+	DeltaLocation get(int i) {
+		return new DeltaLocation(genomeNr[i], chrNr[i], l[i], r[i], distance[i], missingChars[i], additionalChars[i], charSetSize[i], hitCount[i], valid[i]);
 	}
 	
 	public int size() {
-		return deltaLocations.size();
+		return size;
+	}
+
+	int getGenomeNr(int i) {
+		return genomeNr[i];
+	}
+
+	int getChrNr(int i) {
+		return chrNr[i];
+	}
+
+	int getL(int i) {
+		return l[i];
+	}
+
+	int getR(int i) {
+		return r[i];
+	}
+
+	int getDistance(int i) {
+		return distance[i];
+	}
+
+	boolean isValid(int i) {
+		return valid[i] && hitCount[i] >= DeltaLocation.MIN_HIT_COUNT;
 	}
 
 	public boolean valid_dLocContainsCharacter(int c, GenomeList genomes) {
         if (c < 0)
             return false;
-		for (DeltaLocation dLoc : deltaLocations){
-			if (dLoc.isValid()){
-				for (int l=dLoc.getL(); l<=dLoc.getR(); l++)
-					if (c == genomes.get(dLoc.getGenomeNr()).get(dLoc.getChrNr()).getGene(l))
-						return true;
+		int chr = -1;
+		Chromosome chromosome = null;
+		int p = 0;
+		int posEnd = 0;
+		for (int i=0; i<size; i++){
+			if (isValid(i)){
+				if (chrNr[i] != chr) {
+					chr = chrNr[i];
+					chromosome = genomes.get(genomeNr[i]).get(chr);
+					p = chromosome.getPOSOffset(c);
+					posEnd = p + chromosome.getPOSLength(c);
+				}
+				p = chromosome.getPOSLowerBound(p, posEnd, l[i]);
+				if (p < posEnd && chromosome.getPosition(p) <= r[i])
+					return true;
 			}
 		}
 		return false;
 	}
 	
+	/**
+	 * Returns a copy of the list, that contains all valid delta locations that are not nested in another
+	 * valid delta location with smaller or equal distance.
+	 * The list is sorted by chromosome and left border, so the delta locations are tested in one sweep, keeping for each
+	 * distance d the rightmost right border of all delta locations with smaller left border and distance <= d.
+	 * Delta locations with the same left border are tested in descending order of the right border.
+	 * @return the copy.
+	 */
 	public ListOfDeltaLocations getOptimalCopy() {
-		ListOfDeltaLocations newList = new ListOfDeltaLocations();
- 		for (DeltaLocation dLoc : deltaLocations)
-			if (dLoc.isValid()) {
-				boolean validLoc = true;
-				Iterator<DeltaLocation> newLocIter = newList.iterator();
-				while(newLocIter.hasNext()){
-					DeltaLocation newLoc = newLocIter.next();
-					if (dLoc.getDistance() >= newLoc.getDistance() && dLoc.isNested(newLoc)) {
-						validLoc = false;
-						break;
-					} 
-					if (newLoc.getDistance() >= dLoc.getDistance() && newLoc.isNested(dLoc)) {
-						newLocIter.remove();
-					}
+		int minDist = Integer.MAX_VALUE;
+		int maxDist = Integer.MIN_VALUE;
+		for (int i=0; i<size; i++)
+			if (isValid(i)) {
+				minDist = Math.min(minDist, distance[i]);
+				maxDist = Math.max(maxDist, distance[i]);
+			}
+
+		int[] selected = new int[size];
+		int n = 0;
+		if (minDist <= maxDist) {
+			// maxRight[d - minDist] is the rightmost right border of the valid delta locations left of the current one with distance <= d
+			int[] maxRight = new int[maxDist - minDist + 1];
+			int chr = -1;
+			int blockStart = 0;
+			while (blockStart < size) {
+				if (chrNr[blockStart] != chr) {
+					chr = chrNr[blockStart];
+					Arrays.fill(maxRight, -1);
 				}
-				if (validLoc)
-					newList.deltaLocations.add(dLoc);
+				int blockEnd = blockStart + 1;
+				while (blockEnd < size && chrNr[blockEnd] == chr && l[blockEnd] == l[blockStart])
+					blockEnd++;
+
+				// the delta locations with the same left border, from the largest to the smallest one
+				int minBlockDist = Integer.MAX_VALUE;
+				int blockSelected = n;
+				for (int i=blockEnd-1; i>=blockStart; i--)
+					if (isValid(i)) {
+						if (minBlockDist > distance[i] && maxRight[distance[i] - minDist] < r[i])
+							selected[n++] = i;
+						minBlockDist = Math.min(minBlockDist, distance[i]);
+					}
+				reverse(selected, blockSelected, n);
+
+				for (int i=blockStart; i<blockEnd; i++)
+					if (isValid(i))
+						for (int d=distance[i]-minDist; d<maxRight.length; d++)
+							maxRight[d] = Math.max(maxRight[d], r[i]);
+				blockStart = blockEnd;
 			}
+		}
+
+		// the selected delta locations are still ordered
+		ListOfDeltaLocations newList = new ListOfDeltaLocations();
+		newList.ensureCapacity(n);
+		for (int j=0; j<n; j++)
+			copy(this, selected[j], newList, j);
+		newList.size = n;
 		return newList;
 	}
+
+	private static void reverse(int[] array, int from, int to) {
+		for (int i=from, j=to-1; i<j; i++, j--) {
+			int tmp = array[i];
+			array[i] = array[j];
+			array[j] = tmp;
+		}
+	}
 	
 	public void removeRefDLocReferenceHit(Pattern pattern, int chrNr) {
-		Iterator<DeltaLocation> dLocIt = deltaLocations.iterator();
-		while (dLocIt.hasNext()) {
-			DeltaLocation dLoc = dLocIt.next();
-			if (dLoc.getChrNr() == chrNr &&
-					dLoc.getL() <= pattern.getLeftBorder() &&
-					dLoc.getR() >= pattern.getRightBorder()) {
-				dLocIt.remove();
-			}
+		int newSize = 0;
+		for (int i=0; i<size; i++) {
+			if (this.chrNr[i] == chrNr &&
+					l[i] <= pattern.getLeftBorder() &&
+					r[i] >= pattern.getRightBorder())
+				continue;
+			if (newSize != i)
+				copy(this, i, this, newSize);
+			newSize++;
 		}
+		size = newSize;
 	}
 	
 	public void checkForValidDeltaTableLocations(AlgorithmParameters param,
 			int clusterSize) {
 		if (!param.useDeltaTable())
 			return;
-		for (DeltaLocation dLoc : deltaLocations) {
-			dLoc.checkForDeltaTableValidity(param, clusterSize);
+		for (int i=0; i<size; i++) {
+			valid[i] = missingChars[i] <= param.getDeltaDeletions(clusterSize) &&
+					additionalChars[i] <= param.getDeltaInsertions(clusterSize) &&
+					distance[i] <= param.getDeltaTotal(clusterSize);
 		}
-		
 	}
-	
+
 	/**
-	 * For delta locations that are not ordered by the natural order but only by appearance on the chromosome.
-	 * @author swinter
-	 *
+	 * Compares the delta location at index i of list with the interval, by chromosome, left and right border.
 	 */
-	private static class DeltaLocationOrderComparator implements Comparator<DeltaLocation>, Serializable {
-		@Override
-		public int compare(DeltaLocation o1, DeltaLocation o2) {
-            if (o1.getChrNr() < o2.getChrNr())
-                return -1;
-            if (o1.getChrNr() > o2.getChrNr())
-                return 1;
-			if (o1.getL() < o2.getL())
-				return -1;
-			if (o1.getL() == o2.getL() && o1.getR() < o2.getR())
-				return -1;
-			if (o1.getL() == o2.getL() && o1.getR() == o2.getR())
-				return 0;
-			return 1;
-		}
-		
+	private static int compare(ListOfDeltaLocations list, int i, int chr, int left, int right) {
+		if (list.chrNr[i] != chr)
+			return (list.chrNr[i] < chr) ? -1 : 1;
+		if (list.l[i] != left)
+			return (list.l[i] < left) ? -1 : 1;
+		if (list.r[i] != right)
+			return (list.r[i] < right) ? -1 : 1;
+		return 0;
+	}
+
+	private void set(int i, int genomeNr, int chrNr, int l, int r,
+			int distance, int missingChars, int additionalChars, int size, int hitCount, boolean valid) {
+		this.genomeNr[i] = genomeNr;
+		this.chrNr[i] = chrNr;
+		this.l[i] = l;
+		this.r[i] = r;
+		this.distance[i] = distance;
+		this.missingChars[i] = missingChars;
+		this.additionalChars[i] = additionalChars;
+		this.charSetSize[i] = size;
+		this.hitCount[i] = hitCount;
+		this.valid[i] = valid;
+	}
+
+	private static void copy(ListOfDeltaLocations from, int i, ListOfDeltaLocations to, int j) {
+		to.set(j, from.genomeNr[i], from.chrNr[i], from.l[i], from.r[i], from.distance[i], from.missingChars[i],
+				from.additionalChars[i], from.charSetSize[i], from.hitCount[i], from.valid[i]);
+	}
+
+	/**
+	 * Moves length delta locations from index srcPos to index destPos, the ranges may overlap.
+	 */
+	private void move(int srcPos, int destPos, int length) {
+		System.arraycopy(genomeNr, srcPos, genomeNr, destPos, length);
+		System.arraycopy(chrNr, srcPos, chrNr, destPos, length);
+		System.arraycopy(l, srcPos, l, destPos, length);
+		System.arraycopy(r, srcPos, r, destPos, length);
+		System.arraycopy(distance, srcPos, distance, destPos, length);
+		System.arraycopy(missingChars, srcPos, missingChars, destPos, length);
+		System.arraycopy(additionalChars, srcPos, additionalChars, destPos, length);
+		System.arraycopy(charSetSize, srcPos, charSetSize, destPos, length);
+		System.arraycopy(hitCount, srcPos, hitCount, destPos, length);
+		System.arraycopy(valid, srcPos, valid, destPos, length);
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity <= l.length)
+			return;
+		int newCapacity = Math.max(capacity, Math.max(8, 2 * l.length));
+		genomeNr = Arrays.copyOf(genomeNr, newCapacity);
+		chrNr = Arrays.copyOf(chrNr, newCapacity);
+		l = Arrays.copyOf(l, newCapacity);
+		r = Arrays.copyOf(r, newCapacity);
+		distance = Arrays.copyOf(distance, newCapacity);
+		missingChars = Arrays.copyOf(missingChars, newCapacity);
+		additionalChars = Arrays.copyOf(additionalChars, newCapacity);
+		charSetSize = Arrays.copyOf(charSetSize, newCapacity);
+		hitCount = Arrays.copyOf(hitCount, newCapacity);
+		valid = Arrays.copyOf(valid, newCapacity);
+	}
+
+	private void swapArrays(ListOfDeltaLocations other) {
+		int[] tmp = genomeNr; genomeNr = other.genomeNr; other.genomeNr = tmp;
+		tmp = chrNr; chrNr = other.chrNr; other.chrNr = tmp;
+		tmp = l; l = other.l; other.l = tmp;
+		tmp = r; r = other.r; other.r = tmp;
+		tmp = distance; distance = other.distance; other.distance = tmp;
+		tmp = missingChars; missingChars = other.missingChars; other.missingChars = tmp;
+		tmp = additionalChars; additionalChars = other.additionalChars; other.additionalChars = tmp;
+		tmp = charSetSize; charSetSize = other.charSetSize; other.charSetSize = tmp;
+		tmp = hitCount; hitCount = other.hitCount; other.hitCount = tmp;
+		boolean[] tmpValid = valid; valid = other.valid; other.valid = tmpValid;
 	}
 }
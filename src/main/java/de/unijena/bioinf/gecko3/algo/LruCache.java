@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.unijena.bioinf.gecko3.algo;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A map of bounded size, that removes the least recently used entry when it is full.
+ * All methods are synchronized, so the cache can be shared by several threads. The values are
+ * computed outside of the cache, so two threads might compute the same value.
+ */
+class LruCache<K, V> {
+    private final Map<K, V> map;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity the maximum number of entries.
+     */
+    LruCache(final int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity of the cache has to be >= 1!");
+        this.map = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            private static final long serialVersionUID = 3785520375297281539L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the value for the key and counts a hit, or returns null and counts a miss.
+     * @param key the key.
+     * @return the value, or null if the key is not in the cache.
+     */
+    synchronized V get(K key) {
+        V value = map.get(key);
+        if (value == null)
+            misses++;
+        else
+            hits++;
+        return value;
+    }
+
+    synchronized void put(K key, V value) {
+        map.put(key, value);
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+}
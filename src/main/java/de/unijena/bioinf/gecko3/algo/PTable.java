@@ -19,31 +19,29 @@
 
 package de.unijena.bioinf.gecko3.algo;
 
-import cern.jet.random.Binomial;
-import cern.jet.random.engine.RandomEngine;
-
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
+/**
+ * Table of the probabilities that a number of generated characters contains a number of different characters.
+ * The table is extended on demand, extensions are synchronized and published as a new table, so one table can be
+ * read by several threads without locking.
+ */
 class PTable {
-	private int numberOfChars;
+	private final int numberOfChars;
 	private final int maxDifferentCharsGenerated;
 	private final double[] probabilityForDifferentCharHits;
-	private final List<List<double[]>> table;
-	private int maxPossiblePositionsCalculated;
-	private final RandomEngine random;
+	private volatile double[][][] table;   // [char][numberGeneratedChars][differentCharsGenerated]
 
 	public PTable(double[] probabilityForDifferentCharHits,
                   int initialNumberGeneratedChars,
-                  int maxDifferentGeneratedChars,
-                  RandomEngine random) {
-		this.random = random;
+                  int maxDifferentGeneratedChars) {
 		this.maxDifferentCharsGenerated = maxDifferentGeneratedChars;
 		
-		numberOfChars = 0;
+		int numberOfChars = 0;
 		for (int c=1; c<probabilityForDifferentCharHits.length; c++)
 			if (probabilityForDifferentCharHits[c] != 0.0)
 				numberOfChars++;
+		this.numberOfChars = numberOfChars;
 		
 		//sparse char probabilities
 		this.probabilityForDifferentCharHits = new double[numberOfChars+1];
@@ -55,57 +53,68 @@ class PTable {
 				offset++;
 		}
 		
-		table = new ArrayList<>(numberOfChars+1);
+		double[][][] initialTable = new double[numberOfChars+1][1][];
 		for (int i=0; i<=numberOfChars; i++){
-			table.add(new ArrayList<double[]>());
-			table.get(i).add(new double[this.maxDifferentCharsGenerated + 1]);
-			table.get(i).get(0)[0] = 1.0;
+			initialTable[i][0] = new double[this.maxDifferentCharsGenerated + 1];
+			initialTable[i][0][0] = 1.0;
 		}
-		maxPossiblePositionsCalculated = 0;
+		table = initialTable;
 		
 		getValue(initialNumberGeneratedChars, this.maxDifferentCharsGenerated);
 	}
 
 	double getValue(int numberGeneratedChars,
                     int differentCharsGenerated) {
-		if (maxPossiblePositionsCalculated < numberGeneratedChars){		
-			updatePTable(numberGeneratedChars, differentCharsGenerated);
+		double[][][] currentTable = table;
+		if (currentTable[0].length <= numberGeneratedChars){
+			currentTable = updatePTable(numberGeneratedChars, differentCharsGenerated);
 		}
-		return table.get(numberOfChars).get(numberGeneratedChars)[differentCharsGenerated];
+		return currentTable[numberOfChars][numberGeneratedChars][differentCharsGenerated];
 	}
 	
-	private void updatePTable(int numberGeneratedChars,
+	private synchronized double[][][] updatePTable(int numberGeneratedChars,
             int differentCharsGenerated) {
+		double[][][] oldTable = table;
+		int maxPossiblePositionsCalculated = oldTable[0].length - 1;
+		if (maxPossiblePositionsCalculated >= numberGeneratedChars)
+			return oldTable;
 		
+		double[][][] newTable = new double[numberOfChars+1][][];
 		for (int i=0; i<=numberOfChars; i++){
+			newTable[i] = Arrays.copyOf(oldTable[i], numberGeneratedChars + 1);
 			for (int j=maxPossiblePositionsCalculated+1; j <= numberGeneratedChars; j++){
-				table.get(i).add(new double[maxDifferentCharsGenerated + 1]); 
+				newTable[i][j] = new double[maxDifferentCharsGenerated + 1];
 			}
 		}
 		
 		for (int c=1; c<=numberOfChars; c++){
+			double[][] binomialPdfs = new double[numberGeneratedChars + 1][];   // the pdf for each l, shared by all h
 			for (int h=Math.min(c, differentCharsGenerated); h>=1; h--){
 				for (int l=numberGeneratedChars; l>= h && l>=maxPossiblePositionsCalculated+1; l--){
-					Binomial binomial = null;
-					if (!(probabilityForDifferentCharHits[c] == 1.0 || probabilityForDifferentCharHits[c] == 0.0))
-						binomial = new Binomial(l, probabilityForDifferentCharHits[c], random);
+					double[] binomial = null;
+					if (!(probabilityForDifferentCharHits[c] == 1.0 || probabilityForDifferentCharHits[c] == 0.0)) {
+						if (binomialPdfs[l] == null)
+							binomialPdfs[l] = BinomialPdf.pdf(l, probabilityForDifferentCharHits[c]);
+						binomial = binomialPdfs[l];
+					}
 					if (probabilityForDifferentCharHits[c] == 0.0)
-						table.get(c).get(l)[h] += table.get(c-1).get(l)[h];
+						newTable[c][l][h] += newTable[c-1][l][h];
 					else {
 						if (probabilityForDifferentCharHits[c] != 1.0)
-							table.get(c).get(l)[h] = binomial.pdf(0) * table.get(c-1).get(l)[h];
+							newTable[c][l][h] = binomial[0] * newTable[c-1][l][h];
 						else 								
-							table.get(c).get(l)[h] = 0.0;
+							newTable[c][l][h] = 0.0;
 						for (int k=1; k<=l; k++){
 							if (probabilityForDifferentCharHits[c] != 1.0)
-								table.get(c).get(l)[h] += binomial.pdf(k) * table.get(c-1).get(l-k)[h-1];
+								newTable[c][l][h] += binomial[k] * newTable[c-1][l-k][h-1];
 							else
-								table.get(c).get(l)[h] += table.get(c-1).get(l-k)[h-1];
+								newTable[c][l][h] += newTable[c-1][l-k][h-1];
 						}	
 					}
 				}
 			}
 		}
-		maxPossiblePositionsCalculated = numberGeneratedChars;
+		table = newTable;
+		return newTable;
 	}
 }
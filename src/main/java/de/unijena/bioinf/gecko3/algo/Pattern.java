@@ -19,44 +19,54 @@
 
 package de.unijena.bioinf.gecko3.algo;
 
-import de.unijena.bioinf.gecko3.algo.util.IntArray;
-
 import java.util.Arrays;
 
 /**
  * The Pattern class implements a data structure to store the information about a pattern.
+ * A pattern is reused for all left borders of a search, {@link #reset(int, Chromosome, int)} starts a new pattern.
  * @author Sascha Winter (sascha.winter@uni-jena.de)
  */
 class Pattern {
-    private final int refGenomeNr;                                // number of the reference genome
-    private final Chromosome refChr;                              // the reference chromosome
-    private final int l;                                          // left boarder of the reference interval
+    private int refGenomeNr;                                // number of the reference genome
+    private Chromosome refChr;                              // the reference chromosome
+    private int l;                                          // left boarder of the reference interval
     private int r;                                          // right boarder of the reference interval
     private int lastChar;                                   // last added character
     private int pSize;                                      // the number of characters in the pattern
     private final boolean[] occ;                           // occurrence array of the pattern
-    private final int[] minDist;                       // minimal distance between the pattern and each sequence
-    private final int[] maxRemDist;                    // maximum distance left for occurrences in each sequence
-    
+
     /**
      * Generates the data structure to store information about a pattern.
+     * The pattern has to be started with {@link #reset(int, Chromosome, int)}.
      * @param alphabetSize the size of the alphabet.
-     * @param K the number of genomes in the data set.
-     * @param param the parameters the algorithm is started with.
+     */
+    public Pattern(int alphabetSize) {
+        this.refChr = null;
+        this.r = -1;
+        this.occ = new boolean[alphabetSize+1];
+    }
+
+    /**
+     * Starts a new empty pattern at left border l. Only clears the occurrences of the characters
+     * of the previous pattern, so the cost does not depend on the size of the alphabet.
      * @param refGenomeNr the number of the genome the pattern is located on.
      * @param refChr the chromosome the pattern is located on.
      * @param l the left border of the pattern.
      */
-    public Pattern(int alphabetSize, int K, AlgorithmParameters param, int refGenomeNr, Chromosome refChr, int l) {
+    public void reset(int refGenomeNr, Chromosome refChr, int l) {
+        if (this.refChr != null) {
+            for (int i=this.l; i<=this.r; i++) {
+                int c = this.refChr.getGene(i);
+                if (c >= 0)
+                    occ[c] = false;
+            }
+        }
         this.refGenomeNr = refGenomeNr;
         this.refChr = refChr;
         this.l = l;
         this.r = -1;
         this.lastChar = 0;
         this.pSize = 0;
-        this.occ = new boolean[alphabetSize+1];
-        this.minDist = new int[K];
-        this.maxRemDist = IntArray.newIntArray(K, param.getMaximumDelta());
     }
 
     /**
@@ -118,9 +128,6 @@ class Pattern {
         }
         else
             pSize-=c;
-        IntArray.increaseAll(minDist);
-        minDist[refGenomeNr]--;
-        IntArray.reset(maxRemDist, -1);
     }
 
     /**
@@ -143,37 +150,59 @@ class Pattern {
         return true;
     }
     
-    public ListOfDeltaLocations computeNewOptimalDeltaLocations(Genome genome, AlgorithmParameters param) {
-    	ListOfDeltaLocations newList = new ListOfDeltaLocations();
+    /**
+     * Computes all new delta locations in the genome, that contain the last added character.
+     * @param genome the genome.
+     * @param chromosomes the cursors of all chromosomes of the genome.
+     * @param param the parameters the algorithm is started with.
+     * @param newList the list the new delta locations are stored in, is emptied first.
+     * @return the list of the new delta locations.
+     */
+    public ListOfDeltaLocations computeNewOptimalDeltaLocations(Genome genome, ChromosomeCursor[] chromosomes, AlgorithmParameters param, ListOfDeltaLocations newList) {
+    	newList.emptyList();
 
 		if (lastChar<0)
 			return newList;
 		
-    	for (Chromosome chr : genome){
-    		int[] pos = chr.getPOS(lastChar);
-    		if (pos.length == 0)
-    			continue;
+    	// only the chromosomes that contain the character
+    	int chrEnd = genome.getCHROffset(lastChar) + genome.getCHRLength(lastChar);
+    	for (int o=genome.getCHROffset(lastChar); o<chrEnd; o++){
+    		ChromosomeCursor cursor = chromosomes[genome.getCHR(o)];
+    		Chromosome chr = cursor.getChromosome();
+    		int posEnd = chr.getPOSOffset(lastChar) + chr.getPOSLength(lastChar);
     		
     		int prev_p=0;
-            for (int charPos : pos) {
+            for (int p=chr.getPOSOffset(lastChar); p<posEnd; p++) {
+                int charPos = chr.getPosition(p);
                 for (int dLeft = param.getMaximumDelta() + 1; dLeft >= 1; dLeft--) {
-                    if (chr.getL(charPos, dLeft) < prev_p)
+                    if (cursor.getL(charPos, dLeft) < prev_p)
                         continue;
 
-                    while (dLeft > 1 && chr.getL(charPos, dLeft) == chr.getL(charPos, dLeft - 1))
+                    while (dLeft > 1 && cursor.getL(charPos, dLeft) == cursor.getL(charPos, dLeft - 1))
                         dLeft--;
 
                     int interveningChars = dLeft - 1;
+
+                    // NUM of [L[dLeft]+1, numRight], extended while dRight grows
+                    int numRight = cursor.getL(charPos, dLeft);
+                    int charSetSize = 0;
+
+                    // set hashes of [L[dLeft]+1, hashRight] and [L'[dLeft], essentialHashRight], extended while dRight grows
+                    int left_essential = cursor.getL_prime(charPos, dLeft);
+                    int hashRight = cursor.getL(charPos, dLeft);
+                    long hash = 0L;
+                    int essentialHashRight = left_essential - 1;
+                    long essentialHash = 0L;
                     
                     for (int dRight = 1; dRight <= param.getMaximumDelta() + 1; dRight++) {
-                        int leftBorder = chr.getL(charPos, dLeft);
-                        int rightBorder = chr.getR(charPos, dRight);
+                        int leftBorder = cursor.getL(charPos, dLeft);
+                        int rightBorder = cursor.getR(charPos, dRight);
 
                         if (dRight > 1)  // Check if new unmarked char R[dRight-1] is already contained in the interval
-                            if (chr.getPrevOCC(chr.getR(charPos, dRight - 1)) < Math.max(1, leftBorder))
+                            if (chr.getPrevOCC(cursor.getR(charPos, dRight - 1)) < Math.max(1, leftBorder))
                             	interveningChars++;
 
-                        if (dRight > 1 && chr.getR(charPos, dRight) == chr.getR(charPos, dRight - 1))  // either right end of genome, could break
+                        if (dRight > 1 && cursor.getR(charPos, dRight) == cursor.getR(charPos, dRight - 1))  // either right end of genome, could break
                             continue;  // or merged non occ gene (-x : x>1), so interveningChars++ and continue
 
                         // test total distance
@@ -188,12 +217,25 @@ class Pattern {
                             continue;
 
                         // test compactness
-                        int left_essential = chr.getL_prime(charPos, dLeft);
-                        int right_essential = chr.getR_prime(charPos, dRight);
+                        int right_essential = cursor.getR_prime(charPos, dRight);
+                        if (leftBorder < left_essential && right_essential < rightBorder) {
+                            // nested intervals can only have identical content, if the set hashes are equal
+                            hash += chr.getAdditionalSetHash(leftBorder + 1, hashRight + 1, rightBorder - 1);
+                            hashRight = rightBorder - 1;
+                            if (right_essential < essentialHashRight) {
+                                essentialHashRight = left_essential - 1;
+                                essentialHash = 0L;
+                            }
+                            essentialHash += chr.getAdditionalSetHash(left_essential, essentialHashRight + 1, right_essential);
+                            essentialHashRight = right_essential;
+                            if (hash != essentialHash)
+                                continue;
+                        }
                         if (!chr.intervalContentIdentical(leftBorder+1, rightBorder-1, left_essential, right_essential))
                             continue;
 
-                        int charSetSize = chr.getNUM(leftBorder + 1, rightBorder - 1);
+                        charSetSize += chr.getAdditionalNUM(leftBorder + 1, numRight + 1, rightBorder - 1);
+                        numRight = rightBorder - 1;
                         int missingChars =  pSize - charSetSize + interveningChars;
                         int dist = missingChars + interveningChars;
 
@@ -202,8 +244,7 @@ class Pattern {
                         if (dist <= param.getMaximumDelta() && interveningChars <= param.getMaximumInsertions() && missingChars <= param.getMaximumDeletions()) {
                             assert (rightBorder - 1 <= chr.getEffectiveGeneNumber());
 
-                            DeltaLocation newDeltaLoc = new DeltaLocation(genome.getNr(), chr.getNr(), leftBorder + 1, rightBorder - 1, dist, missingChars, interveningChars, charSetSize, charSetSize - interveningChars, !param.useDeltaTable());
-                            newList.insertDeltaLocation(newDeltaLoc);
+                            newList.insertDeltaLocation(genome.getNr(), chr.getNr(), leftBorder + 1, rightBorder - 1, dist, missingChars, interveningChars, charSetSize, charSetSize - interveningChars, !param.useDeltaTable());
                         }
                     }
                 }
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.unijena.bioinf.gecko3.algo;
+
+/**
+ * PositionIndex lists for each character the positions it occurs at, in compressed sparse row format.
+ * The positions of all characters are stored in one array, grouped by character and sorted within each group.
+ * A second array holds the offset of the first position of each character, so an index needs two arrays
+ * regardless of the size of the alphabet. Both arrays are built by counting sort.
+ *
+ * The positions of a character c are get(offset(c)), ..., get(offset(c) + length(c) - 1).
+ */
+class PositionIndex {
+    private final IntStorage offsets;
+    private final IntStorage positions;
+
+    private PositionIndex(IntStorage offsets, IntStorage positions) {
+        this.offsets = offsets;
+        this.positions = positions;
+    }
+
+    /**
+     * Builds the index of the positions of the genes in [from, to]. Negative genes are not indexed.
+     * @param alphabetSize the size of the complete alphabet.
+     * @param genes the genes.
+     * @param from the first position.
+     * @param to the last position.
+     * @param storage the factory for the storages of the index.
+     * @return the new index.
+     */
+    static PositionIndex ofPositions(int alphabetSize, int[] genes, int from, int to, IntStorageFactory storage) {
+        return build(alphabetSize, genes, null, from, to, storage);
+    }
+
+    /**
+     * Builds the index that maps each character keys[i] to values[i], for all i in [0, size).
+     * Negative keys are not indexed. The values of each character keep their order.
+     * @param alphabetSize the size of the complete alphabet.
+     * @param keys the characters.
+     * @param values the values of the characters.
+     * @param size the number of keys.
+     * @param storage the factory for the storages of the index.
+     * @return the new index.
+     */
+    static PositionIndex ofValues(int alphabetSize, int[] keys, int[] values, int size, IntStorageFactory storage) {
+        return build(alphabetSize, keys, values, 0, size - 1, storage);
+    }
+
+    private static PositionIndex build(int alphabetSize, int[] keys, int[] values, int from, int to, IntStorageFactory storage) {
+        // count the occurrences and sum them up, offsets[c] is the end of the positions of c
+        int[] offsets = new int[alphabetSize + 2];
+        for (int i=from; i<=to; i++)
+            if (keys[i] >= 0)
+                offsets[keys[i]]++;
+        for (int c=1; c<=alphabetSize; c++)
+            offsets[c] += offsets[c-1];
+        offsets[alphabetSize + 1] = offsets[alphabetSize];
+
+        // fill backwards, so offsets[c] is moved to the start of the positions of c
+        int[] positions = new int[offsets[alphabetSize + 1]];
+        for (int i=to; i>=from; i--)
+            if (keys[i] >= 0)
+                positions[--offsets[keys[i]]] = (values == null) ? i : values[i];
+
+        return new PositionIndex(storage.take(offsets), storage.take(positions));
+    }
+
+    /**
+     * Returns the offset of the first position of the character c.
+     * @param c the character.
+     * @return the offset, 0 for negative characters.
+     */
+    int offset(int c) {
+        return (c < 0) ? 0 : offsets.get(c);
+    }
+
+    /**
+     * Returns the number of positions of the character c.
+     * @param c the character.
+     * @return the number of positions, 0 for negative characters.
+     */
+    int length(int c) {
+        return (c < 0) ? 0 : offsets.get(c + 1) - offsets.get(c);
+    }
+
+    /**
+     * Returns the position at the offset.
+     * @param offset the offset, between offset(c) and offset(c) + length(c) - 1 for the positions of c.
+     * @return the position.
+     */
+    int get(int offset) {
+        return positions.get(offset);
+    }
+
+    /**
+     * Binary search for the first offset in [from, to), whose position is at least value.
+     * The positions in [from, to) have to be sorted, e.g. a part of the positions of one character.
+     * @param from the first offset.
+     * @param to the end of the offsets (exclusive).
+     * @param value the position searched for.
+     * @return the first offset with get(offset) >= value, to if there is none.
+     */
+    int lowerBound(int from, int to, int value) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (positions.get(mid) < value)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+}
@@ -41,8 +41,8 @@ class Rank{
      */
     public Rank(int alphabetSize) {
         rank = new int[alphabetSize+1];
-        DEFAULT_RANK = alphabetSize;
-        MAX_RANK = alphabetSize + 1;
+        DEFAULT_RANK = alphabetSize + 1;    // higher than the rank of any character, even if a chromosome contains the whole alphabet
+        MAX_RANK = alphabetSize + 2;
     }
 
     /**
@@ -59,11 +59,21 @@ class Rank{
      * @param chr the chromosome.
      */
     void computeRank(Chromosome chr){
+        computeRank(chr, 1);
+    }
+
+    /**
+     * Computes the rank table based on chr[leftBorder, |chr|].
+     * Gives the same table as the incremental updates from position 1 to leftBorder.
+     * @param chr the chromosome.
+     * @param leftBorder the start position of the interval on the chromosome.
+     */
+    void computeRank(Chromosome chr, int leftBorder){
         IntArray.reset(rank, DEFAULT_RANK);                                 // initialise rank table with the default value
         rank[0] = MAX_RANK;                                                 // the terminal characters have character 0 and the highest rank
 
         int r=1;
-        for (int i=1; i<=chr.getEffectiveGeneNumber(); i++) {               // all characters in the chromosome
+        for (int i=leftBorder; i<=chr.getEffectiveGeneNumber(); i++) {      // all characters in the chromosome, starting at leftBorder
             if (chr.getGene(i)>=0){
             	if (rank[chr.getGene(i)]==DEFAULT_RANK) {                   // who are not already set to a rank
             		rank[chr.getGene(i)] = r++;                             // get ranked by their first occurrence in the chromosome
@@ -23,6 +23,20 @@ import java.math.BigDecimal;
 import java.util.*;
 
 public class ReferenceCluster {
+	// up to this number of pairs of delta locations, two lists are compared pairwise
+	private static final int MAX_PAIRS_FOR_SCAN = 64;
+
+	private static final Comparator<DeltaLocation> POSITION_ORDER = new Comparator<DeltaLocation>() {
+		@Override
+		public int compare(DeltaLocation o1, DeltaLocation o2) {
+			if (o1.getChrNr() != o2.getChrNr())
+				return Integer.compare(o1.getChrNr(), o2.getChrNr());
+			if (o1.getL() != o2.getL())
+				return Integer.compare(o1.getL(), o2.getL());
+			return Integer.compare(o1.getR(), o2.getR());
+		}
+	};
+
 	private int genomeNr;
 	private int chrNr;
 	private int leftBorder;
@@ -30,13 +44,14 @@ public class ReferenceCluster {
 	private final int size;
 	private int coveredGenomes;
 	private int coveredGenomeGroups;
-	private final int maxDistance;
+	private int maxDistance;
 	private final List<List<DeltaLocation>> dLocLists;
 	private BigDecimal bestCombined_pValue;
 	private BigDecimal bestCombined_pValueCorrected;
 	private List<Integer> geneContent;
     private boolean containsSingletonGene;
 	private final boolean searchRefInRef;
+	private DeltaLocation[][] positionOrder;		// the delta locations of each list sorted by position, computed on demand
 
     public ReferenceCluster(Pattern refPattern, List<ListOfDeltaLocations> dLocLists, boolean searchRefInRef, int nrOfGenomeGroups, Map<Integer, Integer> genomeGroupMapping){
 		genomeNr = refPattern.getRefGenomeNr();
@@ -47,29 +62,88 @@ public class ReferenceCluster {
 		this.searchRefInRef = searchRefInRef;
 		
 		this.dLocLists = new ArrayList<>(dLocLists.size());
-		int coverCount = 0;
-		int maxD = -1;
-		
-		boolean[] coveredGenomeGroups = new boolean[nrOfGenomeGroups];
-		int[] minGenomeGroupDistance = new int[nrOfGenomeGroups];
-		Arrays.fill(minGenomeGroupDistance, Integer.MAX_VALUE);
+		int[] genomeMinDistances = new int[dLocLists.size()];
 		
 		// We now need a list, that is sorted by the ordering of DeltaLocation
 		for (int i=0; i<dLocLists.size(); i++){
 			ListOfDeltaLocations dLocList = dLocLists.get(i);
             Set<DeltaLocation> set = new TreeSet<>();
             for (DeltaLocation dLoc : dLocList)
-                set.add(new DeltaLocation(dLoc));
+                set.add(dLoc);
             this.dLocLists.add(new ArrayList<>(set));
             
             int genomeMinDistance = Integer.MAX_VALUE;
-            for (DeltaLocation dLoc : dLocList)
-                if (dLoc.getDistance() < genomeMinDistance)
-                    genomeMinDistance = dLoc.getDistance();
+            for (int j=0; j<dLocList.size(); j++)
+                if (dLocList.getDistance(j) < genomeMinDistance)
+                    genomeMinDistance = dLocList.getDistance(j);
+            genomeMinDistances[i] = genomeMinDistance;
+        }
+		setCoverage(genomeMinDistances, nrOfGenomeGroups, genomeGroupMapping);
+	}
+
+	/**
+	 * Rebuilds a reference cluster from the delta locations of a finished computation, so the statistics can be
+	 * computed again without searching the cluster. The order of the delta locations is kept. The reference genome
+	 * must not have been searched for additional occurrences, those hits are not stored.
+	 * @param genomes the genomes
+	 * @param refOcc the reference occurrence, a delta location with distance 0, the gene content is read from it
+	 * @param dLocLists the delta locations of each genome
+	 * @param nrOfGenomeGroups the number of genome groups
+	 * @param genomeGroupMapping maps each genome to its group, null if no genome grouping is used
+	 */
+	ReferenceCluster(GenomeList genomes, DeltaLocation refOcc, List<List<DeltaLocation>> dLocLists, int nrOfGenomeGroups, Map<Integer, Integer> genomeGroupMapping) {
+		genomeNr = refOcc.getGenomeNr();
+		chrNr = refOcc.getChrNr();
+		leftBorder = refOcc.getL();
+		rightBorder = refOcc.getR();
+		this.searchRefInRef = false;
+
+		geneContent = new ArrayList<>();
+		containsSingletonGene = false;
+		Chromosome chromosome = genomes.get(genomeNr).get(chrNr);
+		Set<Integer> genes = new HashSet<>();
+		for (int i=leftBorder; i<=rightBorder; i++){
+			int gene = chromosome.getGene(i);
+			if (gene < 0) {
+				containsSingletonGene = true;
+				for (int g=0; g<-gene; g++)
+					geneContent.add(-1);
+			}
+			else if (genes.add(gene))
+				geneContent.add(gene);
+		}
+		size = geneContent.size();
+
+		this.dLocLists = new ArrayList<>(dLocLists.size());
+		int[] genomeMinDistances = new int[dLocLists.size()];
+		for (int i=0; i<dLocLists.size(); i++){
+			this.dLocLists.add(new ArrayList<>(dLocLists.get(i)));
+			genomeMinDistances[i] = Integer.MAX_VALUE;
+			for (DeltaLocation dLoc : dLocLists.get(i))
+				if (dLoc.getDistance() < genomeMinDistances[i])
+					genomeMinDistances[i] = dLoc.getDistance();
+		}
+		setCoverage(genomeMinDistances, nrOfGenomeGroups, genomeGroupMapping);
+	}
+
+	/**
+	 * Sets the number of covered genomes and genome groups and the maximum distance of the best occurrences.
+	 * @param genomeMinDistances the minimum distance of the delta locations in each genome, Integer.MAX_VALUE if none
+	 */
+	private void setCoverage(int[] genomeMinDistances, int nrOfGenomeGroups, Map<Integer, Integer> genomeGroupMapping) {
+		int coverCount = 0;
+		int maxD = -1;
+		
+		boolean[] coveredGenomeGroups = new boolean[nrOfGenomeGroups];
+		int[] minGenomeGroupDistance = new int[nrOfGenomeGroups];
+		Arrays.fill(minGenomeGroupDistance, Integer.MAX_VALUE);
+		
+		for (int i=0; i<genomeMinDistances.length; i++){
+            int genomeMinDistance = genomeMinDistances[i];
             if (genomeMinDistance != Integer.MAX_VALUE && genomeMinDistance > maxD)
             	maxD = genomeMinDistance;
             
-            if (dLocList.size() > 0){
+            if (genomeMinDistance != Integer.MAX_VALUE){
                 coverCount++;
                 if (genomeGroupMapping != null) {
                 	coveredGenomeGroups[genomeGroupMapping.get(i)] = true;
@@ -204,21 +278,34 @@ public class ReferenceCluster {
 
 	public boolean areAll_dLocsNested(ReferenceCluster otherCluster) {
 		for (int k=0; k<Math.min(dLocLists.size(), otherCluster.dLocLists.size()); k++)
-			if (!areAll_dLocsNested(dLocLists.get(k), otherCluster.dLocLists.get(k)))
+			if (!areAll_dLocsNested(k, otherCluster, k))
 				return false;
 		
 		if (dLocLists.size() > otherCluster.dLocLists.size())
-			if (!areAll_dLocsNested(dLocLists.get(dLocLists.size() - 1), otherCluster.dLocLists.get(otherCluster.getGenomeNr())))
+			if (!areAll_dLocsNested(dLocLists.size() - 1, otherCluster, otherCluster.getGenomeNr()))
 				return false;
 		
 		if (dLocLists.size() < otherCluster.dLocLists.size())
-			if (!areAll_dLocsNested(dLocLists.get(genomeNr), otherCluster.dLocLists.get(otherCluster.dLocLists.size() - 1)))
+			if (!areAll_dLocsNested(genomeNr, otherCluster, otherCluster.dLocLists.size() - 1))
 				return false;
 		
 		return true;
 	}
-	
-	private boolean areAll_dLocsNested(List<DeltaLocation> first, List<DeltaLocation> second){
+
+	/**
+	 * Checks if all delta locations of the list k are nested in a delta location of the list otherK of the other cluster.
+	 * Short lists are compared pairwise, long lists, e.g. of genomes with many paralogs, by a sweep over
+	 * the delta locations sorted by position.
+	 */
+	private boolean areAll_dLocsNested(int k, ReferenceCluster otherCluster, int otherK) {
+		List<DeltaLocation> first = dLocLists.get(k);
+		List<DeltaLocation> second = otherCluster.dLocLists.get(otherK);
+		if ((long)first.size() * second.size() <= MAX_PAIRS_FOR_SCAN)
+			return areAll_dLocsNested(first, second);
+		return areAll_dLocsNested(getPositionOrder(k), otherCluster.getPositionOrder(otherK));
+	}
+
+	static boolean areAll_dLocsNested(List<DeltaLocation> first, List<DeltaLocation> second){
 		for (DeltaLocation dLoc : first){
 			boolean nestedFound = false;
 			
@@ -236,6 +323,62 @@ public class ReferenceCluster {
 		return true;
 	}
 
+	/**
+	 * Checks if each delta location of first is nested in a delta location of second with smaller or equal distance.
+	 * Both arrays have to be sorted by position, see {@link #sortByPosition(List)}.
+	 * Sweeps over both arrays by chromosome and left border, keeping for each distance d the rightmost
+	 * right border of all delta locations of second with smaller or equal left border and distance <= d.
+	 */
+	static boolean areAll_dLocsNested(DeltaLocation[] first, DeltaLocation[] second) {
+		if (first.length == 0)
+			return true;
+		if (second.length == 0)
+			return false;
+		int minDist = Integer.MAX_VALUE;
+		int maxDist = Integer.MIN_VALUE;
+		for (DeltaLocation dLoc : second) {
+			minDist = Math.min(minDist, dLoc.getDistance());
+			maxDist = Math.max(maxDist, dLoc.getDistance());
+		}
+
+		int[] maxRight = new int[maxDist - minDist + 1];
+		int chr = -1;
+		int j = 0;
+		for (DeltaLocation dLoc : first) {
+			if (dLoc.getChrNr() != chr) {
+				chr = dLoc.getChrNr();
+				Arrays.fill(maxRight, -1);
+				while (j < second.length && second[j].getChrNr() < chr)
+					j++;
+			}
+			while (j < second.length && second[j].getChrNr() == chr && second[j].getL() <= dLoc.getL()) {
+				for (int d=second[j].getDistance()-minDist; d<maxRight.length; d++)
+					maxRight[d] = Math.max(maxRight[d], second[j].getR());
+				j++;
+			}
+			if (dLoc.getDistance() < minDist || maxRight[Math.min(dLoc.getDistance(), maxDist) - minDist] < dLoc.getR())
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the delta locations of the list k sorted by position, computed on the first call.
+	 */
+	private DeltaLocation[] getPositionOrder(int k) {
+		if (positionOrder == null)
+			positionOrder = new DeltaLocation[dLocLists.size()][];
+		if (positionOrder[k] == null)
+			positionOrder[k] = sortByPosition(dLocLists.get(k));
+		return positionOrder[k];
+	}
+
+	static DeltaLocation[] sortByPosition(List<DeltaLocation> dLocs) {
+		DeltaLocation[] sorted = dLocs.toArray(new DeltaLocation[dLocs.size()]);
+		Arrays.sort(sorted, POSITION_ORDER);
+		return sorted;
+	}
+
 	public void setGeneContent(GenomeList genomes) {
 		geneContent = new ArrayList<>(size);
         containsSingletonGene = false;
@@ -287,6 +430,7 @@ public class ReferenceCluster {
 		
 		dLocLists.get(genomeNr).addAll(refInRefList);
 		dLocLists.remove(dLocLists.size()-1);
+		positionOrder = null;
 		
 		int nrOfLocs = 0;
 		for (List<DeltaLocation> dLocList : dLocLists) {
@@ -308,6 +452,7 @@ public class ReferenceCluster {
     }
 
     public void correctMergedPositions(int[][][] runLengthMergedLookup, int[][][] intArray) {
+        positionOrder = null;
         if (runLengthMergedLookup != null) {
             int[] correctedPositions = getCorrectedPosition(
                     getLeftBorder(),
@@ -25,10 +25,17 @@ import de.unijena.bioinf.gecko3.algo.status.AlgorithmStatusEvent;
 import de.unijena.bioinf.gecko3.datastructures.DataSet;
 import de.unijena.bioinf.gecko3.datastructures.GeneCluster;
 import de.unijena.bioinf.gecko3.datastructures.Parameter;
+import de.unijena.bioinf.gecko3.datastructures.Subsequence;
 
 import java.math.BigDecimal;
 import java.util.*;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ReferenceClusterAlgorithm implements AlgorithmProgressProvider {
 	private final GenomeList genomes;
@@ -36,10 +43,50 @@ public class ReferenceClusterAlgorithm implements AlgorithmProgressProvider {
 	private final Map<Integer, Integer> genomeGroupMapping;
 	private final int nrOfGenomeGroups;
 	private final boolean useGenomeGrouping;
+	private GenomeListCursor cursor;
+	private WorkerGroup workers;
+	private final TargetGenomeJob targetGenomeJob;
+	private final IntStorageFactory storage;
+
+	// scratch structures of the search, reused for all left borders of this algorithm or worker
+	private Pattern pattern;
+	private int[] noOccCount;
+	private CoverageBound coverageBound;
+	private boolean[] minHitsCovered;
+	private boolean[] containedGenomeGroups;
+	private final List<ListOfDeltaLocations> oldLists = new ArrayList<>();
+	private final List<ListOfDeltaLocations> newLists = new ArrayList<>();
+
+	// the alignment of the reference chromosome to a chromosome of a genome with a smaller number,
+	// that matches the reference genes in [matchLeftBorder, matchedUpTo], see occursInPreviousGenome
+	private Chromosome matchReference;
+	private Chromosome matchChromosome;
+	private int matchShift;
+	private int matchLeftBorder;
+	private int matchedUpTo;
 
     private final List<AlgorithmProgressListener> progressListeners;
     private int maxProgressValue;
-    private int progressValue;
+    private final AtomicInteger progressValue;
+    private final AtomicBoolean cancelled;
+
+	/**
+	 * The number of left border ranges per thread, more ranges balance the load better,
+	 * but each range has to compute the matrices anew.
+	 */
+	private static final int RANGES_PER_THREAD = 4;
+
+	/**
+	 * The maximum number of positions in the genomes with smaller numbers, that are tested as start of an identical
+	 * copy of the reference genes for one left border.
+	 */
+	private static final int MAX_SKIP_CANDIDATES = 16;
+
+	/**
+	 * The minimum number of genomes, for which the delta locations of each pattern extension are computed in parallel.
+	 * Below, synchronizing the worker group costs more than the search in the genomes.
+	 */
+	static final int MIN_GENOMES_FOR_PARALLEL_SEARCH = 64;
 
     /**
      * Computes reference gene clusters for the given dataset and the given parameters
@@ -75,6 +122,139 @@ public class ReferenceClusterAlgorithm implements AlgorithmProgressProvider {
 
         return result;
     }
+
+    /**
+     * Recomputes only the statistics of the given reference gene clusters, e.g. of a loaded session or with changed
+     * parameters. The reference clusters are rebuilt from the occurrences of the gene clusters, the clusters are not
+     * searched again. The results are identical to the statistics of the computation of the clusters. Clusters that were
+     * computed searching the reference in the reference genome are not supported, the hits that overlapped the
+     * reference occurrence are not stored.
+     * @param data the genomes the clusters were computed on
+     * @param clusters the gene clusters
+     * @param params the parameters, the distance, the reference type and the number of threads are used
+     * @param useMemoryReduction if memory reduction was used for the computation of the clusters
+     * @param genomeGrouping each set contains the index of all genomes that contribute to quorum and p-value only once
+     * @param listener the progress listener
+     * @return the gene clusters with the new p-values, with the same ids and in the same order
+     * @throws IllegalArgumentException if the parameters search the reference in the reference genome
+     */
+    public static List<GeneCluster> recomputeStatistics(DataSet data, List<GeneCluster> clusters, Parameter params, boolean useMemoryReduction, List<Set<Integer>> genomeGrouping, AlgorithmProgressListener listener) {
+        if (params.searchRefInRef())
+            throw new IllegalArgumentException("Statistics can not be recomputed for clusters searched in the reference genome!");
+
+        int[][][] intArray;
+        if (!useMemoryReduction) {
+            intArray = data.toIntArray();
+            params.setAlphabetSize(data.getCompleteAlphabetSize());
+        } else {
+            intArray = data.toReducedIntArray();
+            params.setAlphabetSize(data.getReducedAlphabetSize());
+        }
+
+        GenomeList genomes = new GenomeList(intArray, params.getAlphabetSize());
+        AlgorithmParameters algoParameters = new AlgorithmParameters(params, params.getAlphabetSize(), genomes.size());
+        Map<Integer, Integer> genomeGroupMapping = createGenomeGroupMapping(genomeGrouping);
+        int nrOfGenomeGroups = (genomeGrouping == null) ? genomes.size() : genomeGrouping.size();
+
+        int[][][] reducedPositions = useMemoryReduction ? createReducedPositionLookup(intArray) : null;
+        List<ReferenceCluster> refClusterList = new ArrayList<>(clusters.size());
+        for (GeneCluster cluster : clusters)
+            refClusterList.add(rebuildReferenceCluster(cluster, genomes, reducedPositions, nrOfGenomeGroups, genomeGroupMapping));
+
+        long startTime = System.nanoTime();
+        Statistics.computeReferenceStatistics(genomes, refClusterList, algoParameters.getMaximumDelta(), algoParameters.useSingleReference(), nrOfGenomeGroups, genomeGroupMapping, algoParameters.getNrOfThreads(), Collections.singletonList(listener));
+        System.out.println(String.format("Statistics: %fs",(System.nanoTime() - startTime)/1.0E09));
+
+        List<GeneCluster> result = new ArrayList<>(refClusterList.size());
+        int[][][] runLengthMergedLookup = useMemoryReduction ? DataSet.createRunLengthMergedLookup(intArray) : null;
+        for (int i = 0; i < refClusterList.size(); i++) {
+            ReferenceCluster refCluster = refClusterList.get(i);
+            if (useMemoryReduction)
+                refCluster.correctMergedPositions(runLengthMergedLookup, intArray);
+            result.add(new GeneCluster(clusters.get(i).getId(), refCluster, data));
+        }
+        return result;
+    }
+
+    /**
+     * Rebuilds the reference cluster of a gene cluster from all its occurrences.
+     * @param reducedPositions maps the positions of the genes to the positions in the memory reduced genomes, null if
+     *                         memory reduction is not used
+     */
+    private static ReferenceCluster rebuildReferenceCluster(GeneCluster cluster, GenomeList genomes, int[][][] reducedPositions, int nrOfGenomeGroups, Map<Integer, Integer> genomeGroupMapping) {
+        if (cluster.getType() != Parameter.OperationMode.reference)
+            throw new IllegalArgumentException("Statistics can only be recomputed for reference gene clusters, got: " + cluster.getType());
+
+        Subsequence[][] subsequences = cluster.getOccurrences(true).getSubsequences();
+        if (subsequences.length != genomes.size())
+            throw new IllegalArgumentException(String.format("Gene cluster %d has occurrences in %d genomes, but the data set has %d genomes!", cluster.getId(), subsequences.length, genomes.size()));
+
+        List<List<DeltaLocation>> dLocLists = new ArrayList<>(subsequences.length);
+        DeltaLocation refOcc = null;
+        for (int k=0; k<subsequences.length; k++) {
+            List<DeltaLocation> dLocList = new ArrayList<>(subsequences[k].length);
+            for (Subsequence subseq : subsequences[k]) {
+                int l = subseq.getStart();
+                int r = subseq.getStop();
+                if (reducedPositions != null) {
+                    l = reducedPositions[k][subseq.getChromosome()][l];
+                    r = reducedPositions[k][subseq.getChromosome()][r];
+                }
+                DeltaLocation dLoc = new DeltaLocation(k, subseq.getChromosome(), l, r, subseq.getDist(), 0, 0, r - l + 1, 0, true);
+                if (refOcc == null && k == cluster.getRefSeqIndex() && dLoc.getDistance() == 0)
+                    refOcc = dLoc;
+                dLocList.add(dLoc);
+            }
+            dLocLists.add(dLocList);
+        }
+        if (refOcc == null)
+            throw new IllegalArgumentException(String.format("Gene cluster %d has no reference occurrence in genome %d!", cluster.getId(), cluster.getRefSeqIndex()));
+
+        return new ReferenceCluster(genomes, refOcc, dLocLists, nrOfGenomeGroups, genomeGroupMapping);
+    }
+
+    /**
+     * Creates the inverse of {@link DataSet#createRunLengthMergedLookup(int[][][])}, for each gene the position in
+     * the memory reduced genomes, where runs of unknown genes are merged into one position.
+     * @param reducedArray the memory reduced genomes
+     * @return the position in the memory reduced chromosome for each position in the chromosome
+     */
+    private static int[][][] createReducedPositionLookup(int[][][] reducedArray) {
+        int[][][] lookup = new int[reducedArray.length][][];
+        for (int i=0; i<reducedArray.length; i++) {
+            lookup[i] = new int[reducedArray[i].length][];
+            for (int j=0; j<reducedArray[i].length; j++) {
+                int[] chromosome = reducedArray[i][j];
+                int length = 0;
+                for (int gene : chromosome)
+                    length += (gene < -1) ? -gene : 1;
+                lookup[i][j] = new int[length];
+                int position = 0;
+                for (int m=0; m<chromosome.length; m++) {
+                    int width = (chromosome[m] < -1) ? -chromosome[m] : 1;
+                    Arrays.fill(lookup[i][j], position, position + width, m);
+                    position += width;
+                }
+            }
+        }
+        return lookup;
+    }
+
+    /**
+     * Maps each genome to the index of its group.
+     * @param genomeGrouping each set contains the index of all genomes of one group
+     * @return the mapping, null if no genome grouping is used
+     */
+    private static Map<Integer, Integer> createGenomeGroupMapping(List<Set<Integer>> genomeGrouping) {
+        if (genomeGrouping == null)
+            return null;
+        Map<Integer, Integer> genomeGroupMapping = new HashMap<>();
+        for (int groupId=0; groupId<genomeGrouping.size(); groupId++){
+            for (Integer genomeNr: genomeGrouping.get(groupId))
+                genomeGroupMapping.put(genomeNr, groupId);
+        }
+        return genomeGroupMapping;
+    }
 	
 	/**
 	 * Computes reference gene clusters for the given list of genomes and the given parameters
@@ -144,11 +324,7 @@ public class ReferenceClusterAlgorithm implements AlgorithmProgressProvider {
 		} else {
 			nrOfGenomeGroups = genomeGrouping.size();
 			useGenomeGrouping = nrOfGenomeGroups != genomes.size();
-			genomeGroupMapping = new HashMap<>();
-			for (int groupId=0; groupId<genomeGrouping.size(); groupId++){
-				for (Integer genomeNr: genomeGrouping.get(groupId))
-					genomeGroupMapping.put(genomeNr, groupId);
-			}
+			genomeGroupMapping = createGenomeGroupMapping(genomeGrouping);
 		}
 
         progressListeners = new ArrayList<>();
@@ -156,8 +332,34 @@ public class ReferenceClusterAlgorithm implements AlgorithmProgressProvider {
             for (Chromosome chr : genomes.get(i))
                 maxProgressValue += chr.getEffectiveGeneNumber();
         }
-        progressValue = 0;
+        progressValue = new AtomicInteger(0);
+        cancelled = new AtomicBoolean(false);
+        targetGenomeJob = new TargetGenomeJob();
+        storage = new IntStorageFactory(param.getStorageMode(), param.getScratchDirectory());
 	}
+
+    /**
+     * Constructor for a worker of a parallel computation. The worker uses its own genome list, cursor and parameters,
+     * everything else is shared with the parent.
+     * @param parent the algorithm that started the worker
+     * @param genomes the worker's copy of the genome list
+     * @param cursor the worker's cursor
+     * @param param the worker's copy of the parameters
+     */
+    private ReferenceClusterAlgorithm(ReferenceClusterAlgorithm parent, GenomeList genomes, GenomeListCursor cursor, AlgorithmParameters param) {
+        this.genomes = genomes;
+        this.cursor = cursor;
+        this.param = param;
+        this.genomeGroupMapping = parent.genomeGroupMapping;
+        this.nrOfGenomeGroups = parent.nrOfGenomeGroups;
+        this.useGenomeGrouping = parent.useGenomeGrouping;
+        this.progressListeners = parent.progressListeners;
+        this.maxProgressValue = parent.maxProgressValue;
+        this.progressValue = parent.progressValue;
+        this.cancelled = parent.cancelled;
+        this.targetGenomeJob = new TargetGenomeJob();
+        this.storage = parent.storage;
+    }
 	
 	private List<ReferenceCluster> computeRefClusters(){
 		System.out.println("Computing Gene Clusters!");
@@ -167,15 +369,35 @@ public class ReferenceClusterAlgorithm implements AlgorithmProgressProvider {
         if (param.getNrOfGenomes() != genomes.size())
             throw new RuntimeException("Number of genomes in param does not equal number of genomes!");
 		
-		genomes.initializeForCalculation(param.getMaximumDelta());
-		List<ReferenceCluster> refClusterList = new ArrayList<>();
+		genomes.initializeForCalculation(storage);
+		List<ReferenceCluster> refClusterList;
 		
-		int refGenomeCount = 1;
-		if (!param.useSingleReference())
-			refGenomeCount = genomes.size();
-        
-		for (int i=0; i<refGenomeCount; i++)
-			detectReferenceGeneClusterFromSingleGenome(i, refClusterList);
+		if (!param.useSingleReference() && param.getNrOfThreads() > 1 && genomes.size() > 1 && param.getParallelMode() == Parameter.ParallelMode.referenceGenomes)
+			refClusterList = detectReferenceGeneClustersInParallel();
+		else if (param.getNrOfThreads() > 1 && param.getParallelMode() == Parameter.ParallelMode.leftBorders)
+			refClusterList = detectReferenceGeneClustersInLeftBorderRanges();
+		else {
+			workers = (param.getNrOfThreads() > 1) ? new WorkerGroup(param.getNrOfThreads()) : null;
+			try {
+				cursor = new GenomeListCursor(genomes, param.getMaximumDelta(), workers, GenomeListCursor.MIN_GENES_FOR_PARALLEL_UPDATE, storage);
+				ReferenceClusterIndex refClusters = newReferenceClusterIndex();
+				int refGenomeCount = 1;
+				if (!param.useSingleReference())
+					refGenomeCount = genomes.size();
+
+				for (int i=0; i<refGenomeCount; i++) {
+					detectReferenceGeneClusterFromSingleGenome(i, refClusters);
+					if (param.searchRefInRef())
+						mergeAdditionalReferenceHits(refClusters);
+				}
+				refClusterList = refClusters.toList();
+			} finally {
+				if (workers != null)
+					workers.close();
+				workers = null;
+				cursor = null;
+			}
+		}
 		
 		long calcTime = System.nanoTime();
 		
@@ -186,10 +408,11 @@ public class ReferenceClusterAlgorithm implements AlgorithmProgressProvider {
         }
 
         genomes.removeCalculationFields();
+        storage.close();
 
         if (!param.noStatistics()) {
             System.out.println("Doing Statistics!");
-            Statistics.computeReferenceStatistics(genomes, refClusterList, param.getMaximumDelta(), param.useSingleReference(), nrOfGenomeGroups, genomeGroupMapping, progressListeners);
+            Statistics.computeReferenceStatistics(genomes, refClusterList, param.getMaximumDelta(), param.useSingleReference(), nrOfGenomeGroups, genomeGroupMapping, param.getNrOfThreads(), progressListeners);
         } else {
             System.out.println("Not computing statistics!");
         }
@@ -201,103 +424,328 @@ public class ReferenceClusterAlgorithm implements AlgorithmProgressProvider {
 		return refClusterList;
 	}
 	
-	private void detectReferenceGeneClusterFromSingleGenome(int referenceGenomeNr, List<ReferenceCluster> refClusterList){
+	/**
+	 * Runs the search for each reference genome as a separate fork-join task. All tasks share the genomes,
+	 * the calculation fields that change during the search (Rank, L, R, L', R') are held by a cursor that is
+	 * used by one task at a time. At most one cursor per thread is allocated.
+	 * The results of the tasks are merged in the order of the reference genomes, so the result is the same as
+	 * for the sequential computation.
+	 * @return the reference clusters
+	 */
+	private List<ReferenceCluster> detectReferenceGeneClustersInParallel() {
+		ForkJoinPool pool = new ForkJoinPool(param.getNrOfThreads());
+		ConcurrentLinkedQueue<GenomeListCursor> idleCursors = new ConcurrentLinkedQueue<>();
+		try {
+			List<ReferenceGenomeTask> tasks = new ArrayList<>(genomes.size());
+			for (int i=0; i<genomes.size(); i++) {
+				ReferenceGenomeTask task = new ReferenceGenomeTask(i, idleCursors);
+				pool.execute(task);
+				tasks.add(task);
+			}
+
+			ReferenceClusterIndex refClusters = newReferenceClusterIndex();
+			for (ReferenceGenomeTask task : tasks) {
+				for (ReferenceCluster cluster : task.get())
+					refClusters.insert(cluster);
+				if (param.searchRefInRef())
+					mergeAdditionalReferenceHits(refClusters);
+			}
+			return refClusters.toList();
+		} catch (InterruptedException e) {
+			cancelled.set(true);
+			Thread.currentThread().interrupt();
+			throw new CancellationException();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Splits each reference chromosome into ranges of left borders, that are searched as separate fork-join tasks.
+	 * Each task computes the rank table and the matrices at the start of its range and updates them afterwards,
+	 * so also a single reference genome with few large chromosomes can use all threads.
+	 * The results of the tasks are merged in the order of the ranges, so the result is the same as
+	 * for the sequential computation.
+	 * @return the reference clusters
+	 */
+	private List<ReferenceCluster> detectReferenceGeneClustersInLeftBorderRanges() {
+		ForkJoinPool pool = new ForkJoinPool(param.getNrOfThreads());
+		Queue<GenomeListCursor> idleCursors = new ConcurrentLinkedQueue<>();
+		try {
+			ReferenceClusterIndex refClusters = newReferenceClusterIndex();
+			int refGenomeCount = 1;
+			if (!param.useSingleReference())
+				refGenomeCount = genomes.size();
+
+			for (int i=0; i<refGenomeCount; i++) {
+				// the cursors hold the matrices of the reference copy, that changes with the reference genome
+				if (param.searchRefInRef())
+					idleCursors.clear();
+				detectReferenceGeneClusterFromSingleGenomeInLeftBorderRanges(pool, i, idleCursors, refClusters);
+				if (param.searchRefInRef())
+					mergeAdditionalReferenceHits(refClusters);
+			}
+			return refClusters.toList();
+		} catch (InterruptedException e) {
+			cancelled.set(true);
+			Thread.currentThread().interrupt();
+			throw new CancellationException();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private void detectReferenceGeneClusterFromSingleGenomeInLeftBorderRanges(ForkJoinPool pool, int referenceGenomeNr, Queue<GenomeListCursor> idleCursors, ReferenceClusterIndex refClusters) throws InterruptedException, ExecutionException {
 		if (param.searchRefInRef())
 			genomes.appendCopyOfReferenceGenome(referenceGenomeNr, param);
+
+		try {
+			// all tasks share one view of the genomes and the parameters, both are not changed during the search
+			GenomeList taskGenomes = new GenomeList(genomes);
+			AlgorithmParameters taskParam = new AlgorithmParameters(param);
+
+			int geneCount = 0;
+			for (Chromosome referenceChromosome : genomes.get(referenceGenomeNr))
+				geneCount += referenceChromosome.getEffectiveGeneNumber();
+			int rangeLength = Math.max(1, (geneCount + param.getNrOfThreads() * RANGES_PER_THREAD - 1) / (param.getNrOfThreads() * RANGES_PER_THREAD));
+
+			List<LeftBorderRangeTask> tasks = new ArrayList<>();
+			for (Chromosome referenceChromosome : genomes.get(referenceGenomeNr)) {
+				for (int from=1; from<=referenceChromosome.getEffectiveGeneNumber(); from+=rangeLength) {
+					int to = Math.min(from + rangeLength - 1, referenceChromosome.getEffectiveGeneNumber());
+					LeftBorderRangeTask task = new LeftBorderRangeTask(referenceGenomeNr, referenceChromosome, from, to, taskGenomes, taskParam, idleCursors);
+					pool.execute(task);
+					tasks.add(task);
+				}
+			}
+
+			for (LeftBorderRangeTask task : tasks) {
+				for (ReferenceCluster cluster : task.get())
+					refClusters.insert(cluster);
+			}
+		} finally {
+			if (param.searchRefInRef())
+				genomes.removeCopyOfReferenceGenome(param);
+		}
+	}
+
+	/**
+	 * Searches all reference clusters with left borders in the range [from, to] of one reference chromosome,
+	 * using an idle cursor or a new one.
+	 */
+	private class LeftBorderRangeTask extends RecursiveTask<List<ReferenceCluster>> {
+		private static final long serialVersionUID = -3360563375407315862L;
+
+		private final int referenceGenomeNr;
+		private final Chromosome referenceChromosome;
+		private final int from;
+		private final int to;
+		private final GenomeList taskGenomes;
+		private final AlgorithmParameters taskParam;
+		private final Queue<GenomeListCursor> idleCursors;
+
+		LeftBorderRangeTask(int referenceGenomeNr, Chromosome referenceChromosome, int from, int to, GenomeList taskGenomes, AlgorithmParameters taskParam, Queue<GenomeListCursor> idleCursors) {
+			this.referenceGenomeNr = referenceGenomeNr;
+			this.referenceChromosome = referenceChromosome;
+			this.from = from;
+			this.to = to;
+			this.taskGenomes = taskGenomes;
+			this.taskParam = taskParam;
+			this.idleCursors = idleCursors;
+		}
+
+		@Override
+		protected List<ReferenceCluster> compute() {
+			GenomeListCursor taskCursor = idleCursors.poll();
+			if (taskCursor == null)
+				taskCursor = new GenomeListCursor(taskGenomes, taskParam.getMaximumDelta(), null, GenomeListCursor.MIN_GENES_FOR_PARALLEL_UPDATE, storage);
+			ReferenceClusterAlgorithm worker = new ReferenceClusterAlgorithm(ReferenceClusterAlgorithm.this, taskGenomes, taskCursor, taskParam);
+
+			ReferenceClusterIndex refClusters = newReferenceClusterIndex();
+			worker.detectReferenceGeneClusterFromSingleChromosome(referenceGenomeNr, referenceChromosome, from, to, refClusters);
+			idleCursors.add(taskCursor);
+			return refClusters.toList();
+		}
+	}
+
+	/**
+	 * Searches all reference clusters with one reference genome, using an idle cursor or a new one.
+	 */
+	private class ReferenceGenomeTask extends RecursiveTask<List<ReferenceCluster>> {
+		private static final long serialVersionUID = 4624385215364235718L;
+
+		private final int referenceGenomeNr;
+		private final Queue<GenomeListCursor> idleCursors;
+
+		ReferenceGenomeTask(int referenceGenomeNr, Queue<GenomeListCursor> idleCursors) {
+			this.referenceGenomeNr = referenceGenomeNr;
+			this.idleCursors = idleCursors;
+		}
+
+		@Override
+		protected List<ReferenceCluster> compute() {
+			GenomeListCursor taskCursor = idleCursors.poll();
+			if (taskCursor == null)
+				taskCursor = new GenomeListCursor(genomes, param.getMaximumDelta(), null, GenomeListCursor.MIN_GENES_FOR_PARALLEL_UPDATE, storage);
+			ReferenceClusterAlgorithm worker = new ReferenceClusterAlgorithm(ReferenceClusterAlgorithm.this, new GenomeList(genomes), taskCursor, new AlgorithmParameters(param));
+
+			ReferenceClusterIndex refClusters = newReferenceClusterIndex();
+			worker.detectReferenceGeneClusterFromSingleGenome(referenceGenomeNr, refClusters);
+			idleCursors.add(taskCursor);
+			return refClusters.toList();
+		}
+	}
+	
+	private void detectReferenceGeneClusterFromSingleGenome(int referenceGenomeNr, ReferenceClusterIndex refClusters){
+		if (param.searchRefInRef()) {
+			genomes.appendCopyOfReferenceGenome(referenceGenomeNr, param);
+			cursor.appendGenome(genomes.get(genomes.size() - 1));
+		}
 		
 		for (Chromosome referenceChromosome : genomes.get(referenceGenomeNr)){
-			detectReferenceGeneClusterFromSingleChromosome(referenceGenomeNr, referenceChromosome, refClusterList);
+			detectReferenceGeneClusterFromSingleChromosome(referenceGenomeNr, referenceChromosome, refClusters);
 		}
 		
 		if (param.searchRefInRef()) {
-			Iterator<ReferenceCluster> refIt = refClusterList.iterator();
-			while (refIt.hasNext()) {
-				if (!refIt.next().mergeAdditionalReferenceHits(genomes.size()))
-					refIt.remove();
-			}
+			cursor.removeLastGenome();
 			genomes.removeCopyOfReferenceGenome(param);
 		}
 	}
+
+	/**
+	 * Merges the hits in the copy of the reference genome into the reference genome, for all clusters that
+	 * still contain the hits of the reference copy.
+	 * @param refClusters the reference clusters
+	 */
+	private void mergeAdditionalReferenceHits(ReferenceClusterIndex refClusters) {
+		refClusters.mergeAdditionalReferenceHits(genomes.size() + 1);
+	}
+
+	/**
+	 * The clusters are only indexed, if they are not changed by {@link #mergeAdditionalReferenceHits(ReferenceClusterIndex)}.
+	 * @return a new empty index for the reference clusters
+	 */
+	private ReferenceClusterIndex newReferenceClusterIndex() {
+		return new ReferenceClusterIndex(!param.searchRefInRef());
+	}
 	
 	private boolean useGenomeGrouping() {
 		return useGenomeGrouping;
 	}
 	
-	private void detectReferenceGeneClusterFromSingleChromosome(int referenceGenomeNr, Chromosome referenceChromosome, List<ReferenceCluster> refClusterList){
-		for (int l = 1; l <= referenceChromosome.getEffectiveGeneNumber(); l++){
-            fireProgressUpdateEvent(new AlgorithmStatusEvent(progressValue++, AlgorithmStatusEvent.Task.ComputingClusters));
-			genomes.updateLeftBorder(l, referenceChromosome, referenceGenomeNr);
-			Pattern pattern = new Pattern(genomes.getAlphabetSize(), genomes.size(), param, referenceGenomeNr, referenceChromosome, l);
+	private void detectReferenceGeneClusterFromSingleChromosome(int referenceGenomeNr, Chromosome referenceChromosome, ReferenceClusterIndex refClusters){
+		detectReferenceGeneClusterFromSingleChromosome(referenceGenomeNr, referenceChromosome, 1, referenceChromosome.getEffectiveGeneNumber(), refClusters);
+	}
+
+	/**
+	 * Searches all reference clusters with left border in [firstLeftBorder, lastLeftBorder] on the reference chromosome.
+	 * @param referenceGenomeNr the number of the reference genome
+	 * @param referenceChromosome the reference chromosome
+	 * @param firstLeftBorder the first left border, the cursor is set to this position anew
+	 * @param lastLeftBorder the last left border
+	 * @param refClusters the index the reference clusters are added to
+	 */
+	private void detectReferenceGeneClusterFromSingleChromosome(int referenceGenomeNr, Chromosome referenceChromosome, int firstLeftBorder, int lastLeftBorder, ReferenceClusterIndex refClusters){
+		for (int l = firstLeftBorder; l <= lastLeftBorder; l++){
+            fireProgressUpdateEvent(new AlgorithmStatusEvent(progressValue.getAndIncrement(), AlgorithmStatusEvent.Task.ComputingClusters));
+			if (l == firstLeftBorder)
+				cursor.setLeftBorder(l, referenceChromosome, referenceGenomeNr);
+			else
+				cursor.updateLeftBorder(l, referenceChromosome, referenceGenomeNr);
 			
 			// Gene does not occur in any other Genome and does not occur in chr[i,...]
-			if (referenceChromosome.getGene(l) < 0 || (referenceChromosome.getNextOCC(l) > referenceChromosome.getEffectiveGeneNumber() && genomes.zeroOccs(referenceGenomeNr, referenceChromosome.getNr(), l, param.searchRefInRef())))
+			if (referenceChromosome.getGene(l) < 0 || (referenceChromosome.getNextOCC(l) > referenceChromosome.getEffectiveGeneNumber() && genomes.zeroOccs(referenceGenomeNr, referenceChromosome.getNr(), l)))
+				continue;
+
+			// All patterns have a reference occurrence with distance 0 in a genome with smaller number
+			if (param.useLeftBorderSkipping() && !param.searchRefInRef() && occursInPreviousGenome(referenceGenomeNr, referenceChromosome, l))
 				continue;
 			
 			int r = l;
-			int[] noOccCount = new int[genomes.size()];
-			List<ListOfDeltaLocations> oldLists = new ArrayList<>(genomes.size());
-			for (int i=0; i<genomes.size(); i++)
-				oldLists.add(new ListOfDeltaLocations());
+			resetScratch(referenceGenomeNr, referenceChromosome, l);
+			// the number of genomes with noOccCount > delta, that can not cover the pattern
+			int uncoveredGenomes = 0;
 			
 			while(pattern.updateToNextI_ref(r)) {
 				r = pattern.getRightBorder();
 
+				// the pattern only grows, so no extension can be small enough
+				if (param.getMaxClusterSize() > 0 && pattern.getSize() > param.getMaxClusterSize())
+					break;
+
                 for (ListOfDeltaLocations dLocList : oldLists)
 					dLocList.removeNonInheritableElements(genomes, pattern.getLastChar(), param.getMaximumDelta());
 				
-				for (int i=0; i<genomes.size(); i++){
-					if (param.searchRefInRef() && i==genomes.size()-1){
-                        noOccCount[i] += genomes.get(i).noOccOutsideInterval(pattern.getLastChar(), l, r, referenceChromosome.getNr());
-					} else {
-                        noOccCount[i] += genomes.get(i).noOcc(pattern.getLastChar());
-					}
+				uncoveredGenomes += genomes.addNoOccs(pattern.getLastChar(), noOccCount, param.getMaximumDelta());
+				boolean refCopyUncovered = false;
+				if (param.searchRefInRef()) {
+					int i = genomes.size() - 1;
+					boolean covered = noOccCount[i] <= param.getMaximumDelta();
+					noOccCount[i] += genomes.get(i).noOccOutsideInterval(pattern.getLastChar(), l, r, referenceChromosome.getNr());
+					refCopyUncovered = noOccCount[i] > param.getMaximumDelta();
+					if (covered && refCopyUncovered)
+						uncoveredGenomes++;
+				}
+				if (coverageBound != null) {
+					// counts the missing characters per chromosome, so at least uncoveredGenomes
+					int boundedGenomes = coverageBound.add(pattern.getLastChar(), pattern.getSize(), param.getMaximumDelta());
+					if (refCopyUncovered)
+						boundedGenomes++;
+					if (boundedGenomes > param.getMaxUncoveredGenomes())
+						break;
 				}
 				
-				if (countNonOccs(noOccCount, param.getMaximumDelta()) > param.getMaxUncoveredGenomes())
+				if (uncoveredGenomes > param.getMaxUncoveredGenomes())
 					break;
 				
 				oldLists.get(referenceGenomeNr).emptyList();
-				DeltaLocation refdLoc = DeltaLocation.getReferenceLocation(referenceGenomeNr, referenceChromosome.getNr(), l, r, pattern.getSize());
-				oldLists.get(referenceGenomeNr).insertDeltaLocation(refdLoc);
+				oldLists.get(referenceGenomeNr).insertReferenceLocation(referenceGenomeNr, referenceChromosome.getNr(), l, r, pattern.getSize());
 				
+				if (workers != null && genomes.size() >= MIN_GENOMES_FOR_PARALLEL_SEARCH) {
+					targetGenomeJob.set(referenceGenomeNr, referenceChromosome, pattern, oldLists, minHitsCovered);
+					workers.run(targetGenomeJob);
+				} else {
+					for (int k=0; k<genomes.size(); k++)
+						minHitsCovered[k] = extendDeltaLocations(k, referenceGenomeNr, referenceChromosome, pattern, oldLists);
+				}
+
 				int minHitCoveredCount = 0;
-				boolean[] containedGenomeClusters = new boolean[nrOfGenomeGroups];
+				if (useGenomeGrouping())
+					Arrays.fill(containedGenomeGroups, false);
 				
 				for (int k=0; k<genomes.size(); k++){
-					if(k != referenceGenomeNr){
-                        ListOfDeltaLocations newList = pattern.computeNewOptimalDeltaLocations(genomes.get(k), param);
-						
-						if (param.searchRefInRef() && k == genomes.size()-1){
-							newList.removeRefDLocReferenceHit(pattern, referenceChromosome.getNr());
-						}
-						
-						oldLists.get(k).mergeLists(newList);
-						oldLists.get(k).checkForValidDeltaTableLocations(param, pattern.getSize());
-					}
-					if (oldLists.get(k).minHitsCovered()) {
+					if (minHitsCovered[k]) {
 						if (!useGenomeGrouping())
 							minHitCoveredCount++;
-						else if (!containedGenomeClusters[genomeGroupMapping.get(k)]){
+						else if (!containedGenomeGroups[genomeGroupMapping.get(k)]){
 							minHitCoveredCount++;
-							containedGenomeClusters[genomeGroupMapping.get(k)] = true;
+							containedGenomeGroups[genomeGroupMapping.get(k)] = true;
 						}
 					}
 				}
 				
 				if (pattern.getSize() >= param.getMinClusterSize() &&
 						minHitCoveredCount >= param.getMinCoveredGenomes() &&
-						refdLoc.isFirstRefOcc(oldLists) &&
-						occursInValid_dLocs(refdLoc.leftMostEssentialChar(referenceChromosome), oldLists, referenceGenomeNr) &&
-						occursInValid_dLocs(refdLoc.rightMostEssentialChar(referenceChromosome), oldLists, referenceGenomeNr)) {
+						DeltaLocation.isFirstRefOcc(referenceGenomeNr, referenceChromosome.getNr(), l, r, oldLists) &&
+						occursInValid_dLocs(DeltaLocation.leftMostEssentialChar(referenceChromosome, l, r), oldLists, referenceGenomeNr) &&
+						occursInValid_dLocs(DeltaLocation.rightMostEssentialChar(referenceChromosome, l, r), oldLists, referenceGenomeNr)) {
 					
 					List<ListOfDeltaLocations> listCopy = new ArrayList<>(genomes.size());
 					
 					for (int i=0; i<genomes.size(); i++)
 						listCopy.add((oldLists.get(i).getOptimalCopy()));
 					
-					if (refdLoc.isFirstRefOcc(listCopy)){
+					if (DeltaLocation.isFirstRefOcc(referenceGenomeNr, referenceChromosome.getNr(), l, r, listCopy)){
 						ReferenceCluster newCluster = new ReferenceCluster(pattern, listCopy, param.searchRefInRef(),  nrOfGenomeGroups, genomeGroupMapping);
-						check_and_insert_refCluster(refClusterList, newCluster);
+						refClusters.insert(newCluster);
 					}
 				}
 				r = pattern.getRightBorder()+1;
@@ -305,22 +753,160 @@ public class ReferenceClusterAlgorithm implements AlgorithmProgressProvider {
 		}
 	}
 	
-	private boolean check_and_insert_refCluster(
-			List<ReferenceCluster> refClusterList, ReferenceCluster newCluster) {
-		Iterator<ReferenceCluster> otherClusterIt = refClusterList.iterator();
-		while(otherClusterIt.hasNext()){
-			ReferenceCluster otherCluster = otherClusterIt.next();
-			if (newCluster.areAll_dLocsNested(otherCluster))
-				return false;
-			if (otherCluster.areAll_dLocsNested(newCluster)){
-				otherClusterIt.remove();
+	/**
+	 * Checks if the reference genes from l up to the last possible right border of a pattern with left border l
+	 * occur identically in a genome with a smaller number. Patterns with left border l end before the next occurrence
+	 * of the gene at l-1, as they are left maximal. So each of these patterns then has an occurrence with distance 0
+	 * in that genome and is not the first reference occurrence, see {@link DeltaLocation#isFirstRefOcc(int, int, int, int, List)}.
+	 * The alignment found for the previous left border is continued first, otherwise at most
+	 * {@link #MAX_SKIP_CANDIDATES} positions of the gene at l are tested.
+	 * @param referenceGenomeNr the number of the reference genome
+	 * @param referenceChromosome the reference chromosome
+	 * @param l the left border
+	 * @return true if the genes occur identically in a genome with a smaller number
+	 */
+	private boolean occursInPreviousGenome(int referenceGenomeNr, Chromosome referenceChromosome, int l) {
+		int end = Math.min(referenceChromosome.getEffectiveGeneNumber(), referenceChromosome.getNextOCC(l - 1) - 1);
+		if (matchReference == referenceChromosome && matchLeftBorder <= l && l <= matchedUpTo) {
+			matchLeftBorder = l;
+			if (matchedUpTo < end)
+				matchedUpTo = matchGenes(referenceChromosome, matchedUpTo + 1, end, matchChromosome, matchShift);
+			if (matchedUpTo >= end)
+				return true;
+		}
+		matchReference = null;
+
+		int c = referenceChromosome.getGene(l);
+		if (c <= 0)
+			return false;
+		int candidates = 0;
+		for (int k=0; k<referenceGenomeNr; k++) {
+			Genome genome = genomes.get(k);
+			int chrEnd = genome.getCHROffset(c) + genome.getCHRLength(c);
+			for (int o=genome.getCHROffset(c); o<chrEnd; o++) {
+				Chromosome chr = genome.get(genome.getCHR(o));
+				int posEnd = chr.getPOSOffset(c) + chr.getPOSLength(c);
+				for (int p=chr.getPOSOffset(c); p<posEnd; p++) {
+					if (candidates++ == MAX_SKIP_CANDIDATES)
+						return false;
+					int shift = chr.getPosition(p) - l;
+					int matched = matchGenes(referenceChromosome, l, end, chr, shift);
+					if (matchReference == null || matched > matchedUpTo) {
+						// keep the longest alignment, it is continued for the next left borders
+						matchReference = referenceChromosome;
+						matchChromosome = chr;
+						matchShift = shift;
+						matchLeftBorder = l;
+						matchedUpTo = matched;
+					}
+					if (matched >= end)
+						return true;
+				}
 			}
 		}
-		
-		refClusterList.add(newCluster);
-		return true;
+		return false;
+	}
+
+	/**
+	 * Compares the reference genes in [from, to] with the genes of the other chromosome shifted by shift.
+	 * Only positive genes match.
+	 * @return the last position of the reference chromosome up to which all genes match, from-1 if the first does not
+	 */
+	private static int matchGenes(Chromosome reference, int from, int to, Chromosome other, int shift) {
+		for (int i=from; i<=to; i++) {
+			int gene = reference.getGene(i);
+			if (gene <= 0 || i + shift > other.getEffectiveGeneNumber() || gene != other.getGene(i + shift))
+				return i - 1;
+		}
+		return to;
 	}
 
+	/**
+	 * Resets the scratch structures of the search for a new left border. The structures are only reallocated,
+	 * if the number of genomes changed, the pattern only clears the characters of the previous pattern.
+	 */
+	private void resetScratch(int referenceGenomeNr, Chromosome referenceChromosome, int l) {
+		if (pattern == null) {
+			pattern = new Pattern(genomes.getAlphabetSize());
+			containedGenomeGroups = new boolean[nrOfGenomeGroups];
+		}
+		pattern.reset(referenceGenomeNr, referenceChromosome, l);
+		if (param.useCoveragePruning()) {
+			if (coverageBound == null)
+				coverageBound = new CoverageBound(genomes);
+			coverageBound.reset();
+		}
+
+		int nrOfGenomes = genomes.size();
+		if (noOccCount == null || noOccCount.length != nrOfGenomes) {
+			noOccCount = new int[nrOfGenomes];
+			minHitsCovered = new boolean[nrOfGenomes];
+		} else {
+			Arrays.fill(noOccCount, 0);
+			Arrays.fill(minHitsCovered, false);
+		}
+		while (oldLists.size() > nrOfGenomes) {
+			oldLists.remove(oldLists.size() - 1);
+			newLists.remove(newLists.size() - 1);
+		}
+		while (oldLists.size() < nrOfGenomes) {
+			oldLists.add(new ListOfDeltaLocations());
+			newLists.add(new ListOfDeltaLocations());
+		}
+		for (ListOfDeltaLocations list : oldLists)
+			list.emptyList();
+	}
+
+	/**
+	 * Adds the new delta locations of the last pattern extension in genome k to the list of the genome.
+	 * Only changes the list of genome k, so the genomes can be processed in parallel.
+	 * @param k the number of the genome
+	 * @param referenceGenomeNr the number of the reference genome
+	 * @param referenceChromosome the reference chromosome
+	 * @param pattern the extended pattern
+	 * @param oldLists the delta locations of all genomes
+	 * @return true if the list of genome k contains a valid delta location, false otherwise
+	 */
+	private boolean extendDeltaLocations(int k, int referenceGenomeNr, Chromosome referenceChromosome, Pattern pattern, List<ListOfDeltaLocations> oldLists) {
+		if(k != referenceGenomeNr){
+			ListOfDeltaLocations newList = pattern.computeNewOptimalDeltaLocations(genomes.get(k), cursor.get(k), param, newLists.get(k));
+
+			if (param.searchRefInRef() && k == genomes.size()-1){
+				newList.removeRefDLocReferenceHit(pattern, referenceChromosome.getNr());
+			}
+
+			oldLists.get(k).mergeLists(newList);
+			oldLists.get(k).checkForValidDeltaTableLocations(param, pattern.getSize());
+		}
+		return oldLists.get(k).minHitsCovered();
+	}
+
+	/**
+	 * Extends the delta locations of all genomes on the worker group, each member every size-th genome.
+	 * The job is reused for all pattern extensions.
+	 */
+	private class TargetGenomeJob implements WorkerGroup.Job {
+		private int referenceGenomeNr;
+		private Chromosome referenceChromosome;
+		private Pattern pattern;
+		private List<ListOfDeltaLocations> oldLists;
+		private boolean[] minHitsCovered;
+
+		void set(int referenceGenomeNr, Chromosome referenceChromosome, Pattern pattern, List<ListOfDeltaLocations> oldLists, boolean[] minHitsCovered) {
+			this.referenceGenomeNr = referenceGenomeNr;
+			this.referenceChromosome = referenceChromosome;
+			this.pattern = pattern;
+			this.oldLists = oldLists;
+			this.minHitsCovered = minHitsCovered;
+		}
+
+		@Override
+		public void run(int member) {
+			for (int k=member; k<oldLists.size(); k+=workers.size())
+				minHitsCovered[k] = extendDeltaLocations(k, referenceGenomeNr, referenceChromosome, pattern, oldLists);
+		}
+	}
+	
 	private boolean occursInValid_dLocs(int c, List<ListOfDeltaLocations> lists, int referenceGenomeNr){
 		for (int k=0; k<lists.size(); k++){
 			if (k == referenceGenomeNr)
@@ -331,20 +917,13 @@ public class ReferenceClusterAlgorithm implements AlgorithmProgressProvider {
 		return false;
 	}
 
-	private int countNonOccs(int[] noOccCount, int delta) {
-		int nonOccs = 0;
-        for (int aNoOccCount : noOccCount)
-            if (aNoOccCount > delta)
-                nonOccs++;
-		return nonOccs;
-	}
 
     @Override
     public void addListener(AlgorithmProgressListener listener) {
         if (listener != null) {
             progressListeners.add(listener);
             listener.algorithmProgressUpdate(new AlgorithmStatusEvent(maxProgressValue, AlgorithmStatusEvent.Task.Init));
-            listener.algorithmProgressUpdate(new AlgorithmStatusEvent(progressValue, AlgorithmStatusEvent.Task.ComputingClusters));
+            listener.algorithmProgressUpdate(new AlgorithmStatusEvent(progressValue.get(), AlgorithmStatusEvent.Task.ComputingClusters));
         }
     }
 
@@ -356,12 +935,12 @@ public class ReferenceClusterAlgorithm implements AlgorithmProgressProvider {
 
     /**
      * Fires a AlgorithmStatusEvent to all listeners. If the Thread is interrupted, throws a CancellationException to
-     * stop the computation
+     * stop the computation. Parallel workers are stopped by the cancelled flag of the computation.
      * @param statusEvent
      * @throws java.util.concurrent.CancellationException if the thread was interrupted
      */
     private void fireProgressUpdateEvent(AlgorithmStatusEvent statusEvent){
-        if (Thread.currentThread().isInterrupted()){
+        if (cancelled.get() || Thread.currentThread().isInterrupted()){
             throw new CancellationException();
         }
         for (AlgorithmProgressListener listener : progressListeners)
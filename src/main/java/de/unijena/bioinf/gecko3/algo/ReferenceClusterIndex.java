@@ -0,0 +1,281 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.unijena.bioinf.gecko3.algo;
+
+import java.util.*;
+
+/**
+ * ReferenceClusterIndex holds the reference clusters found so far, in the order they were inserted.
+ * A new cluster is only inserted if it is not nested in a found cluster, and all found clusters that are
+ * nested in the new cluster are removed (see {@link ReferenceCluster#areAll_dLocsNested(ReferenceCluster)}).
+ *
+ * The delta locations of the found clusters are indexed per genome and chromosome by their left border,
+ * so a new cluster is only compared with clusters that have overlapping delta locations:
+ * A cluster can only be nested in clusters that have a delta location containing its first delta location,
+ * and only clusters whose first delta location is contained in one of its delta locations can be nested in it.
+ * The candidates are compared in the order of insertion, so the result is the same as comparing all clusters.
+ *
+ * If the reference genome is also searched for additional reference occurrences, the clusters have one more list
+ * of delta locations and are changed by {@link #mergeAdditionalReferenceHits(int)}, so they are not indexed and
+ * every new cluster is compared with all found clusters.
+ */
+class ReferenceClusterIndex {
+    /**
+     * A found cluster, with its position in the order of insertion.
+     */
+    private static class Entry {
+        private final ReferenceCluster cluster;
+        private final int order;
+        private boolean removed;
+        private int visit;
+
+        Entry(ReferenceCluster cluster, int order) {
+            this.cluster = cluster;
+            this.order = order;
+        }
+    }
+
+    /**
+     * A delta location of a found cluster, the left border is the key in the bucket.
+     */
+    private static class IndexedLocation {
+        private final Entry entry;
+        private final int r;
+        private final int distance;
+        private final boolean first;
+
+        IndexedLocation(Entry entry, DeltaLocation dLoc, boolean first) {
+            this.entry = entry;
+            this.r = dLoc.getR();
+            this.distance = dLoc.getDistance();
+            this.first = first;
+        }
+    }
+
+    /**
+     * The delta locations of all found clusters in one chromosome of one genome.
+     */
+    private static class Bucket {
+        private final NavigableMap<Integer, List<IndexedLocation>> byLeftBorder = new TreeMap<>();
+        private int maxLength;
+
+        void add(DeltaLocation dLoc, IndexedLocation location) {
+            List<IndexedLocation> locations = byLeftBorder.get(dLoc.getL());
+            if (locations == null) {
+                locations = new ArrayList<>(2);
+                byLeftBorder.put(dLoc.getL(), locations);
+            }
+            locations.add(location);
+            maxLength = Math.max(maxLength, dLoc.getR() - dLoc.getL());
+        }
+    }
+
+    private static final Comparator<Entry> INSERTION_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry o1, Entry o2) {
+            return Integer.compare(o1.order, o2.order);
+        }
+    };
+
+    private static final int MAX_REMOVED = 1024;
+
+    private final boolean indexed;
+    private List<Entry> entries;
+    private final Map<Long, Bucket> buckets;
+    private final List<Entry> withoutLocations;
+    private int nextOrder;
+    private int removedCount;
+    private int visit;
+
+    /**
+     * Constructs an empty index.
+     * @param indexed if false, the clusters are not indexed and a new cluster is compared with all found clusters.
+     */
+    ReferenceClusterIndex(boolean indexed) {
+        this.indexed = indexed;
+        this.entries = new ArrayList<>();
+        this.buckets = new HashMap<>();
+        this.withoutLocations = new ArrayList<>();
+        this.nextOrder = 0;
+        this.removedCount = 0;
+        this.visit = 0;
+    }
+
+    /**
+     * Inserts the new cluster, if it is not nested in a found cluster.
+     * All found clusters that are nested in the new cluster are removed.
+     * @param newCluster the new cluster
+     * @return true if the cluster was inserted, false otherwise
+     */
+    boolean insert(ReferenceCluster newCluster) {
+        if (removedCount > MAX_REMOVED && removedCount > entries.size() / 2)
+            compact();
+        for (Entry other : indexed ? candidates(newCluster) : entries) {
+            if (other.removed)
+                continue;
+            if (newCluster.areAll_dLocsNested(other.cluster))
+                return false;
+            if (other.cluster.areAll_dLocsNested(newCluster))
+                remove(other);
+        }
+        add(newCluster);
+        return true;
+    }
+
+    /**
+     * Merges the hits in the copy of the reference genome into the reference genome, for all clusters.
+     * Clusters with only one remaining hit are removed.
+     * @param numberOfGenomes the number of genomes including the reference copy
+     */
+    void mergeAdditionalReferenceHits(int numberOfGenomes) {
+        if (indexed)
+            throw new IllegalStateException("Indexed clusters must not be changed!");
+        for (Entry entry : entries) {
+            if (!entry.removed && !entry.cluster.mergeAdditionalReferenceHits(numberOfGenomes))
+                remove(entry);
+        }
+    }
+
+    /**
+     * Returns the found clusters in the order of insertion.
+     * @return the found clusters.
+     */
+    List<ReferenceCluster> toList() {
+        List<ReferenceCluster> clusters = new ArrayList<>(entries.size() - removedCount);
+        for (Entry entry : entries)
+            if (!entry.removed)
+                clusters.add(entry.cluster);
+        return clusters;
+    }
+
+    /**
+     * The found clusters, that the new cluster can be nested in or that can be nested in the new cluster,
+     * in the order of insertion.
+     */
+    private List<Entry> candidates(ReferenceCluster newCluster) {
+        visit++;
+        List<Entry> candidates = new ArrayList<>();
+        List<List<DeltaLocation>> dLocLists = newCluster.getAllDeltaLocations();
+
+        int firstK = firstNonEmptyList(dLocLists);
+        if (firstK < 0)
+            return entries;    // nested in every cluster
+        DeltaLocation first = dLocLists.get(firstK).get(0);
+        Bucket firstBucket = buckets.get(key(firstK, first.getChrNr()));
+        // the bucket contains no delta location that is long enough, if the range is empty
+        if (firstBucket != null && first.getR() - firstBucket.maxLength <= first.getL()) {
+            for (List<IndexedLocation> locations : firstBucket.byLeftBorder.subMap(first.getR() - firstBucket.maxLength, true, first.getL(), true).values()) {
+                for (IndexedLocation location : locations)
+                    if (location.r >= first.getR() && location.distance <= first.getDistance())
+                        addCandidate(location.entry, candidates);
+            }
+        }
+
+        for (int k=0; k<dLocLists.size(); k++) {
+            for (DeltaLocation dLoc : dLocLists.get(k)) {
+                Bucket bucket = buckets.get(key(k, dLoc.getChrNr()));
+                if (bucket == null)
+                    continue;
+                for (List<IndexedLocation> locations : bucket.byLeftBorder.subMap(dLoc.getL(), true, dLoc.getR(), true).values()) {
+                    for (IndexedLocation location : locations)
+                        if (location.first && location.r <= dLoc.getR() && location.distance >= dLoc.getDistance())
+                            addCandidate(location.entry, candidates);
+                }
+            }
+        }
+        for (Entry entry : withoutLocations)
+            addCandidate(entry, candidates);
+
+        Collections.sort(candidates, INSERTION_ORDER);
+        return candidates;
+    }
+
+    private void addCandidate(Entry entry, List<Entry> candidates) {
+        if (entry.removed || entry.visit == visit)
+            return;
+        entry.visit = visit;
+        candidates.add(entry);
+    }
+
+    private void add(ReferenceCluster cluster) {
+        Entry entry = new Entry(cluster, nextOrder++);
+        entries.add(entry);
+        if (indexed)
+            index(entry);
+    }
+
+    private void index(Entry entry) {
+        List<List<DeltaLocation>> dLocLists = entry.cluster.getAllDeltaLocations();
+        int firstK = firstNonEmptyList(dLocLists);
+        if (firstK < 0) {
+            withoutLocations.add(entry);
+            return;
+        }
+        for (int k=0; k<dLocLists.size(); k++) {
+            List<DeltaLocation> dLocList = dLocLists.get(k);
+            for (int i=0; i<dLocList.size(); i++) {
+                DeltaLocation dLoc = dLocList.get(i);
+                Long key = key(k, dLoc.getChrNr());
+                Bucket bucket = buckets.get(key);
+                if (bucket == null) {
+                    bucket = new Bucket();
+                    buckets.put(key, bucket);
+                }
+                bucket.add(dLoc, new IndexedLocation(entry, dLoc, k == firstK && i == 0));
+            }
+        }
+    }
+
+    /**
+     * Marks the entry as removed. The removed entries are dropped from the index by {@link #compact()},
+     * when they are the majority.
+     */
+    private void remove(Entry entry) {
+        entry.removed = true;
+        removedCount++;
+    }
+
+    private void compact() {
+        List<Entry> oldEntries = entries;
+        entries = new ArrayList<>(oldEntries.size() - removedCount);
+        buckets.clear();
+        withoutLocations.clear();
+        removedCount = 0;
+        for (Entry entry : oldEntries) {
+            if (entry.removed)
+                continue;
+            entries.add(entry);
+            if (indexed)
+                index(entry);
+        }
+    }
+
+    private static int firstNonEmptyList(List<List<DeltaLocation>> dLocLists) {
+        for (int k=0; k<dLocLists.size(); k++)
+            if (!dLocLists.get(k).isEmpty())
+                return k;
+        return -1;
+    }
+
+    private static Long key(int k, int chrNr) {
+        return ((long) k << 32) | (chrNr & 0xffffffffL);
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.unijena.bioinf.gecko3.algo;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+/**
+ * An array of non negative probabilities, that can be much smaller than the smallest double, like the product
+ * of the p-values of hundreds of genomes. Each value is stored as a mantissa in [0.5, 1) and a binary exponent,
+ * value = mantissa * 2^exponent, zero is stored with mantissa 0.0. The operations work in place on primitive
+ * arrays, so combining the p-values of a cluster does not allocate any objects.
+ */
+class ScaledProbabilities {
+    private static final double TWO_POW_54 = 0x1.0p54;
+
+    /**
+     * Values outside of the double range are rounded to this precision when converted to BigDecimal
+     */
+    private static final MathContext EXTENDED_RANGE_PRECISION = new MathContext(17);
+
+    private final double[] mantissa;
+    private final int[] exponent;
+
+    /**
+     * Constructs an array of the given size, all values are 0.
+     * @param size the number of values.
+     */
+    ScaledProbabilities(int size) {
+        mantissa = new double[size];
+        exponent = new int[size];
+    }
+
+    /**
+     * Sets the values from (inclusive) to to (exclusive) to 0.
+     */
+    void clear(int from, int to) {
+        for (int i=from; i<to; i++) {
+            mantissa[i] = 0.0;
+            exponent[i] = 0;
+        }
+    }
+
+    /**
+     * Sets value i.
+     * @param value a non negative, finite double.
+     */
+    void set(int i, double value) {
+        if (value == 0.0) {
+            mantissa[i] = 0.0;
+            exponent[i] = 0;
+        } else {
+            int e = binaryExponent(value);
+            mantissa[i] = Math.scalb(value, -e);
+            exponent[i] = e;
+        }
+    }
+
+    /**
+     * Sets value i to value j.
+     */
+    void copy(int i, int j) {
+        copyFrom(i, this, j);
+    }
+
+    /**
+     * Sets value i to value j of the other array.
+     */
+    void copyFrom(int i, ScaledProbabilities other, int j) {
+        mantissa[i] = other.mantissa[j];
+        exponent[i] = other.exponent[j];
+    }
+
+    /**
+     * Multiplies value i by the factor.
+     * @param factor a non negative, finite double.
+     */
+    void multiply(int i, double factor) {
+        if (factor == 0.0 || mantissa[i] == 0.0) {
+            mantissa[i] = 0.0;
+            exponent[i] = 0;
+        } else {
+            int e = binaryExponent(factor);
+            normalize(i, mantissa[i] * Math.scalb(factor, -e), exponent[i] + e);
+        }
+    }
+
+    /**
+     * Adds a trial with success probability p to the distribution of the number of successes, that is stored
+     * in the values 0 to n: value j becomes value j * (1-p) + value j-1 * p. The factors are split into mantissa
+     * and exponent only once for all values.
+     * @param n the number of trials after adding this trial, value n has to be 0 before.
+     * @param p the success probability, >= 0.0 and < 1.0.
+     */
+    void addTrial(int n, double p) {
+        if (p == 0.0)
+            return;
+        double notP = 1.0 - p;
+        int notPExponent = binaryExponent(notP);
+        double notPMantissa = Math.scalb(notP, -notPExponent);
+        int pExponent = binaryExponent(p);
+        double pMantissa = Math.scalb(p, -pExponent);
+
+        for (int j=n; j>=1; j--) {
+            double m1 = mantissa[j] * notPMantissa;
+            int e1 = exponent[j] + notPExponent;
+            double m2 = mantissa[j-1] * pMantissa;
+            int e2 = exponent[j-1] + pExponent;
+            add(j, m1, e1, m2, e2);
+        }
+        if (mantissa[0] != 0.0)
+            normalize(0, mantissa[0] * notPMantissa, exponent[0] + notPExponent);
+    }
+
+    /**
+     * Adds value j of the other array to value i.
+     */
+    void add(int i, ScaledProbabilities other, int j) {
+        add(i, mantissa[i], exponent[i], other.mantissa[j], other.exponent[j]);
+    }
+
+    private void add(int i, double m1, int e1, double m2, int e2) {
+        if (m1 == 0.0)
+            normalize(i, m2, e2);
+        else if (m2 == 0.0)
+            normalize(i, m1, e1);
+        else if (e1 >= e2)
+            normalize(i, m1 + scaleDown(m2, e1 - e2), e1);
+        else
+            normalize(i, m2 + scaleDown(m1, e2 - e1), e2);
+    }
+
+    /**
+     * Compares value i with value j of the other array.
+     * @return a negative integer, zero, or a positive integer as value i is less than, equal to, or greater than value j.
+     */
+    int compare(int i, ScaledProbabilities other, int j) {
+        if (mantissa[i] == 0.0 || other.mantissa[j] == 0.0)
+            return Double.compare(mantissa[i], other.mantissa[j]);
+        if (exponent[i] != other.exponent[j])
+            return (exponent[i] < other.exponent[j]) ? -1 : 1;
+        return Double.compare(mantissa[i], other.mantissa[j]);
+    }
+
+    /**
+     * Returns value i as double, values below the double range are rounded to 0.
+     */
+    double toDouble(int i) {
+        return Math.scalb(mantissa[i], exponent[i]);
+    }
+
+    /**
+     * Converts value i to a BigDecimal. Values in the range of normal doubles are converted exactly,
+     * smaller or larger values are rounded to 17 significant digits.
+     */
+    BigDecimal toBigDecimal(int i) {
+        if (mantissa[i] == 0.0)
+            return BigDecimal.ZERO;
+        int e = exponent[i];
+        if (e > Double.MIN_EXPONENT && e <= Double.MAX_EXPONENT)
+            return new BigDecimal(Math.scalb(mantissa[i], e));
+        // mantissa * 2^e, the mantissa is an integer times 2^-53
+        BigDecimal value = new BigDecimal(BigInteger.valueOf((long) Math.scalb(mantissa[i], 53)));
+        e -= 53;
+        if (e >= 0)
+            return value.multiply(new BigDecimal(BigInteger.ONE.shiftLeft(e))).round(EXTENDED_RANGE_PRECISION);
+        // 2^e == 5^-e * 10^e
+        return value.multiply(new BigDecimal(BigInteger.valueOf(5).pow(-e))).scaleByPowerOfTen(e).round(EXTENDED_RANGE_PRECISION);
+    }
+
+    private void normalize(int i, double m, int e) {
+        if (m == 0.0) {
+            mantissa[i] = 0.0;
+            exponent[i] = 0;
+        } else {
+            int shift = binaryExponent(m);
+            mantissa[i] = Math.scalb(m, -shift);
+            exponent[i] = e + shift;
+        }
+    }
+
+    /**
+     * Returns m * 2^-diff, for a mantissa m in [0.25, 2) and diff >= 0.
+     */
+    private static double scaleDown(double m, int diff) {
+        return (diff > 64) ? 0.0 : Math.scalb(m, -diff);
+    }
+
+    /**
+     * Returns the exponent e with value = m * 2^e and m in [0.5, 1), also for subnormal values.
+     * @param value a positive, finite double.
+     */
+    private static int binaryExponent(double value) {
+        int e = Math.getExponent(value);
+        if (e == Double.MIN_EXPONENT - 1)   // subnormal
+            return Math.getExponent(value * TWO_POW_54) - 54 + 1;
+        return e + 1;
+    }
+}
@@ -19,19 +19,26 @@
 
 package de.unijena.bioinf.gecko3.algo;
 
-import cern.jet.random.Binomial;
-import cern.jet.random.engine.MersenneTwister;
-import cern.jet.random.engine.RandomEngine;
 import de.unijena.bioinf.gecko3.algo.status.AlgorithmProgressListener;
 import de.unijena.bioinf.gecko3.algo.status.AlgorithmProgressProvider;
 import de.unijena.bioinf.gecko3.algo.status.AlgorithmStatusEvent;
 import org.apache.commons.math3.util.Precision;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.util.*;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class Statistics implements AlgorithmProgressProvider {
+	private static final Logger logger = LoggerFactory.getLogger(Statistics.class);
+
 	private final GenomeList genomes;
 	private final List<ReferenceCluster> refClusterList;
 	private final int delta;
@@ -39,15 +46,34 @@ class Statistics implements AlgorithmProgressProvider {
 	private final Map<Integer, Integer> genomeGroupMapping;
 	private final int nrOfGenomeGroups;
 	private final boolean useGenomeGrouping;
+	private final int nrOfThreads;
 	
 	private BigDecimal testedIntervals;	
-	private final RandomEngine random;
 
 	private final List<AlgorithmProgressListener> progressListeners;
 	private final int maxProgressValue;
-	private int progressValue;
+	private final AtomicInteger progressValue;
+	private final AtomicBoolean cancelled;
+
+	/**
+	 * The number of clusters whose p-values are computed in one parallel task
+	 */
+	private static final int CLUSTERS_PER_TASK = 64;
+
+	/**
+	 * The maximum number of tables for the gene contents that are kept, each holds O(|C|^2 * L) values
+	 */
+	private static final int PTABLE_CACHE_SIZE = 64;
+
+	/**
+	 * The maximum number of p-values that are kept
+	 */
+	private static final int P_VALUE_CACHE_SIZE = 1 << 16;
+
+	private final LruCache<GeneContentKey, PTable> pTableCache;
+	private final LruCache<GeneContentKey, Double> pValueCache;
 	
-	private Statistics(GenomeList genomes, List<ReferenceCluster> refClusterList, int delta, boolean singleReference, int nrOfGenomeGroups, Map<Integer, Integer> genomeGroupMapping) {
+	private Statistics(GenomeList genomes, List<ReferenceCluster> refClusterList, int delta, boolean singleReference, int nrOfGenomeGroups, Map<Integer, Integer> genomeGroupMapping, int nrOfThreads) {
 		this.genomes = genomes;
 		this.refClusterList = refClusterList;
 		this.delta = delta;
@@ -56,41 +82,72 @@ class Statistics implements AlgorithmProgressProvider {
 		this.nrOfGenomeGroups = nrOfGenomeGroups;
 		this.genomeGroupMapping = genomeGroupMapping;
 		this.useGenomeGrouping = nrOfGenomeGroups != genomes.size();
-		
-		this.random = new MersenneTwister();
+		this.nrOfThreads = nrOfThreads;
 
 		progressListeners = new ArrayList<>();
 		maxProgressValue = genomes.size()* refClusterList.size() + refClusterList.size();
-		progressValue = 0;
+		progressValue = new AtomicInteger(0);
+		cancelled = new AtomicBoolean(false);
+		pTableCache = new LruCache<>(PTABLE_CACHE_SIZE);
+		pValueCache = new LruCache<>(P_VALUE_CACHE_SIZE);
 	}
-	
-	public static void computeReferenceStatistics(GenomeList genomes, List<ReferenceCluster> refCluster, int delta, boolean singleReference, int nrOfGenomeGroups, Map<Integer, Integer> genomeGroupMapping, List<AlgorithmProgressListener> listeners) {
-		Statistics statistics = new Statistics(genomes, refCluster, delta, singleReference, nrOfGenomeGroups, genomeGroupMapping);
+
+	/**
+	 * Computes the p-values of all delta locations and the combined p-values of all reference clusters.
+	 * @param genomes the genomes
+	 * @param refCluster the reference clusters
+	 * @param delta the maximum distance
+	 * @param singleReference if only the first genome is used as reference
+	 * @param nrOfGenomeGroups the number of genome groups
+	 * @param genomeGroupMapping maps each genome to its group, null if no genome grouping is used
+	 * @param nrOfThreads the number of threads used for the p-values of the delta locations
+	 * @param listeners the progress listeners
+	 */
+	public static void computeReferenceStatistics(GenomeList genomes, List<ReferenceCluster> refCluster, int delta, boolean singleReference, int nrOfGenomeGroups, Map<Integer, Integer> genomeGroupMapping, int nrOfThreads, List<AlgorithmProgressListener> listeners) {
+		Statistics statistics = new Statistics(genomes, refCluster, delta, singleReference, nrOfGenomeGroups, genomeGroupMapping, nrOfThreads);
 		for (AlgorithmProgressListener listener : listeners)
 			statistics.addListener(listener);
 		
 		statistics.computeStatistics();
+		if (logger.isDebugEnabled())
+			logger.debug("Statistics cache: p-values {} hits / {} misses, tables {} hits / {} misses",
+					statistics.pValueCache.getHits(), statistics.pValueCache.getMisses(), statistics.pTableCache.getHits(), statistics.pTableCache.getMisses());
 	}
 
 	private void computeStatistics() {
 		int maxClusterSize = getMaxRefClusterSize() + delta;
 		
-		for (int k=0; k<genomes.size(); k++){
-			computeSinglePValuesForGenome(k, maxClusterSize);
+		if (nrOfThreads > 1)
+			computeSinglePValuesInParallel(maxClusterSize);
+		else {
+			for (int k=0; k<genomes.size(); k++){
+				GenomeTables tables = new GenomeTables(k, maxClusterSize);
+				computeSinglePValues(k, 0, refClusterList.size(), tables);
+			}
 		}
 
-		for (ReferenceCluster cluster : refClusterList) {
-			double[] best_pValue = determineBestReferenceOccurrence(cluster);
-			cluster.setBestCombined_pValue(combine_pValuesWithQuorum(best_pValue, cluster.getCoveredGenomeGroups()));
+		ScaledProbabilities combined = new ScaledProbabilities(refClusterList.size());
+		ScaledProbabilities qArray = new ScaledProbabilities(nrOfGenomeGroups + 1);
+		double[] best_pValue = new double[nrOfGenomeGroups];
+		for (int c=0; c<refClusterList.size(); c++) {
+			ReferenceCluster cluster = refClusterList.get(c);
+			determineBestReferenceOccurrence(cluster, best_pValue);
+			combine_pValuesWithQuorum(best_pValue, cluster.getCoveredGenomeGroups(), genomes.size(), qArray, combined, c);
+			cluster.setBestCombined_pValue(combined.toBigDecimal(c));
 			//cluster.setBestCombined_pValueCorrected(bonferroniCorrection(cluster));
 		}
 
-		fdrCorrection(refClusterList);
+		fdrCorrection(refClusterList, combined);
 	}
 
-	private double[] determineBestReferenceOccurrence(ReferenceCluster cluster){
-		fireProgressUpdateEvent(new AlgorithmStatusEvent(progressValue++, AlgorithmStatusEvent.Task.ComputingStatistics));
-		double[] best_pValue = new double[nrOfGenomeGroups];  // init with 0.0
+	/**
+	 * Determines the best p-value of each genome group and the best reference occurrence of the cluster.
+	 * @param cluster the cluster
+	 * @param best_pValue the array the best p-values are written to, one per genome group
+	 */
+	private void determineBestReferenceOccurrence(ReferenceCluster cluster, double[] best_pValue){
+		fireProgressUpdateEvent(new AlgorithmStatusEvent(progressValue.getAndIncrement(), AlgorithmStatusEvent.Task.ComputingStatistics));
+		Arrays.fill(best_pValue, 0.0);
 
 		double bestRefLoc_pValue = 0.0;
 		DeltaLocation bestRefLoc = null;
@@ -125,35 +182,13 @@ class Statistics implements AlgorithmProgressProvider {
 			best_pValue[bestRefLoc.getGenomeNr()] = 1.0;
 
 		cluster.changeReferenceOccurrence(bestRefLoc);
-
-		return best_pValue;
 	}
 	
 	private BigDecimal bonferroniCorrection(ReferenceCluster cluster) {
-		if (testedIntervals == null){
-			int tmpTestedIntervals = 0;
-			int genomesToTest = genomes.size();
-			if (singleReference)
-				genomesToTest = 1;
-			for (int k=0; k<genomesToTest; k++){
-				for (int intervalLength=1; intervalLength<=genomes.get(k).getLength(); intervalLength++){
-					tmpTestedIntervals += genomes.get(k).getLength() - intervalLength + 1;
-				}
-			}
-			testedIntervals = new BigDecimal(tmpTestedIntervals);
-		}
-		return cluster.getBestCombined_pValue().multiply(testedIntervals);
+		return cluster.getBestCombined_pValue().multiply(getTestedIntervals());
 	}
 	
-	private void fdrCorrection(List<ReferenceCluster> clusters) {
-		List<ReferenceCluster> sortedList = new ArrayList<>(clusters);
-		Collections.sort(sortedList, new Comparator<ReferenceCluster>() {
-			@Override
-			public int compare(ReferenceCluster o1, ReferenceCluster o2) {
-				return o1.getBestCombined_pValue().compareTo(o2.getBestCombined_pValue());
-			}
-		});
-		
+	private BigDecimal getTestedIntervals() {
 		if (testedIntervals == null){
 			int tmpTestedIntervals = 0;
 			int genomesToTest = genomes.size();
@@ -166,99 +201,61 @@ class Statistics implements AlgorithmProgressProvider {
 			}
 			testedIntervals = new BigDecimal(tmpTestedIntervals);
 		}
-		
-		BigDecimal lastValue = null;
-		for (int i=0; i<sortedList.size(); i++) {
-			BigDecimal index = new BigDecimal(i+1);
-			BigDecimal correction = testedIntervals.divide(index,5, BigDecimal.ROUND_HALF_UP);
-			ReferenceCluster cluster = sortedList.get(i);
-			BigDecimal correctedValue = cluster.getBestCombined_pValue().multiply(correction);
-			if (lastValue != null)
-				correctedValue = correctedValue.max(lastValue);
-			lastValue = correctedValue;
-			cluster.setBestCombined_pValueCorrected(correctedValue);
-		}
-	}
-	
-	private BigDecimal combine_pValuesWithQuorumBD(double[] pValue,
-			int K, int Q) {
-		BigDecimal[] bd = new BigDecimal[pValue.length];
-		for (int i=0; i<pValue.length; i++)
-			bd[i] = new BigDecimal(pValue[i]);
-		return combine_pValuesWithQuorumBD(bd, K, Q);
+		return testedIntervals;
 	}
 
-	private BigDecimal combine_pValuesWithQuorumBD(BigDecimal[] pValue,
-			int K, int Q) {
-		if (Q == K){
-			BigDecimal combined = BigDecimal.ONE;
-			for (int k=0; k<K; k++)
-				combined = combined.multiply(pValue[k]);
-			return combined;
-		}
-		
-		BigDecimal[] pArray = new BigDecimal[K+1];
-		Arrays.fill(pArray, BigDecimal.ZERO);
-		
-		int i=0;
-		int offset = 0;
-		while(pValue[i].equals( BigDecimal.ONE)){
-			offset++;
-			i++;
-		}
-		if (i >= Q)
-			return BigDecimal.ONE;
-		
-		BigDecimal q0 = pValue[i];
-		pArray[0] = BigDecimal.ONE.subtract(pValue[i]);
-		pArray[1] = pValue[i];
-		
-		i++;
-		
-		for (; i<K; i++){
-			if (pValue[i].equals(BigDecimal.ONE)){
-				offset++;
-				continue;
-			}
-			for (int j=Math.min(i+1, K)-offset; j>=0; j--){
-				if (j > 1){
-					BigDecimal mul1 = pArray[j].multiply(pValue[i]);
-					BigDecimal mul2 = pArray[j-1].multiply(pValue[i]);
-					BigDecimal sub = pArray[j].subtract(mul1);
-					pArray[j] = sub.add(mul2);
-				} else if (j == 1){
-					BigDecimal mul1 = pArray[j].multiply(pValue[i]);
-					BigDecimal sub1 = pArray[j].subtract(mul1);
-					BigDecimal add = sub1.add(pValue[i]);
-					BigDecimal mul2 = pArray[i].multiply(q0);
-					pArray[j] = add.subtract(mul2);
-				} else {
-					BigDecimal add = pValue[i].add(q0);
-					BigDecimal mul = pValue[i].multiply(q0);
-					q0 = add.subtract(mul);
-				}
+	/**
+	 * Corrects the combined p-values for multiple testing, the i-th smallest p-value is multiplied by
+	 * testedIntervals/i, and the corrected values are kept monotone.
+	 * @param clusters the clusters
+	 * @param combined the combined p-values of the clusters, in the same order
+	 */
+	private void fdrCorrection(List<ReferenceCluster> clusters, final ScaledProbabilities combined) {
+		Integer[] sortedIndices = new Integer[clusters.size()];
+		for (int i=0; i<sortedIndices.length; i++)
+			sortedIndices[i] = i;
+		Arrays.sort(sortedIndices, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return combined.compare(o1, combined, o2);
 			}
-		}
+		});
 		
-		assert(Q-offset > 0); // will not work if Q or rather (Q-offset) is 0, but that does not make sense for our gene clusters!
+		double nrOfTestedIntervals = getTestedIntervals().doubleValue();
 		
-		BigDecimal sum = BigDecimal.ZERO;
-		for (int j=Q-offset; j<=K-offset; j++)
-			sum = sum.add(pArray[j]);
-			
-		return sum;
+		ScaledProbabilities corrected = new ScaledProbabilities(2);  // 0: the current value, 1: the last value
+		for (int i=0; i<sortedIndices.length; i++) {
+			int c = sortedIndices[i];
+			corrected.copyFrom(0, combined, c);
+			corrected.multiply(0, nrOfTestedIntervals / (i+1));
+			if (i > 0 && corrected.compare(0, corrected, 1) < 0)
+				corrected.copy(0, 1);
+			corrected.copy(1, 0);
+			clusters.get(c).setBestCombined_pValueCorrected(corrected.toBigDecimal(0));
+		}
 	}
 	
-	private BigDecimal combine_pValuesWithQuorum(double[] pValue, int q) {
-		if (q == pValue.length || q == genomes.size()){
-			Probability combined = Probability.ONE;
+	/**
+	 * Combines the p-values of all genome groups into the probability that at least q of them have an occurrence
+	 * with the given p-value. P-values of 1.0 (the reference occurrence) count as certain occurrence.
+	 * qArray[j] holds the probability that exactly j of the processed p-values occur, qArray[0] that none occurs.
+	 * All updates are sums of products of non negative values, so no precision is lost by subtraction.
+	 * @param pValue the p-values, one per genome group
+	 * @param q the quorum
+	 * @param nrOfGenomes the number of genomes, if q equals the number of genomes all p-values are multiplied
+	 * @param qArray buffer of size >= pValue.length+1, is overwritten
+	 * @param result the array the combined p-value is stored in
+	 * @param resultIndex the index of the combined p-value in result
+	 */
+	static void combine_pValuesWithQuorum(double[] pValue, int q, int nrOfGenomes, ScaledProbabilities qArray, ScaledProbabilities result, int resultIndex) {
+		if (q == pValue.length || q == nrOfGenomes){
+			result.set(resultIndex, 1.0);
 			for (double aPValue : pValue)
-				combined = combined.multiply(aPValue);
-			return combined.toBigDecimal();
+				result.multiply(resultIndex, aPValue);
+			return;
 		}
 		
-		Probability[] qArray = new Probability[pValue.length+1];
-		Arrays.fill(qArray, Probability.ZERO);
+		qArray.clear(0, pValue.length+1);
 		
 		int i=0;
 		int offset = 0;
@@ -266,12 +263,13 @@ class Statistics implements AlgorithmProgressProvider {
 			offset++;
 			i++;
 		}
-		if (i >= q)
-			return BigDecimal.ONE;
+		if (i >= q) {
+			result.set(resultIndex, 1.0);
+			return;
+		}
 		
-		Probability q0 = new Probability(pValue[i]);
-		qArray[0] = Probability.ONE.subtract(pValue[i]); // should never be used, we use q0 instead
-		qArray[1] = new Probability(pValue[i]);
+		qArray.set(0, 1.0 - pValue[i]);
+		qArray.set(1, pValue[i]);
 		
 		i++;
 		
@@ -280,42 +278,103 @@ class Statistics implements AlgorithmProgressProvider {
 				offset++;
 				continue;
 			}
-			for (int j=Math.min(i+1, pValue.length)-offset; j>=0; j--){
-				if (j > 1){
-					// (Qj - Qj*Pi) * (Q(j-1)*Pi)
-					Probability mul1 = qArray[j].multiply(pValue[i]); // Qj - Qj*Pi
-					Probability sub = qArray[j].subtract(mul1);       // == Qj*(1-Pi)
-
-					Probability mul2 = qArray[j-1].multiply(pValue[i]); // Q(j-1)*Pi
-
-					qArray[j] = sub.add(mul2);
-				} else if (j == 1){
-					// Qj - Pi*Qj + Pi - Pi*q0 == Qj(1-Pi) + Pi(1-q0)
-					Probability mul1 = qArray[j].multiply(pValue[i]);  // Qj - Qj*Pi
-					Probability sub1 = qArray[j].subtract(mul1);       // == Qj*(1-Pi)
-					Probability add = sub1.add(pValue[i]);
-					Probability mul2 = q0.multiply(pValue[i]);
-					qArray[j] = add.subtract(mul2);
-				} else {
-					q0=q0.add(pValue[i]).subtract(q0.multiply(pValue[i]));
-				}
-			}
+			// Qj*(1-Pi) + Q(j-1)*Pi
+			qArray.addTrial(Math.min(i+1, pValue.length)-offset, pValue[i]);
 		}
 		
-		Probability sum = Probability.ZERO;
+		result.set(resultIndex, 0.0);
 		for (int j=Math.max(1, q-offset); j<=pValue.length-offset; j++)
-			sum = sum.add(qArray[j]);
-			
-		return sum.toBigDecimal();
+			result.add(resultIndex, qArray, j);
+	}
+
+	/**
+	 * The char frequencies and the table of the probabilities for additional characters of one genome,
+	 * that are shared by all clusters. The table can be read by several tasks at the same time.
+	 */
+	private class GenomeTables {
+		private final int[] charFrequencies;
+		private final PTable pPlusTable;
+
+		GenomeTables(int genomeNr, int maxClusterSize) {
+			charFrequencies = genomes.get(genomeNr).getCharFrequency(genomes.getAlphabetSize());
+			double[] globalProbabilityForDifferentCharHits = computeGlobalProbabilityForDifferentCharHits(charFrequencies);
+			pPlusTable = new PTable(globalProbabilityForDifferentCharHits, maxClusterSize, delta);
+		}
+	}
+
+	/**
+	 * Computes the p-values of the delta locations in all genomes as fork-join tasks, each task handles
+	 * CLUSTERS_PER_TASK clusters in one genome. The clusters only share the
+	 * tables of their genome, that can be read by several tasks. Each p-value is computed by the same operations as in the
+	 * sequential computation, so the results are identical.
+	 * @param maxClusterSize the maximum cluster size including the maximum distance
+	 */
+	private void computeSinglePValuesInParallel(final int maxClusterSize) {
+		ForkJoinPool pool = new ForkJoinPool(nrOfThreads);
+		try {
+			List<ForkJoinTask<?>> tasks = new ArrayList<>(genomes.size());
+			for (int k=0; k<genomes.size(); k++) {
+				final int genomeNr = k;
+				ForkJoinTask<?> task = new RecursiveAction() {
+					private static final long serialVersionUID = -2964188374583516426L;
+
+					@Override
+					protected void compute() {
+						if (cancelled.get())
+							throw new CancellationException();
+						GenomeTables tables = new GenomeTables(genomeNr, maxClusterSize);
+						List<SinglePValuesTask> clusterTasks = new ArrayList<>();
+						for (int from=0; from<refClusterList.size(); from+=CLUSTERS_PER_TASK)
+							clusterTasks.add(new SinglePValuesTask(genomeNr, from, Math.min(from + CLUSTERS_PER_TASK, refClusterList.size()), tables));
+						invokeAll(clusterTasks);
+					}
+				};
+				pool.execute(task);
+				tasks.add(task);
+			}
+			for (ForkJoinTask<?> task : tasks)
+				task.get();
+		} catch (InterruptedException e) {
+			cancelled.set(true);
+			Thread.currentThread().interrupt();
+			throw new CancellationException();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdownNow();
+		}
 	}
 
-	private void computeSinglePValuesForGenome(int genomeNr, int maxClusterSize){
-		int[] charFrequencies = genomes.get(genomeNr).getCharFrequency(genomes.getAlphabetSize());
-		double[] globalProbabilityForDifferentCharHits = computeGlobalProbabilityForDifferentCharHits(charFrequencies);
-		PTable pPlusTable = new PTable(globalProbabilityForDifferentCharHits, maxClusterSize, delta, random);
+	private class SinglePValuesTask extends RecursiveAction {
+		private static final long serialVersionUID = 6153328921477420195L;
+
+		private final int genomeNr;
+		private final int from;
+		private final int to;
+		private final GenomeTables tables;
 
-		for (ReferenceCluster cluster : refClusterList){
-			fireProgressUpdateEvent(new AlgorithmStatusEvent(progressValue++, AlgorithmStatusEvent.Task.ComputingStatistics));
+		SinglePValuesTask(int genomeNr, int from, int to, GenomeTables tables) {
+			this.genomeNr = genomeNr;
+			this.from = from;
+			this.to = to;
+			this.tables = tables;
+		}
+
+		@Override
+		protected void compute() {
+			computeSinglePValues(genomeNr, from, to, tables);
+		}
+	}
+
+	/**
+	 * Computes the p-values of the delta locations in one genome for the clusters from (inclusive) to to (exclusive).
+	 * Only changes the delta locations of the given genome, so the clusters can be handled by several tasks.
+	 */
+	private void computeSinglePValues(int genomeNr, int from, int to, GenomeTables tables){
+		for (ReferenceCluster cluster : refClusterList.subList(from, to)){
+			fireProgressUpdateEvent(new AlgorithmStatusEvent(progressValue.getAndIncrement(), AlgorithmStatusEvent.Task.ComputingStatistics));
 			if (cluster.getDeltaLocations(genomeNr).isEmpty()){
 				DeltaLocation artificial_dLoc = DeltaLocation.getArtificialDeltaLocation(genomeNr, cluster.getMaxDistance());
 				cluster.getDeltaLocations(genomeNr).add(artificial_dLoc);					
@@ -325,7 +384,7 @@ class Statistics implements AlgorithmProgressProvider {
 					dLoc.setpValue(1.0);                                         // does not need p-value
 				else {
 					// For individual distance bound
-					dLoc.setpValue(prob_C_has_approxOccInGenome(dLoc.getDistance(), genomes.get(genomeNr), cluster.getGeneContent(), pPlusTable, charFrequencies));
+					dLoc.setpValue(prob_C_has_approxOccInGenome(dLoc.getDistance(), genomeNr, cluster.getGeneContent(), tables.pPlusTable, tables.charFrequencies));
 					// For global distance bound
 					//dLoc.setpValue(prob_C_has_approxOccInGenome(cluster.getMaxDistance(), genomes.get(genomeNr).getLength(), genomes.getAlphabetSize(), cluster.getGeneContent(), pPlusTable, charFrequencies));
 				}
@@ -333,16 +392,73 @@ class Statistics implements AlgorithmProgressProvider {
 		}
 	}
 	
-	private double prob_C_has_approxOccInGenome(int delta, Genome genome,
+	/**
+	 * The genome, the gene content as sorted multiset and the distance of a p-value computation.
+	 * Identical keys give identical p-values, so the delta locations of one cluster and clusters with the
+	 * same genes share their computation.
+	 */
+	private static class GeneContentKey {
+		private final int genomeNr;
+		private final List<Integer> geneContent;
+		private final int delta;
+		private final int hashCode;
+
+		GeneContentKey(int genomeNr, List<Integer> geneContent, int delta) {
+			this.genomeNr = genomeNr;
+			this.geneContent = geneContent;
+			this.delta = delta;
+			this.hashCode = 31 * (31 * genomeNr + geneContent.hashCode()) + delta;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) return true;
+			if (!(o instanceof GeneContentKey)) return false;
+			GeneContentKey other = (GeneContentKey) o;
+			return genomeNr == other.genomeNr && delta == other.delta && geneContent.equals(other.geneContent);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+
+	/**
+	 * The probability that the gene content has an approximate occurrence with distance at most delta in the genome.
+	 * The gene content is sorted, so the result only depends on the multiset of genes and is cached.
+	 */
+	private double prob_C_has_approxOccInGenome(int delta, int genomeNr,
+			List<Integer> geneContent, PTable pPlusTable, int[] charFrequencies) {
+		List<Integer> sortedContent = new ArrayList<>(geneContent);
+		Collections.sort(sortedContent);
+
+		GeneContentKey key = new GeneContentKey(genomeNr, sortedContent, delta);
+		Double pValue = pValueCache.get(key);
+		if (pValue == null) {
+			pValue = computeProb_C_has_approxOccInGenome(delta, genomeNr, sortedContent, pPlusTable, charFrequencies);
+			pValueCache.put(key, pValue);
+		}
+		return pValue;
+	}
+
+	private double computeProb_C_has_approxOccInGenome(int delta, int genomeNr,
 			List<Integer> geneContent, PTable pPlusTable, int[] charFrequencies) {
+		Genome genome = genomes.get(genomeNr);
 
 		if (noDLocPossible(geneContent, delta, charFrequencies))
 			return 0.0;
 		
-		double[] localCharProb = computeLocalCharProb(geneContent, charFrequencies);
 		double probOfC = elementOfC_Prob(geneContent, charFrequencies, genome.getLength());
 		
-		PTable pTable = new PTable(localCharProb, geneContent.size(), geneContent.size(), random);
+		// the table does not depend on the distance and is always extended with all different chars
+		GeneContentKey tableKey = new GeneContentKey(genomeNr, geneContent, -1);
+		PTable pTable = pTableCache.get(tableKey);
+		if (pTable == null) {
+			double[] localCharProb = computeLocalCharProb(geneContent, charFrequencies);
+			pTable = new PTable(localCharProb, geneContent.size(), geneContent.size());
+			pTableCache.put(tableKey, pTable);
+		}
 		
 		double log = 0.0;
 		int L = Math.max(1, geneContent.size()-delta);
@@ -370,31 +486,36 @@ class Statistics implements AlgorithmProgressProvider {
 
 	private double q_L_delta(int delta, int L, double probOfC, int sizeOfC, PTable pMinusTable,
 			PTable pPlusTable) {
+		// the pdf of the number of genes from C in the interval of length L, shared by all d
+		double[] binomial = null;
+		if (probOfC < 1.0) //!=
+			binomial = BinomialPdf.pdf(L, probOfC);
+
 		double sum = 0.0;
 		for (int d=0; d<=delta; d++)
-			sum += p_L_d(d, L, probOfC, sizeOfC, pMinusTable, pPlusTable);
+			sum += p_L_d(d, L, probOfC, sizeOfC, binomial, pMinusTable, pPlusTable);
 		
 		return sum;
 	}
 
 	private double p_L_d(int d, int L, double probOfC,
-			int sizeOfC, PTable pMinusTable, PTable pPlusTable) {
+			int sizeOfC, double[] binomial, PTable pMinusTable, PTable pPlusTable) {
 		double prob = 0.0;
-		Binomial binomial = null;
-		if (probOfC < 1.0) //!=
-			binomial = new Binomial(L, probOfC, random);
+
+		// the first access for L is pPlusTable.getValue(L, 0), so the table is always extended in the same way,
+		// independent of the order in which the clusters are computed
 
 		for (int d_plus = Math.max(0, d-(sizeOfC-2)); d_plus<=d; d_plus++){
 			if (binomial != null) {
 				for (int l=0; l<=L; l++){
-					double p_0 = binomial.pdf(l);
+					double p_0 = binomial[l];
 					double p_minus = pMinusTable.getValue(l, sizeOfC - (d - d_plus));
 					double p_plus = Math.pow(1.0 - probOfC, d_plus) * pPlusTable.getValue(L-l, d_plus);
 					
 					prob += p_0 * p_minus * p_plus;
 				}
 			}
-			else {   // if probOfC = 1.0, p_0=binomial.pdf(l) == 0, if l != L
+			else {   // if probOfC = 1.0, p_0=binomial[l] == 0, if l != L
 				prob += pMinusTable.getValue(L, sizeOfC - (d - d_plus)) * pPlusTable.getValue(0, d_plus);
 			}
 
@@ -479,7 +600,7 @@ class Statistics implements AlgorithmProgressProvider {
 		if (listener != null) {
 			progressListeners.add(listener);
 			listener.algorithmProgressUpdate(new AlgorithmStatusEvent(maxProgressValue, AlgorithmStatusEvent.Task.Init));
-			listener.algorithmProgressUpdate(new AlgorithmStatusEvent(progressValue, AlgorithmStatusEvent.Task.ComputingStatistics));
+			listener.algorithmProgressUpdate(new AlgorithmStatusEvent(progressValue.get(), AlgorithmStatusEvent.Task.ComputingStatistics));
 		}
 	}
 
@@ -491,12 +612,12 @@ class Statistics implements AlgorithmProgressProvider {
 
     /**
      * Fires a AlgorithmStatusEvent to all listeners. If the Thread is interrupted, throws a CancellationException to
-     * stop the computation
+     * stop the computation. Parallel tasks are stopped by the cancelled flag.
      * @param statusEvent
      * @throws java.util.concurrent.CancellationException if the thread was interrupted
      */
 	private void fireProgressUpdateEvent(AlgorithmStatusEvent statusEvent){
-        if (Thread.currentThread().isInterrupted()){
+        if (cancelled.get() || Thread.currentThread().isInterrupted()){
             throw new CancellationException();
         }
 		for (AlgorithmProgressListener listener : progressListeners)
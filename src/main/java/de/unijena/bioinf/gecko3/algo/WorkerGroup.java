@@ -0,0 +1,142 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.unijena.bioinf.gecko3.algo;
+
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CyclicBarrier;
+
+/**
+ * WorkerGroup is a fixed group of threads that run one job together, each thread working on its own part.
+ * The calling thread works as member 0, so a group of size n starts n-1 threads.
+ * The threads are kept for the whole search and synchronized by two barriers per job,
+ * so running a job does not allocate any tasks. This is used for steps that are executed very often,
+ * like the update of the matrices for each left border.
+ */
+class WorkerGroup {
+    /**
+     * A job that is split into as many parts as the group has members.
+     */
+    interface Job {
+        /**
+         * Runs the part of the job for one member of the group.
+         * @param member the index of the member, between 0 and size-1.
+         */
+        void run(int member);
+    }
+
+    private final Thread[] threads;
+    private final CyclicBarrier start;
+    private final CyclicBarrier end;
+
+    private volatile Job job;
+    private volatile boolean shutdown;
+    private volatile RuntimeException failure;
+
+    /**
+     * Starts size-1 daemon threads, that wait for the first job.
+     * @param size the number of members of the group, including the calling thread.
+     */
+    WorkerGroup(int size) {
+        if (size < 1)
+            throw new IllegalArgumentException("Size of the worker group has to be >= 1!");
+        this.start = new CyclicBarrier(size);
+        this.end = new CyclicBarrier(size);
+        this.threads = new Thread[size - 1];
+        for (int i=0; i<threads.length; i++) {
+            final int member = i + 1;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    work(member);
+                }
+            }, "Gecko worker " + member);
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+    }
+
+    /**
+     * The number of members of the group, including the calling thread.
+     * @return the number of members.
+     */
+    int size() {
+        return threads.length + 1;
+    }
+
+    private void work(int member) {
+        try {
+            while (true) {
+                start.await();
+                if (shutdown)
+                    return;
+                runPart(member);
+                end.await();
+            }
+        } catch (InterruptedException | BrokenBarrierException e) {
+            // group is closed or a job was cancelled
+        }
+    }
+
+    private void runPart(int member) {
+        try {
+            job.run(member);
+        } catch (RuntimeException | Error e) {
+            failure = (e instanceof RuntimeException) ? (RuntimeException)e : new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Runs the job on all members of the group and waits until all parts are finished.
+     * Must only be called by the thread that created the group.
+     * @param job the job.
+     * @throws CancellationException if the calling thread is interrupted.
+     */
+    void run(Job job) {
+        this.job = job;
+        try {
+            start.await();
+            runPart(0);
+            end.await();
+        } catch (InterruptedException e) {
+            close();
+            Thread.currentThread().interrupt();
+            throw new CancellationException();
+        } catch (BrokenBarrierException e) {
+            close();
+            throw new RuntimeException("Worker group was closed during a job!", e);
+        }
+        this.job = null;
+        if (failure != null) {
+            RuntimeException e = failure;
+            failure = null;
+            throw e;
+        }
+    }
+
+    /**
+     * Stops all threads of the group. The group cannot be used afterwards.
+     */
+    void close() {
+        shutdown = true;
+        for (Thread thread : threads)
+            thread.interrupt();
+    }
+}
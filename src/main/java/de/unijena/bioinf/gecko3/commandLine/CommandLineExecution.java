@@ -41,7 +41,29 @@ public class CommandLineExecution {
     private static final Logger logger = LoggerFactory.getLogger(CommandLineExecution.class);
 
     public static void runAlgorithm(CommandLineOptions options) {
-        if (!options.noComputation()) {
+        if (options.recomputeStatistics()) {
+            Parameter parameter;
+            if (options.hasDistanceParameters()) {
+                // the genomes of the session are already ordered, the reference genome is the first genome
+                Parameter.ReferenceType refType = options.getReferenceGenomeName().equals("") ? Parameter.ReferenceType.allAgainstAll : Parameter.ReferenceType.genome;
+                parameter = createParameter(options, refType);
+            } else
+                parameter = GeckoInstance.getInstance().getData().getParameters();
+            if (parameter == null)
+                throw new IllegalArgumentException("Error! The input file contains no parameters, set them with \"-d\" and \"-s\" or \"-dT\"!");
+            if (parameter.searchRefInRef())
+                throw new IllegalArgumentException("Error! The clusters of the input file were searched in the reference genome, their statistics can not be recomputed!");
+            parameter.setNrOfThreads(options.getNrOfThreads());
+
+            // recompute the statistics of the clusters
+            SwingWorker<List<GeneCluster>, Void> worker = GeckoInstance.getInstance().performStatisticsRecomputation(parameter, options.getGenomeGroupingFactor());
+            try{
+                List<GeneCluster> results = worker.get(); // Blocks until worker is done()
+                GeckoInstance.getInstance().setClusters(results, parameter);
+            } catch (InterruptedException | ExecutionException e) {
+                logger.error("Error in statistics computation!", e);
+            }
+        } else if (!options.noComputation()) {
             Parameter.ReferenceType refType;
             if (options.getReferenceGenomeName().equals(""))
                 refType = Parameter.ReferenceType.allAgainstAll;
@@ -63,26 +85,12 @@ public class CommandLineExecution {
                 GeckoInstance.getInstance().reorderGenomes(index);
             }
 
-            Parameter parameter;
-            if (options.getMaxDistance() >= 0)
-                parameter = new Parameter(options.getMaxDistance(), options.getMinClusterSize(), options.getMinCoveredGenomes(), options.getOperationMode(), refType, options.refInRef(), options.noStatistics());
-            else {
-                int[][] distanceValues = options.getDistanceTable();
-                int[][] distanceTable = new int[distanceValues.length][];
-                int[] lastValues = new int[]{0, 0, 0};
-                int minSize = Integer.MAX_VALUE;
-                for (int i=0; i<distanceTable.length; i++){
-                    if (distanceValues[i][0] < 0)
-                        distanceTable[i] = Arrays.copyOf(lastValues, lastValues.length);
-                    else {
-                        distanceTable[i] = distanceValues[i];
-                        lastValues = distanceTable[i];
-                        if (i < minSize)
-                            minSize = i;
-                    }
-                }
-                parameter = new Parameter(distanceTable, minSize, options.getMinCoveredGenomes(), options.getOperationMode(), refType, options.refInRef(), options.noStatistics());
-            }
+            Parameter parameter = createParameter(options, refType);
+            parameter.setMaxClusterSize(options.getMaxClusterSize());
+            parameter.setNrOfThreads(options.getNrOfThreads());
+            parameter.setParallelMode(options.getParallelMode());
+            parameter.setStorageMode(options.getStorageMode());
+            parameter.setScratchDirectory(options.getScratchDirectory());
 
             // compute the clusters
             SwingWorker<List<GeneCluster>, Void> worker = GeckoInstance.getInstance().performClusterDetection(parameter, false, options.getGenomeGroupingFactor());
@@ -112,4 +120,25 @@ public class CommandLineExecution {
             ResultWriter.exportResultsToFile(outfile, outputOption.getType(), outputOption.getFilter());
         }
     }
+
+    private static Parameter createParameter(CommandLineOptions options, Parameter.ReferenceType refType) {
+        if (options.getMaxDistance() >= 0)
+            return new Parameter(options.getMaxDistance(), options.getMinClusterSize(), options.getMinCoveredGenomes(), options.getOperationMode(), refType, options.refInRef(), options.noStatistics());
+
+        int[][] distanceValues = options.getDistanceTable();
+        int[][] distanceTable = new int[distanceValues.length][];
+        int[] lastValues = new int[]{0, 0, 0};
+        int minSize = Integer.MAX_VALUE;
+        for (int i=0; i<distanceTable.length; i++){
+            if (distanceValues[i][0] < 0)
+                distanceTable[i] = Arrays.copyOf(lastValues, lastValues.length);
+            else {
+                distanceTable[i] = distanceValues[i];
+                lastValues = distanceTable[i];
+                if (i < minSize)
+                    minSize = i;
+            }
+        }
+        return new Parameter(distanceTable, minSize, options.getMinCoveredGenomes(), options.getOperationMode(), refType, options.refInRef(), options.noStatistics());
+    }
 }
@@ -62,6 +62,10 @@ public class CommandLineOptions {
     @Option(name="-s", aliases = "--size", usage = "The minimum cluster size. Not compatible with \"-dT\".")
     private int minClusterSize = -1;
 
+    @Option(name="-mS", aliases = "--maxSize", usage = "The maximum cluster size, 0 (default) for no maximum.\n" +
+            "Patterns are not extended beyond this size, so clusters that are only nested in larger clusters are reported instead.")
+    private int maxClusterSize = 0;
+
     @Option(name="-q", aliases = "--quorum", usage = "The minimum number of covered genomes.")
     private int minCoveredGenomes = 0;
 
@@ -82,6 +86,25 @@ public class CommandLineOptions {
     @Option(name = "--noStatistics", usage = "Do not compute cluster statistics.")
     private boolean noStatistics = false;
 
+    @Option(name = "-rS", aliases = "--recomputeStatistics", usage = "Don't compute clusters, only recompute the statistics of the clusters of the .gck input file,\n" +
+            "with the parameters stored in the file or the distance parameters, if set.")
+    private boolean recomputeStatistics = false;
+
+    @Option(name = "-t", aliases = "--threads", usage = "The number of threads used for the cluster detection.")
+    private int nrOfThreads = 1;
+
+    @Option(name = "-pM", aliases = "--parallelMode", usage = "How the threads are used, for different [referenceGenomes] (default), for the [targetGenomes] of one reference genome\n" +
+            "or for ranges of [leftBorders] in each reference chromosome.\n" +
+            "With a single reference genome, referenceGenomes uses the threads for the target genomes.")
+    private Parameter.ParallelMode parallelMode = Parameter.ParallelMode.referenceGenomes;
+
+    @Option(name = "-sM", aliases = "--storageMode", usage = "Where the working arrays of the cluster detection are stored, on the [heap] (default),\n" +
+            "in [direct] buffers outside the java heap or in a [mapped] scratch file, for data sets that do not fit into memory.")
+    private Parameter.StorageMode storageMode = Parameter.StorageMode.heap;
+
+    @Option(name = "--scratchDir", usage = "The directory of the scratch file of the mapped storage mode. Default is the temporary directory.")
+    private File scratchDirectory = null;
+
     /*
      * Files
      */
@@ -125,6 +148,10 @@ public class CommandLineOptions {
         return minClusterSize;
     }
 
+    public int getMaxClusterSize() {
+        return maxClusterSize;
+    }
+
     public int getMinCoveredGenomes() {
         return minCoveredGenomes;
     }
@@ -173,6 +200,30 @@ public class CommandLineOptions {
         return noStatistics;
     }
 
+    public boolean recomputeStatistics() {
+        return recomputeStatistics;
+    }
+
+    public boolean hasDistanceParameters() {
+        return maxDistance >= 0 || (distanceTable != null && distanceTable.length > 0);
+    }
+
+    public int getNrOfThreads() {
+        return nrOfThreads;
+    }
+
+    public Parameter.ParallelMode getParallelMode() {
+        return parallelMode;
+    }
+
+    public Parameter.StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    public File getScratchDirectory() {
+        return scratchDirectory;
+    }
+
     public boolean showHelp() {
         return help;
     }
@@ -184,7 +235,17 @@ public class CommandLineOptions {
         if (gui && distanceTable == null && maxDistance < 0 && minClusterSize < 0){
             noComputation = true;
         }
-        if (!noComputation){
+        if (nrOfThreads < 1)
+            throw new CmdLineException(parser, "Number of threads has to be >= 1.");
+        if (maxClusterSize < 0)
+            throw new CmdLineException(parser, "Maximum cluster size has to be >= 0.");
+        if (recomputeStatistics && noStatistics)
+            throw new CmdLineException(parser, "Recomputing the statistics and \"--noStatistics\" set.");
+        if (recomputeStatistics && noComputation)
+            throw new CmdLineException(parser, "Recomputing the statistics and \"-nC\" set.");
+        if (recomputeStatistics && refInRef)
+            throw new CmdLineException(parser, "Recomputing the statistics and \"--refInRef\" set, the statistics of clusters searched in the reference genome can not be recomputed.");
+        if (!noComputation && (!recomputeStatistics || hasDistanceParameters())){
             if ((distanceTable == null || distanceTable.length == 0) && (maxDistance < 0))
                 throw new CmdLineException(parser, "Not running gui or no computation and missing either \"-d\" or \"-dT\" or distance < 0.");
             if ((distanceTable != null && distanceTable.length > 0) && (maxDistance >= 0))
@@ -193,6 +254,8 @@ public class CommandLineOptions {
                 throw new CmdLineException(parser, "Using distance table und minimum cluster size set.");
             if (minClusterSize < 0 && maxDistance >= 0)
                 throw new CmdLineException(parser, "Using single distance value and minimum cluster size < 0 or not set.");
+            if (maxClusterSize > 0 && maxClusterSize < minClusterSize)
+                throw new CmdLineException(parser, "Maximum cluster size is smaller than the minimum cluster size.");
         }
     }
 
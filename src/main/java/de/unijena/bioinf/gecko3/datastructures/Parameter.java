@@ -22,6 +22,8 @@ package de.unijena.bioinf.gecko3.datastructures;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+
 public class Parameter {
     public enum OperationMode {
         reference('r'), median('m'), center('c');
@@ -94,6 +96,80 @@ public class Parameter {
         }
     }
 
+    /**
+     * How the threads are used for the cluster detection, if more than one thread is used.
+     */
+    public enum ParallelMode {
+        referenceGenomes('r', "reference genomes"), targetGenomes('t', "target genomes"), leftBorders('l', "left borders");
+
+        private final char shortForm;
+        private final String text;
+
+        private ParallelMode(char c, String text) {
+            shortForm = c;
+            this.text = text;
+        }
+
+        public char getCharMode() {
+            return shortForm;
+        }
+
+        public String toString() {
+            return text;
+        }
+
+        public static ParallelMode getParallelModeFromChar(char c) {
+            switch (c) {
+                case 'r':
+                    return referenceGenomes;
+                case 't':
+                    return targetGenomes;
+                case 'l':
+                    return leftBorders;
+                default:
+                    throw new IllegalArgumentException("Only 'r', 't' or 'l' are supported!");
+            }
+        }
+    }
+
+    /**
+     * Where the working arrays of the cluster detection are stored.
+     * Direct buffers and regions of the memory mapped file are limited to 2 GB, so each working array holds at most
+     * Integer.MAX_VALUE / 4 values in these modes. Larger arrays are only supported on the heap.
+     */
+    public enum StorageMode {
+        heap('h', "heap"), direct('d', "direct buffers"), mapped('m', "memory mapped file");
+
+        private final char shortForm;
+        private final String text;
+
+        private StorageMode(char c, String text) {
+            shortForm = c;
+            this.text = text;
+        }
+
+        public char getCharMode() {
+            return shortForm;
+        }
+
+        public String toString() {
+            return text;
+        }
+
+        public static StorageMode getStorageModeFromChar(char c) {
+            switch (c) {
+                case 'h':
+                    return heap;
+                case 'd':
+                    return direct;
+                case 'm':
+                    return mapped;
+                default:
+                    throw new IllegalArgumentException("Only 'h', 'd' or 'm' are supported!");
+            }
+        }
+    }
+
     public enum DeltaTable {
         highly_conserved("Default"), low_conserved("Low conserved"), relaxed("Relaxed"), lichtheimia("Lichtheimia"), lichtheimia_inner("Lichtheimia Inner"), statistic_paper("Statistics"), test_five_proteobacter("Test five proteobacter");
 
@@ -184,6 +260,13 @@ public class Parameter {
 	private final boolean searchRefInRef;
     private final boolean noStatistics;
     private int alphabetSize;
+    private int nrOfThreads;
+    private ParallelMode parallelMode;
+    private StorageMode storageMode;
+    private File scratchDirectory;
+    private boolean coveragePruning;
+    private boolean leftBorderSkipping;
+    private int maxClusterSize;
 	
 	public Parameter(int delta, int minClusterSize, int q, OperationMode operationMode, ReferenceType refType) {
 		this(delta, minClusterSize, q, operationMode, refType, false, false);
@@ -204,6 +287,13 @@ public class Parameter {
 		this.alphabetSize = -1;
 		this.searchRefInRef = searchRefInRef;
         this.noStatistics = noStatistics;
+        this.nrOfThreads = 1;
+        this.parallelMode = ParallelMode.referenceGenomes;
+        this.storageMode = StorageMode.heap;
+        this.scratchDirectory = null;
+        this.coveragePruning = true;
+        this.leftBorderSkipping = true;
+        this.maxClusterSize = 0;
 	}
 	
 	public Parameter(int[][] deltaTable, int minClusterSize, int q, OperationMode operationMode, ReferenceType refType) {
@@ -232,6 +322,13 @@ public class Parameter {
 		this.alphabetSize = -1;
 		this.searchRefInRef = searchRefInRef;
         this.noStatistics = noStatistics;
+        this.nrOfThreads = 1;
+        this.parallelMode = ParallelMode.referenceGenomes;
+        this.storageMode = StorageMode.heap;
+        this.scratchDirectory = null;
+        this.coveragePruning = true;
+        this.leftBorderSkipping = true;
+        this.maxClusterSize = 0;
     }
 	
 	public ReferenceType getRefType() {
@@ -286,6 +383,118 @@ public class Parameter {
         return noStatistics;
     }
 
+    /**
+     * Sets the number of threads used for the cluster detection and the computation of the p-values.
+     * Does not change the results. The search is split between the threads as chosen by {@link #setParallelMode},
+     * the p-values of the clusters are computed in parallel tasks.
+     * @param nrOfThreads the number of threads, has to be >= 1
+     */
+    public void setNrOfThreads(int nrOfThreads) {
+        if (nrOfThreads < 1)
+            throw new IllegalArgumentException("Number of threads has to be >= 1!");
+        this.nrOfThreads = nrOfThreads;
+    }
+
+    public int getNrOfThreads() {
+        return nrOfThreads;
+    }
+
+    /**
+     * Sets how the threads are used for the cluster detection.
+     * With {@link ParallelMode#referenceGenomes} each thread searches with other reference genomes,
+     * with {@link ParallelMode#targetGenomes} all threads search with the same reference genome and share the
+     * updates of the other genomes. With {@link ParallelMode#leftBorders} each reference chromosome is split into ranges
+     * of left borders that are searched in parallel, this also uses all threads for a single reference genome.
+     * If only one reference genome is used, {@link ParallelMode#referenceGenomes} uses the threads for the target genomes.
+     * @param parallelMode the parallel mode, must not be null
+     */
+    public void setParallelMode(ParallelMode parallelMode) {
+        if (parallelMode == null)
+            throw new IllegalArgumentException("Parallel mode must not be null!");
+        this.parallelMode = parallelMode;
+    }
+
+    public ParallelMode getParallelMode() {
+        return parallelMode;
+    }
+
+    /**
+     * Sets where the genes, occurrence indexes and matrices of the cluster detection are stored.
+     * With {@link StorageMode#direct} they are stored in direct buffers outside the java heap,
+     * with {@link StorageMode#mapped} in a memory mapped scratch file, so they can exceed the physical memory.
+     * Does not change the results.
+     * @param storageMode the storage mode, must not be null
+     */
+    public void setStorageMode(StorageMode storageMode) {
+        if (storageMode == null)
+            throw new IllegalArgumentException("Storage mode must not be null!");
+        this.storageMode = storageMode;
+    }
+
+    public StorageMode getStorageMode() {
+        return storageMode;
+    }
+
+    /**
+     * Sets the directory of the scratch file for {@link StorageMode#mapped}.
+     * @param scratchDirectory the directory, or null for the default temporary directory
+     */
+    public void setScratchDirectory(File scratchDirectory) {
+        this.scratchDirectory = scratchDirectory;
+    }
+
+    public File getScratchDirectory() {
+        return scratchDirectory;
+    }
+
+    /**
+     * Sets if the extension of a pattern is stopped as soon as too many genomes miss more than delta characters
+     * of the pattern on each of their chromosomes. If false, only the characters missing in the whole genome
+     * are counted. Does not change the results.
+     * @param coveragePruning true to count the missing characters per chromosome
+     */
+    public void setCoveragePruning(boolean coveragePruning) {
+        this.coveragePruning = coveragePruning;
+    }
+
+    public boolean useCoveragePruning() {
+        return coveragePruning;
+    }
+
+    /**
+     * Sets if left borders are skipped, if the reference genes from the left border up to the last possible
+     * right border occur identically in a genome with a smaller number. All patterns of such a left border
+     * have a reference occurrence in that genome, so they are never the first reference occurrence.
+     * Does not change the results.
+     * @param leftBorderSkipping true to skip these left borders
+     */
+    public void setLeftBorderSkipping(boolean leftBorderSkipping) {
+        this.leftBorderSkipping = leftBorderSkipping;
+    }
+
+    public boolean useLeftBorderSkipping() {
+        return leftBorderSkipping;
+    }
+
+    /**
+     * Sets the maximum cluster size. Patterns are not extended beyond this size, so no larger clusters are found.
+     * Changes the results, clusters that are only nested in larger clusters are reported instead of them.
+     * @param maxClusterSize the maximum cluster size, 0 for no maximum, has to be >= 0
+     */
+    public void setMaxClusterSize(int maxClusterSize) {
+        if (maxClusterSize < 0)
+            throw new IllegalArgumentException("Maximum cluster size has to be >= 0!");
+        this.maxClusterSize = maxClusterSize;
+    }
+
+    /**
+     * The maximum cluster size.
+     * @return the maximum cluster size, 0 for no maximum
+     */
+    public int getMaxClusterSize() {
+        return maxClusterSize;
+    }
+
     public boolean useJavaAlgorithm() {
 		return operationMode == OperationMode.reference;
 	}
@@ -23,6 +23,7 @@ import de.unijena.bioinf.gecko3.GeckoInstance;
 import de.unijena.bioinf.gecko3.algo.status.AlgorithmStatusEvent;
 import de.unijena.bioinf.gecko3.datastructures.DataSet;
 import de.unijena.bioinf.gecko3.datastructures.GeneCluster;
+import de.unijena.bioinf.gecko3.datastructures.Parameter;
 import de.unijena.bioinf.gecko3.io.ClusterAnnotationReader;
 import de.unijena.bioinf.gecko3.io.CogFileReader;
 import de.unijena.bioinf.gecko3.io.DataSetWriter;
@@ -184,6 +185,7 @@ public class Gui {
 		menuFile.add(importGenomesAction);
 		menuFile.add(saveSessionAction);
 		menuFile.add(exportResultsAction);
+		menuFile.add(recomputeStatisticsAction);
 		menuFile.addSeparator();
 		menuFile.add(exitAction);
 		
@@ -468,6 +470,7 @@ public class Gui {
 		importGenomesAction.setEnabled(importGenomes);
 		
         startComputation.setEnabled(clusterBrowserActive);
+		recomputeStatisticsAction.setEnabled(clusterBrowserActive);
 		clearSelectionAction.setEnabled(clusterBrowserActive);
 		saveSessionAction.setEnabled(clusterBrowserActive);
 		if (clusterBrowserActive) {
@@ -645,6 +648,25 @@ public class Gui {
 		}
 	};
 	
+	private final Action recomputeStatisticsAction = new AbstractAction() {
+		private static final long serialVersionUID = 2815467309321687412L;
+		public void actionPerformed(ActionEvent e) {
+			Parameter parameter = gecko.getData().getParameters();
+			if (parameter == null || gecko.getClusters() == null || gecko.getClusters().isEmpty()) {
+				JOptionPane.showMessageDialog(mainframe, "There are no gene clusters with parameters, run a computation first.", "No gene clusters", JOptionPane.WARNING_MESSAGE);
+				return;
+			}
+			if (parameter.searchRefInRef()) {
+				JOptionPane.showMessageDialog(mainframe, "The gene clusters were also searched in the reference genome, their statistics can not be recomputed.", "Statistics not recomputable", JOptionPane.ERROR_MESSAGE);
+				return;
+			}
+			Preferences preferences = gecko.getPreferences();
+			if (preferences != null)
+				parameter.setNrOfThreads(Math.max(1, Math.min(preferences.getInt("nrOfThreads", 1), Runtime.getRuntime().availableProcessors())));
+			gecko.performStatisticsRecomputation(parameter, 1.1);
+		}
+	};
+	
 	private final Action exitAction = new AbstractAction() {
 		private static final long serialVersionUID = 196167012152483868L;
 
@@ -856,6 +878,10 @@ public class Gui {
 		startComputation.putValue(Action.ACCELERATOR_KEY, KeyStroke.getKeyStroke( KeyEvent.VK_R, Toolkit.getDefaultToolkit().getMenuShortcutKeyMask()));
 		startComputation.setEnabled(false);
 		
+		recomputeStatisticsAction.putValue(Action.NAME, "Recompute statistics");
+		recomputeStatisticsAction.putValue(Action.SHORT_DESCRIPTION, "Recompute the p-values of the gene clusters");
+		recomputeStatisticsAction.setEnabled(false);
+		
 		saveSessionAction.putValue(Action.NAME, "Save session...");
 		saveSessionAction.putValue(Action.SHORT_DESCRIPTION, "Save session...");
 		saveSessionAction.putValue(Action.SMALL_ICON, createImageIcon("images/filesave.png"));
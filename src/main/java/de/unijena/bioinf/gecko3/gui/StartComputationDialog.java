@@ -65,6 +65,9 @@ public class StartComputationDialog extends JDialog {
     private final DeltaTable deltaTable;
     private final JSpinner distanceSpinner;
     private final JSpinner sizeSpinner;
+    private final JSpinner maxSizeSpinner;
+    private final JSpinner threadSpinner;
+    private final JComboBox<Parameter.ParallelMode> parallelModeCombo;
 
 	public StartComputationDialog(JFrame parent) {
         final GeckoInstance gecko = GeckoInstance.getInstance();
@@ -77,6 +80,8 @@ public class StartComputationDialog extends JDialog {
         this.refType = Parameter.ReferenceType.allAgainstAll;
 
         this.sizeSpinner = new JSpinner(new SpinnerNumberModel(7, 0, Integer.MAX_VALUE, 1));
+        this.maxSizeSpinner = new JSpinner(new SpinnerNumberModel(0, 0, Integer.MAX_VALUE, 1));
+        this.maxSizeSpinner.setToolTipText("Patterns are not extended beyond this size, 0 for no maximum. Changes the results.");
         this.distanceSpinner = new JSpinner(new SpinnerNumberModel(3, 0, Integer.MAX_VALUE, 1));
         this.deltaTable = new DeltaTable();
 
@@ -105,6 +110,9 @@ public class StartComputationDialog extends JDialog {
         refInRef = new JCheckBox("Search Ref. in Ref.");
         refInRef.setSelected(false);
 
+        threadSpinner = new JSpinner(new SpinnerNumberModel(1, 1, Runtime.getRuntime().availableProcessors(), 1));
+        parallelModeCombo = new JComboBox<>(Parameter.ParallelMode.values());
+
         /*
          * Ref cluster options
          */
@@ -212,6 +220,9 @@ public class StartComputationDialog extends JDialog {
                                 false);
                     }
                 }
+                parameter.setMaxClusterSize((Integer) maxSizeSpinner.getValue());
+                parameter.setNrOfThreads((Integer) threadSpinner.getValue());
+                parameter.setParallelMode((Parameter.ParallelMode) parallelModeCombo.getSelectedItem());
 
 				// Reorder the genomes if necessary
 				if (opMode==Parameter.OperationMode.reference && refType==Parameter.ReferenceType.genome && refGenomeCombo.getSelectedIndex()!=0) {
@@ -304,12 +315,14 @@ public class StartComputationDialog extends JDialog {
         // Ref in Ref
         refInRef.setSelected(parameters.searchRefInRef());
 
+        // Maximum size
+        maxSizeSpinner.setValue(parameters.getMaxClusterSize());
     }
 
     private JComponent getBody(){
         FormLayout layout = new FormLayout(
                 "pref, 4dlu, pref",
-                "p, 2dlu, p, 2dlu, p, 2dlu, p"
+                "p, 2dlu, p, 2dlu, p, 2dlu, p, 2dlu, p, 2dlu, p, 2dlu, p"
         );
         PanelBuilder builder  = new PanelBuilder(layout);
         CellConstraints cc = new CellConstraints();
@@ -325,6 +338,15 @@ public class StartComputationDialog extends JDialog {
         //builder.add(mergeResults, cc.xy(1, 7));
         builder.add(refInRef,                       cc.xy(1, 7));
 
+        builder.addLabel("Maximum cluster size:",   cc.xy(1, 9));
+        builder.add(maxSizeSpinner,                 cc.xy(3, 9));
+
+        builder.addLabel("Threads:",                cc.xy(1, 11));
+        builder.add(threadSpinner,                  cc.xy(3, 11));
+
+        builder.addLabel("Parallel over:",          cc.xy(1, 13));
+        builder.add(parallelModeCombo,              cc.xy(3, 13));
+
         return builder.getPanel();
     }
 
@@ -353,6 +375,9 @@ public class StartComputationDialog extends JDialog {
             preferences.put("refType", Character.toString(refType.getCharMode()));
             preferences.put("operationMode", Character.toString(opMode.getCharMode()));
             preferences.putBoolean("refInRef", refInRef.isSelected());
+            preferences.putInt("maxClusterSize", (int)maxSizeSpinner.getValue());
+            preferences.putInt("nrOfThreads", (int)threadSpinner.getValue());
+            preferences.put("parallelMode", Character.toString(((Parameter.ParallelMode) parallelModeCombo.getSelectedItem()).getCharMode()));
         }
     }
 
@@ -394,6 +419,9 @@ public class StartComputationDialog extends JDialog {
             Parameter.ReferenceType referenceType = Parameter.ReferenceType.getReferenceTypeFromChar(preferences.get("refType", "a").charAt(0));
             Parameter.OperationMode operationMode = Parameter.OperationMode.getOperationModeFromChar(preferences.get("operationMode", "r").charAt(0));
             boolean searchRefInRef = preferences.getBoolean("refInRef", false);
+            int maxClusterSize = preferences.getInt("maxClusterSize", 0);
+            int nrOfThreads = preferences.getInt("nrOfThreads", 1);
+            Parameter.ParallelMode parallelMode = Parameter.ParallelMode.getParallelModeFromChar(preferences.get("parallelMode", "r").charAt(0));
 
             // Set values
 
@@ -418,6 +446,13 @@ public class StartComputationDialog extends JDialog {
 
             // Ref in Ref
             refInRef.setSelected(searchRefInRef);
+
+            // Maximum size
+            maxSizeSpinner.setValue(Math.max(0, maxClusterSize));
+
+            // Threads
+            threadSpinner.setValue(Math.max(1, Math.min(nrOfThreads, Runtime.getRuntime().availableProcessors())));
+            parallelModeCombo.setSelectedItem(parallelMode);
         }
     }
 
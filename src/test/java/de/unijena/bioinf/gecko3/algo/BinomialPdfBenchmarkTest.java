@@ -0,0 +1,78 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.unijena.bioinf.gecko3.algo;
+
+import cern.jet.random.Binomial;
+import cern.jet.random.engine.MersenneTwister;
+import de.unijena.bioinf.gecko3.testUtils.PerformanceTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the computation of complete binomial pdfs, as used by the p-value tables, with the Colt implementation
+ * that allocates a distribution object with a random engine for each pdf.
+ */
+@Category(PerformanceTest.class)
+public class BinomialPdfBenchmarkTest {
+    private static final int DISTRIBUTIONS = 20000;
+    private static final int MAX_N = 60;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void binomialPdf() {
+        Random random = new Random(3);
+        int[] n = new int[DISTRIBUTIONS];
+        double[] p = new double[DISTRIBUTIONS];
+        for (int i=0; i<DISTRIBUTIONS; i++) {
+            n[i] = 1 + random.nextInt(MAX_N);
+            p[i] = 0.001 + 0.998 * random.nextDouble();
+        }
+        MersenneTwister engine = new MersenneTwister();
+
+        double checksum = 0.0;
+        long coltTime = Long.MAX_VALUE;
+        long pdfTime = Long.MAX_VALUE;
+        for (int round=0; round<ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i=0; i<DISTRIBUTIONS; i++) {
+                Binomial binomial = new Binomial(n[i], p[i], engine);
+                for (int k=0; k<=n[i]; k++)
+                    checksum += binomial.pdf(k);
+            }
+            coltTime = Math.min(coltTime, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i=0; i<DISTRIBUTIONS; i++) {
+                double[] pdf = BinomialPdf.pdf(n[i], p[i]);
+                for (int k=0; k<=n[i]; k++)
+                    checksum -= pdf[k];
+            }
+            pdfTime = Math.min(pdfTime, System.nanoTime() - start);
+        }
+        System.out.println(String.format("Colt Binomial: %d ns per distribution", coltTime / DISTRIBUTIONS));
+        System.out.println(String.format("BinomialPdf: %d ns per distribution", pdfTime / DISTRIBUTIONS));
+        assertTrue(Math.abs(checksum) < 1e-6);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.unijena.bioinf.gecko3.algo;
+
+import cern.jet.random.Binomial;
+import cern.jet.random.engine.MersenneTwister;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that the binomial pdf gives exactly the values of the Colt implementation.
+ */
+public class BinomialPdfTest {
+
+    @Test
+    public void testSameAsColt() {
+        Random random = new Random(5);
+        MersenneTwister engine = new MersenneTwister();
+        for (int i=0; i<500; i++) {
+            int n = 1 + random.nextInt(i < 250 ? 40 : 2000);
+            double p = (i % 5 == 0) ? 1.0 / (2 + random.nextInt(100000)) : random.nextDouble();
+            if (p == 0.0)
+                continue;
+            Binomial binomial = new Binomial(n, p, engine);
+            double[] pdf = BinomialPdf.pdf(n, p);
+            assertEquals(n + 1, pdf.length);
+            double sum = 0.0;
+            for (int k=0; k<=n; k++) {
+                assertEquals(Double.doubleToLongBits(binomial.pdf(k)), Double.doubleToLongBits(pdf[k]));
+                sum += pdf[k];
+            }
+            assertEquals(1.0, sum, 1e-10);
+        }
+    }
+
+    @Test
+    public void testSmallDistribution() {
+        double[] pdf = BinomialPdf.pdf(2, 0.5);
+        assertEquals(0.25, pdf[0], 1e-15);
+        assertEquals(0.5, pdf[1], 1e-15);
+        assertEquals(0.25, pdf[2], 1e-15);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidProbability() {
+        BinomialPdf.pdf(10, 1.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoTrials() {
+        BinomialPdf.pdf(0, 0.5);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.unijena.bioinf.gecko3.algo;
+
+import de.unijena.bioinf.gecko3.testUtils.PerformanceTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.math.MathContext;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the combination of the p-values of 500 genomes with quorum, that is quadratic in the number of genomes
+ * and computed for every cluster.
+ */
+@Category(PerformanceTest.class)
+public class CombinePValuesBenchmarkTest {
+    private static final int NR_OF_GENOMES = 500;
+    private static final int CLUSTERS = 200;
+
+    @Test
+    public void combine500Genomes() {
+        Random random = new Random(1);
+        double[][] pValues = new double[CLUSTERS][NR_OF_GENOMES];
+        for (double[] pValue : pValues) {
+            for (int k=0; k<NR_OF_GENOMES; k++)
+                pValue[k] = Math.pow(10, -20 * random.nextDouble());
+            pValue[0] = 1.0;
+        }
+
+        ScaledProbabilities qArray = new ScaledProbabilities(NR_OF_GENOMES + 1);
+        ScaledProbabilities combined = new ScaledProbabilities(CLUSTERS);
+        long time = Long.MAX_VALUE;
+        for (int round=0; round<3; round++) {
+            long start = System.nanoTime();
+            for (int c=0; c<CLUSTERS; c++)
+                Statistics.combine_pValuesWithQuorum(pValues[c], NR_OF_GENOMES / 2, NR_OF_GENOMES, qArray, combined, c);
+            time = Math.min(time, System.nanoTime() - start);
+        }
+        System.out.println(String.format("combine_pValuesWithQuorum: %d us per cluster of %d genomes", time / CLUSTERS / 1000, NR_OF_GENOMES));
+        System.out.println(String.format("First combined p-value: %s", combined.toBigDecimal(0).round(new MathContext(6))));
+        assertTrue(combined.toDouble(0) == 0.0 && combined.toBigDecimal(0).signum() > 0);
+    }
+}
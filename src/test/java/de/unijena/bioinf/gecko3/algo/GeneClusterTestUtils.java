@@ -41,6 +41,7 @@ import java.util.zip.DataFormatException;
 import static org.junit.Assert.*;
 
 public class GeneClusterTestUtils {
+    private static final int PARALLEL_THREADS = 4;
 
     public static void performTest(Parameter p, int[][][] genomes, ExpectedReferenceClusterValues[] expectedReferenceClusters) {
         performTest(p, genomes, null, expectedReferenceClusters);
@@ -50,6 +51,25 @@ public class GeneClusterTestUtils {
         // Test the java implementation
         List<ReferenceCluster> javaRes = ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, genomeGroups);
         compareReferenceClusters(expectedReferenceClusters, javaRes, PValueComparison.COMPARE_NONE);
+
+        // Test without the coverage pruning and the skipping of left borders, has to give exactly the same results
+        p.setCoveragePruning(false);
+        p.setLeftBorderSkipping(false);
+        List<ReferenceCluster> unprunedRes = ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, genomeGroups);
+        p.setCoveragePruning(true);
+        p.setLeftBorderSkipping(true);
+        compareReferenceClusters(javaRes, unprunedRes, PValueComparison.COMPARE_ALL);
+
+        // Test the parallel java implementation in all modes, has to give exactly the same results
+        for (Parameter.ParallelMode mode : Parameter.ParallelMode.values()) {
+            p.setNrOfThreads(PARALLEL_THREADS);
+            p.setParallelMode(mode);
+            List<ReferenceCluster> parallelRes = ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, genomeGroups);
+            p.setNrOfThreads(1);
+            p.setParallelMode(Parameter.ParallelMode.referenceGenomes);
+            compareReferenceClusters(expectedReferenceClusters, parallelRes, PValueComparison.COMPARE_NONE);
+            compareReferenceClusters(javaRes, parallelRes, PValueComparison.COMPARE_ALL);
+        }
     }
 
     public enum PValueComparison {
@@ -306,6 +326,29 @@ public class GeneClusterTestUtils {
 		
 		compareGeneClusters(expectedData.getClusters(), javaRes, PValueComparison.COMPARE_NONE);
 
+        // Test without the coverage pruning and the skipping of left borders, has to give exactly the same results
+        settings.p.setCoveragePruning(false);
+        settings.p.setLeftBorderSkipping(false);
+        List<GeneCluster> unprunedRes = GeckoInstance.computeClustersJava(actualData, settings.p, settings.genomeGroups, false, null);
+        settings.p.setCoveragePruning(true);
+        settings.p.setLeftBorderSkipping(true);
+        compareGeneClusters(javaRes, unprunedRes, PValueComparison.COMPARE_ALL);
+
+        // Test the parallel computation in all modes, has to give exactly the same results
+        for (Parameter.ParallelMode mode : Parameter.ParallelMode.values()) {
+            settings.p.setNrOfThreads(PARALLEL_THREADS);
+            settings.p.setParallelMode(mode);
+            List<GeneCluster> parallelRes = GeckoInstance.computeClustersJava(actualData, settings.p, settings.genomeGroups, false, null);
+            settings.p.setNrOfThreads(1);
+            settings.p.setParallelMode(Parameter.ParallelMode.referenceGenomes);
+
+            compareGeneClusters(javaRes, parallelRes, PValueComparison.COMPARE_ALL);
+        }
+
+        // Recompute only the statistics from the occurrences of the clusters, has to give exactly the same results
+        List<GeneCluster> recomputedRes = ReferenceClusterAlgorithm.recomputeStatistics(actualData, javaRes, settings.p, false, settings.genomeGroups, null);
+        compareGeneClusters(javaRes, recomputedRes, PValueComparison.COMPARE_ALL);
+
         // Test with memory reduction
         CogFileReader reducedReader = new CogFileReader(settings.dataFile);
         DataSet reducedData = reducedReader.readData();
@@ -323,6 +366,9 @@ public class GeneClusterTestUtils {
         reducedData.setClusters(reducedRes, settings.p);
 
         compareGeneClusters(expectedData.getClusters(), reducedRes, PValueComparison.COMPARE_NONE);
+
+        List<GeneCluster> recomputedReducedRes = ReferenceClusterAlgorithm.recomputeStatistics(reducedData, reducedRes, settings.p, true, settings.genomeGroups, null);
+        compareGeneClusters(reducedRes, recomputedReducedRes, PValueComparison.COMPARE_ALL);
 	}
 			
 	/**
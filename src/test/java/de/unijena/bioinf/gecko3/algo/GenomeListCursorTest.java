@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.unijena.bioinf.gecko3.algo;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests that the parallel update of the matrices and the computation at an arbitrary left border
+ * give the same matrices as the sequential update.
+ */
+public class GenomeListCursorTest {
+    private static final int MAX_DELTA = 3;
+
+    private static int[][][] randomGenomes(Random random, int nrOfGenomes, int alphabetSize) {
+        int[][][] genomes = new int[nrOfGenomes][][];
+        for (int k=0; k<nrOfGenomes; k++) {
+            genomes[k] = new int[1 + random.nextInt(3)][];
+            for (int c=0; c<genomes[k].length; c++) {
+                int[] chr = new int[20 + random.nextInt(150) + 2];
+                for (int i=1; i<chr.length-1; i++)
+                    chr[i] = (random.nextInt(20) == 0) ? -1 : 1 + random.nextInt(alphabetSize);
+                genomes[k][c] = chr;
+            }
+        }
+        return genomes;
+    }
+
+    /**
+     * Compares the matrices of all non reference chromosomes.
+     * If markedChars is not null, L_prime and R_prime are only compared where they are used by the search,
+     * for distances > 0 at the positions of characters that occur in the reference interval.
+     */
+    private static void assertSameMatrices(GenomeListCursor expected, GenomeListCursor actual, int nrOfGenomes, int refGenomeNr, boolean[] markedChars) {
+        for (int k=0; k<nrOfGenomes; k++) {
+            if (k == refGenomeNr)
+                continue;
+            for (int c=0; c<expected.get(k).length; c++) {
+                ChromosomeCursor e = expected.get(k)[c];
+                ChromosomeCursor a = actual.get(k)[c];
+                for (int pos=0; pos<=e.getChromosome().getEffectiveGeneNumber()+1; pos++) {
+                    int gene = e.getChromosome().getGene(pos);
+                    boolean comparePrimes = markedChars == null || (gene > 0 && markedChars[gene]);
+                    for (int diff=0; diff<=MAX_DELTA+1; diff++) {
+                        assertEquals(e.getL(pos, diff), a.getL(pos, diff));
+                        assertEquals(e.getR(pos, diff), a.getR(pos, diff));
+                        if (!comparePrimes || (markedChars != null && diff == 0))
+                            continue;
+                        assertEquals(e.getL_prime(pos, diff), a.getL_prime(pos, diff));
+                        assertEquals(e.getR_prime(pos, diff), a.getR_prime(pos, diff));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelUpdate() {
+        Random random = new Random(42);
+        int alphabetSize = 25;
+        GenomeList genomes = new GenomeList(randomGenomes(random, 6, alphabetSize), alphabetSize);
+        genomes.initializeForCalculation();
+
+        WorkerGroup workers = new WorkerGroup(3);
+        try {
+            GenomeListCursor sequential = new GenomeListCursor(genomes, MAX_DELTA);
+            GenomeListCursor parallel = new GenomeListCursor(genomes, MAX_DELTA, workers, 0, IntStorageFactory.HEAP);
+            for (int refGenomeNr=0; refGenomeNr<genomes.size(); refGenomeNr++) {
+                Chromosome refChr = genomes.get(refGenomeNr).get(0);
+                for (int l=1; l<=refChr.getEffectiveGeneNumber(); l++) {
+                    sequential.updateLeftBorder(l, refChr, refGenomeNr);
+                    parallel.updateLeftBorder(l, refChr, refGenomeNr);
+                    assertSameMatrices(sequential, parallel, genomes.size(), refGenomeNr, null);
+                }
+            }
+        } finally {
+            workers.close();
+        }
+    }
+
+    @Test
+    public void testSetLeftBorder() {
+        Random random = new Random(7);
+        int alphabetSize = 25;
+        GenomeList genomes = new GenomeList(randomGenomes(random, 4, alphabetSize), alphabetSize);
+        genomes.initializeForCalculation();
+
+        GenomeListCursor incremental = new GenomeListCursor(genomes, MAX_DELTA);
+        GenomeListCursor computed = new GenomeListCursor(genomes, MAX_DELTA);
+        for (int refGenomeNr=0; refGenomeNr<genomes.size(); refGenomeNr++) {
+            for (Chromosome refChr : genomes.get(refGenomeNr)) {
+                for (int l=1; l<=refChr.getEffectiveGeneNumber(); l++) {
+                    incremental.updateLeftBorder(l, refChr, refGenomeNr);
+                    computed.setLeftBorder(l, refChr, refGenomeNr);
+                    boolean[] markedChars = new boolean[alphabetSize + 1];
+                    for (int i=l; i<=refChr.getEffectiveGeneNumber(); i++)
+                        if (refChr.getGene(i) > 0)
+                            markedChars[refChr.getGene(i)] = true;
+                    assertSameMatrices(incremental, computed, genomes.size(), refGenomeNr, markedChars);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.unijena.bioinf.gecko3.algo;
+
+import de.unijena.bioinf.gecko3.datastructures.Parameter;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the presence bitmap of the genome list against the occurrences in the single genomes,
+ * and the copy of the reference genome.
+ */
+public class GenomeListTest {
+
+    @Test
+    public void testPresence() {
+        Random random = new Random(11);
+        int alphabetSize = 300;
+        int nrOfGenomes = 130;    // more than two words per character
+        int[][][] intGenomes = new int[nrOfGenomes][1][];
+        for (int k=0; k<nrOfGenomes; k++) {
+            int[] chr = new int[40 + 2];
+            for (int i=1; i<chr.length-1; i++)
+                chr[i] = (random.nextInt(20) == 0) ? -1 : 1 + random.nextInt(alphabetSize);
+            intGenomes[k][0] = chr;
+        }
+        GenomeList genomes = new GenomeList(intGenomes, alphabetSize);
+        genomes.initializeForCalculation();
+
+        int delta = 2;
+        int[] noOccCount = new int[nrOfGenomes];
+        int[] expectedNoOccCount = new int[nrOfGenomes];
+        int uncovered = 0;
+        for (int c=-2; c<=alphabetSize; c++) {
+            int containing = 0;
+            for (int k=0; k<nrOfGenomes; k++) {
+                boolean occurs = c >= 0 && genomes.get(k).noOcc(c) == 0;
+                assertEquals(occurs, genomes.occursIn(c, k));
+                if (occurs)
+                    containing++;
+                expectedNoOccCount[k] += genomes.get(k).noOcc(c);
+            }
+            assertEquals(containing, genomes.getNrOfGenomesContaining(c));
+
+            uncovered += genomes.addNoOccs(c, noOccCount, delta);
+            int expectedUncovered = 0;
+            for (int k=0; k<nrOfGenomes; k++) {
+                assertEquals(expectedNoOccCount[k], noOccCount[k]);
+                if (noOccCount[k] > delta)
+                    expectedUncovered++;
+            }
+            assertEquals(expectedUncovered, uncovered);
+        }
+    }
+
+    @Test
+    public void testReferenceCopy() {
+        int[][][] intGenomes = new int[][][]{
+                {{0, 1, 2, 3, 0}, {0, 4, 1, 0}},
+                {{0, 3, 2, 1, 4, 0}}
+        };
+        GenomeList genomes = new GenomeList(intGenomes, 4);
+        genomes.initializeForCalculation();
+        Parameter p = new Parameter(1, 2, 2, Parameter.OperationMode.reference, Parameter.ReferenceType.allAgainstAll, true, true);
+        AlgorithmParameters param = new AlgorithmParameters(p, 4, genomes.size());
+
+        genomes.appendCopyOfReferenceGenome(0, param);
+        assertEquals(3, genomes.size());
+        assertEquals(3, param.getNrOfGenomes());
+        Genome reference = genomes.get(0);
+        Genome copy = genomes.get(2);
+        assertEquals(reference.getNr(), copy.getNr());
+        assertEquals(reference.getNumberOfChromosomes(), copy.getNumberOfChromosomes());
+        for (int j=0; j<reference.getNumberOfChromosomes(); j++)
+            assertSame(reference.get(j), copy.get(j));
+        for (int c=1; c<=4; c++) {
+            assertEquals(reference.getCHRLength(c), copy.getCHRLength(c));
+            assertEquals(reference.noOcc(c), copy.noOcc(c));
+        }
+
+        genomes.removeCopyOfReferenceGenome(param);
+        assertEquals(2, genomes.size());
+        assertEquals(2, param.getNrOfGenomes());
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.unijena.bioinf.gecko3.algo;
+
+import de.unijena.bioinf.gecko3.testUtils.PerformanceTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Random;
+
+/**
+ * Measures the update of the delta locations for a character that occurs very often, like a transposase.
+ * The occurrences of the character are found by binary search, so the time per delta location
+ * should not grow linearly with the number of occurrences.
+ */
+@Category(PerformanceTest.class)
+public class HighMultiplicityBenchmarkTest {
+    private static final int LENGTH = 60000;
+    private static final int ROUNDS = 20;
+
+    private static ListOfDeltaLocations deltaLocations(Random random, int count) {
+        ListOfDeltaLocations list = new ListOfDeltaLocations();
+        for (int i=0; i<count; i++) {
+            int l = 1 + random.nextInt(LENGTH - 10);
+            list.insertDeltaLocation(new DeltaLocation(0, 0, l, l + random.nextInt(10), 0, 0, 0, 3, DeltaLocation.MIN_HIT_COUNT, true));
+        }
+        return list;
+    }
+
+    @Test
+    public void highMultiplicityFamily() {
+        Random random = new Random(1);
+        GenomeList genomes = new GenomeList(ListOfDeltaLocationsTest.highMultiplicityGenome(random, LENGTH, 1), 51);
+        genomes.initializeForCalculation();
+        System.out.println(String.format("Character 1 occurs %d times", genomes.get(0).get(0).getPOSLength(1)));
+
+        long removeTime = 0;
+        int dLocs = 0;
+        for (int round=0; round<ROUNDS; round++) {
+            ListOfDeltaLocations list = deltaLocations(random, 2000);
+            dLocs += list.size();
+            long start = System.nanoTime();
+            list.removeNonInheritableElements(genomes, 1, 3);
+            removeTime += System.nanoTime() - start;
+        }
+        System.out.println(String.format("removeNonInheritableElements: %d ns per delta location", removeTime / dLocs));
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.unijena.bioinf.gecko3.algo;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests that the array based list keeps the order and the duplicate handling of a sorted set of delta locations.
+ */
+public class ListOfDeltaLocationsTest {
+    private static final Comparator<DeltaLocation> ORDER = new Comparator<DeltaLocation>() {
+        @Override
+        public int compare(DeltaLocation o1, DeltaLocation o2) {
+            if (o1.getChrNr() != o2.getChrNr())
+                return Integer.compare(o1.getChrNr(), o2.getChrNr());
+            if (o1.getL() != o2.getL())
+                return Integer.compare(o1.getL(), o2.getL());
+            return Integer.compare(o1.getR(), o2.getR());
+        }
+    };
+
+    private static DeltaLocation randomDeltaLocation(Random random) {
+        int l = 1 + random.nextInt(20);
+        return new DeltaLocation(0, random.nextInt(3), l, l + random.nextInt(5), random.nextInt(4), 0, 0, 3, random.nextInt(1000), true);
+    }
+
+    private static void assertSameDeltaLocations(Collection<DeltaLocation> expected, ListOfDeltaLocations actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<DeltaLocation> it = actual.iterator();
+        for (DeltaLocation dLoc : expected) {
+            DeltaLocation other = it.next();
+            assertEquals(dLoc, other);
+            assertEquals(dLoc.getGenomeNr(), other.getGenomeNr());
+        }
+    }
+
+    @Test
+    public void testInsertAndMerge() {
+        Random random = new Random(3);
+        ListOfDeltaLocations list = new ListOfDeltaLocations();
+        TreeSet<DeltaLocation> expected = new TreeSet<>(ORDER);
+        for (int round=0; round<500; round++) {
+            ListOfDeltaLocations newList = new ListOfDeltaLocations();
+            TreeSet<DeltaLocation> expectedNew = new TreeSet<>(ORDER);
+            int count = random.nextInt(8);
+            for (int i=0; i<count; i++) {
+                DeltaLocation dLoc = randomDeltaLocation(random);
+                newList.insertDeltaLocation(dLoc);
+                expectedNew.add(dLoc);
+            }
+            assertSameDeltaLocations(expectedNew, newList);
+
+            // new delta locations replace old ones with the same interval
+            expectedNew.addAll(expected);
+            expected = expectedNew;
+            list.mergeLists(newList);
+            assertSameDeltaLocations(expected, list);
+            assertEquals(0, newList.size());
+
+            if (random.nextInt(10) == 0) {
+                list.emptyList();
+                expected.clear();
+            }
+        }
+    }
+
+    /**
+     * Genomes with the character 1 occurring very often, as for transposases.
+     */
+    static int[][][] highMultiplicityGenome(Random random, int length, int nrOfChromosomes) {
+        int[][][] genomes = new int[1][nrOfChromosomes][];
+        for (int j=0; j<nrOfChromosomes; j++) {
+            int[] chr = new int[length + 2];
+            for (int i=1; i<=length; i++)
+                chr[i] = (random.nextInt(3) == 0) ? 1 : 2 + random.nextInt(50);
+            genomes[0][j] = chr;
+        }
+        return genomes;
+    }
+
+    @Test
+    public void testRemoveNonInheritableElements() {
+        Random random = new Random(9);
+        int delta = 2;
+        GenomeList genomes = new GenomeList(highMultiplicityGenome(random, 300, 3), 51);
+        genomes.initializeForCalculation();
+
+        for (int c : new int[]{1, 2, 30}) {
+            ListOfDeltaLocations list = new ListOfDeltaLocations();
+            for (int i=0; i<400; i++) {
+                int l = 1 + random.nextInt(290);
+                list.insertDeltaLocation(new DeltaLocation(0, random.nextInt(3), l, l + random.nextInt(8), random.nextInt(delta + 1), 0, 0, 3, 0, true));
+            }
+            List<DeltaLocation> expected = new ArrayList<>();
+            for (DeltaLocation dLoc : list) {
+                Chromosome chr = genomes.get(0).get(dLoc.getChrNr());
+                boolean contained = false;
+                for (int pos=dLoc.getL(); pos<=dLoc.getR(); pos++)
+                    contained |= chr.getGene(pos) == c;
+                if (contained)
+                    expected.add(new DeltaLocation(0, dLoc.getChrNr(), dLoc.getL(), dLoc.getR(), dLoc.getDistance() - 1, 0, 0, 3, dLoc.getHitCount() + 1, true));
+                else if (dLoc.getDistance() + 1 <= delta && chr.getGene(dLoc.getL() - 1) != c && chr.getGene(dLoc.getR() + 1) != c)
+                    expected.add(new DeltaLocation(0, dLoc.getChrNr(), dLoc.getL(), dLoc.getR(), dLoc.getDistance() + 1, 0, 0, 3, dLoc.getHitCount(), true));
+            }
+
+            list.removeNonInheritableElements(genomes, c, delta);
+            assertEquals(expected.size(), list.size());
+            Iterator<DeltaLocation> it = list.iterator();
+            for (DeltaLocation dLoc : expected) {
+                DeltaLocation other = it.next();
+                assertEquals(dLoc, other);
+                assertEquals(dLoc.getDistance(), other.getDistance());
+                assertEquals(dLoc.getHitCount(), other.getHitCount());
+            }
+        }
+    }
+
+    @Test
+    public void testValid_dLocContainsCharacter() {
+        Random random = new Random(10);
+        GenomeList genomes = new GenomeList(highMultiplicityGenome(random, 200, 2), 51);
+        genomes.initializeForCalculation();
+
+        for (int round=0; round<200; round++) {
+            ListOfDeltaLocations list = new ListOfDeltaLocations();
+            boolean expected = false;
+            int c = 2 + random.nextInt(50);
+            for (int i=0; i<3; i++) {
+                int l = 1 + random.nextInt(195);
+                DeltaLocation dLoc = new DeltaLocation(0, random.nextInt(2), l, l + random.nextInt(5), 0, 0, 0, 3, DeltaLocation.MIN_HIT_COUNT, true);
+                list.insertDeltaLocation(dLoc);
+                Chromosome chr = genomes.get(0).get(dLoc.getChrNr());
+                for (int pos=dLoc.getL(); pos<=dLoc.getR(); pos++)
+                    expected |= chr.getGene(pos) == c;
+            }
+            assertEquals(expected, list.valid_dLocContainsCharacter(c, genomes));
+        }
+        assertFalse(new ListOfDeltaLocations().valid_dLocContainsCharacter(1, genomes));
+    }
+
+    @Test
+    public void testGetOptimalCopy() {
+        Random random = new Random(12);
+        for (int round=0; round<300; round++) {
+            ListOfDeltaLocations list = new ListOfDeltaLocations();
+            int count = random.nextInt(60);
+            for (int i=0; i<count; i++) {
+                int l = 1 + random.nextInt(30);
+                list.insertDeltaLocation(new DeltaLocation(0, random.nextInt(2), l, l + random.nextInt(8), random.nextInt(4), 0, 0, 3,
+                        random.nextInt(4), random.nextInt(5) != 0));
+            }
+            List<DeltaLocation> all = new ArrayList<>();
+            for (DeltaLocation dLoc : list)
+                all.add(dLoc);
+
+            List<DeltaLocation> expected = new ArrayList<>();
+            for (DeltaLocation dLoc : all) {
+                if (!dLoc.isValid())
+                    continue;
+                boolean dominated = false;
+                for (DeltaLocation other : all)
+                    if (other != dLoc && other.isValid() && other.getChrNr() == dLoc.getChrNr() && other.getL() <= dLoc.getL()
+                            && other.getR() >= dLoc.getR() && other.getDistance() <= dLoc.getDistance())
+                        dominated = true;
+                if (!dominated)
+                    expected.add(dLoc);
+            }
+            assertSameDeltaLocations(expected, list.getOptimalCopy());
+        }
+    }
+}
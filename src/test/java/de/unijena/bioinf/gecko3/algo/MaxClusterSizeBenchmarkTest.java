@@ -0,0 +1,67 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.unijena.bioinf.gecko3.algo;
+
+import de.unijena.bioinf.gecko3.datastructures.Parameter;
+import de.unijena.bioinf.gecko3.testUtils.SlowTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the running time of the search with and without a maximum cluster size, for near identical genomes.
+ * On such genomes almost every pattern can be extended up to the end of the reference chromosome,
+ * so the unbounded search is quadratic in the chromosome length, and the statistics of the large clusters
+ * dominate the running time.
+ */
+@Category(SlowTest.class)
+public class MaxClusterSizeBenchmarkTest {
+    private static final int MAX_CLUSTER_SIZE = 20;
+
+    private static long runningTime(int[][][] genomes, Parameter p, List<ReferenceCluster> result) {
+        long start = System.nanoTime();
+        result.addAll(ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null));
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    @Test
+    public void boundedAgainstUnbounded() {
+        int[][][] genomes = ReferenceClusterTest.nearIdenticalGenomes(new Random(3), 6, 400, 8);
+        Parameter p = new Parameter(2, 3, 6, Parameter.OperationMode.reference, Parameter.ReferenceType.allAgainstAll, false, false);
+        p.setAlphabetSize(400);
+
+        List<ReferenceCluster> unboundedRes = new ArrayList<>();
+        long unbounded = runningTime(genomes, p, unboundedRes);
+        p.setMaxClusterSize(MAX_CLUSTER_SIZE);
+        List<ReferenceCluster> boundedRes = new ArrayList<>();
+        long bounded = runningTime(genomes, p, boundedRes);
+
+        System.out.println(String.format("Unbounded: %d ms, %d clusters. Maximum cluster size %d: %d ms, %d clusters",
+                unbounded, unboundedRes.size(), MAX_CLUSTER_SIZE, bounded, boundedRes.size()));
+        for (ReferenceCluster cluster : boundedRes)
+            assertTrue(cluster.getSize() <= MAX_CLUSTER_SIZE);
+    }
+}
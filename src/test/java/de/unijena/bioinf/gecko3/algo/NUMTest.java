@@ -23,6 +23,7 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
 
@@ -42,8 +43,52 @@ public class NUMTest {
         genes.add(1);
         Chromosome chr = new Chromosome(genes, 0);
 
-        chr.initializeForCalculation(3, 2);
+        chr.initializeForCalculation(3);
 
         assertEquals(3, chr.getNUM(1, 5));
     }
+
+    @Test
+    public void testAdditionalNUM() {
+        Random random = new Random(11);
+        int[] genes = new int[200];
+        for (int i=0; i<genes.length; i++)
+            genes[i] = (random.nextInt(10) == 0) ? -1 - random.nextInt(3) : 1 + random.nextInt(15);
+        Chromosome chr = new Chromosome(genes, 0, true);
+        chr.initializeForCalculation(15);
+
+        for (int l=1; l<=genes.length; l++) {
+            int num = 0;
+            int r = l - 1;
+            while (r < genes.length) {
+                int newR = Math.min(genes.length, r + 1 + random.nextInt(4));
+                num += chr.getAdditionalNUM(l, r + 1, newR);
+                r = newR;
+                assertEquals(chr.getNUM(l, r), num);
+            }
+        }
+    }
+
+    @Test
+    public void testSetHash() {
+        Random random = new Random(17);
+        int[] genes = new int[60];
+        for (int i=0; i<genes.length; i++)
+            genes[i] = (random.nextInt(15) == 0) ? -1 : 1 + random.nextInt(6);
+        Chromosome chr = new Chromosome(genes, 0, true);
+        chr.initializeForCalculation(6);
+
+        for (int l1=1; l1<=genes.length; l1++) {
+            for (int r1=l1; r1<=genes.length; r1++) {
+                long hash1 = chr.getAdditionalSetHash(l1, l1, r1);
+                for (int l2=l1; l2<=r1; l2++) {
+                    long hash2 = 0L;
+                    for (int r2=l2; r2<=r1; r2++) {
+                        hash2 += chr.getAdditionalSetHash(l2, r2, r2);
+                        assertEquals(chr.intervalContentIdentical(l1, r1, l2, r2), hash1 == hash2);
+                    }
+                }
+            }
+        }
+    }
 }
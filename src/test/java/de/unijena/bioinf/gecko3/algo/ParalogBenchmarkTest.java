@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.unijena.bioinf.gecko3.algo;
+
+import de.unijena.bioinf.gecko3.datastructures.Parameter;
+import de.unijena.bioinf.gecko3.testUtils.PerformanceTest;
+import de.unijena.bioinf.gecko3.testUtils.SlowTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Measures the dominance checks of delta locations for genomes with many paralog copies of a gene cluster,
+ * where the lists of delta locations of each genome get long.
+ */
+@Category(PerformanceTest.class)
+public class ParalogBenchmarkTest {
+    private static final int COPIES = 400;
+
+    /**
+     * Genomes of one chromosome, containing COPIES copies of the block 1-5 with random gene order,
+     * separated by random genes.
+     */
+    private static int[][][] paralogGenomes(Random random, int nrOfGenomes) {
+        int[][][] genomes = new int[nrOfGenomes][1][];
+        for (int k=0; k<nrOfGenomes; k++) {
+            List<Integer> genes = new ArrayList<>();
+            for (int copy=0; copy<COPIES; copy++) {
+                List<Integer> block = new ArrayList<>();
+                for (int c=1; c<=5; c++)
+                    block.add(c);
+                Collections.shuffle(block, random);
+                genes.addAll(block);
+                for (int i=0; i<3; i++)
+                    genes.add(6 + random.nextInt(300));
+            }
+            int[] chr = new int[genes.size() + 2];
+            for (int i=0; i<genes.size(); i++)
+                chr[i+1] = genes.get(i);
+            genomes[k][0] = chr;
+        }
+        return genomes;
+    }
+
+    @Test
+    @Category(SlowTest.class)
+    public void paralogSearch() {
+        int[][][] genomes = paralogGenomes(new Random(4), 4);
+        Parameter p = new Parameter(1, 4, 0, Parameter.OperationMode.reference, Parameter.ReferenceType.genome, false, true);
+        p.setAlphabetSize(305);
+
+        long start = System.nanoTime();
+        List<ReferenceCluster> res = ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null);
+        long time = (System.nanoTime() - start) / 1000000;
+        System.out.println(String.format("Search with %d paralog copies: %d ms, %d clusters", COPIES, time, res.size()));
+        assertFalse(res.isEmpty());
+    }
+
+    @Test
+    public void areAll_dLocsNested() {
+        Random random = new Random(8);
+        List<DeltaLocation> second = new ArrayList<>();
+        for (int i=0; i<5000; i++) {
+            int l = 1 + 10 * i;
+            second.add(new DeltaLocation(0, 0, l, l + 5 + random.nextInt(4), random.nextInt(3), 0, 0, 5, 2, true));
+        }
+        List<DeltaLocation> first = new ArrayList<>();
+        for (DeltaLocation dLoc : second)
+            first.add(new DeltaLocation(0, 0, dLoc.getL() + 1, dLoc.getR(), dLoc.getDistance() + 1, 0, 0, 4, 2, true));
+
+        long start = System.nanoTime();
+        boolean scanned = ReferenceCluster.areAll_dLocsNested(first, second);
+        long scanTime = (System.nanoTime() - start) / 1000;
+        start = System.nanoTime();
+        boolean swept = ReferenceCluster.areAll_dLocsNested(ReferenceCluster.sortByPosition(first), ReferenceCluster.sortByPosition(second));
+        long sweepTime = (System.nanoTime() - start) / 1000;
+        System.out.println(String.format("areAll_dLocsNested for %d delta locations: pairwise %d us, sweep %d us", first.size(), scanTime, sweepTime));
+        assertEquals(scanned, swept);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.unijena.bioinf.gecko3.algo;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the position index of chromosomes and the chromosome index of genomes.
+ */
+public class PositionIndexTest {
+
+    @Test
+    public void testPositionIndex() {
+        Random random = new Random(3);
+        int alphabetSize = 40;
+        List<Chromosome> chromosomes = new ArrayList<>();
+        for (int j=0; j<4; j++) {
+            int[] genes = new int[j * 25];
+            for (int i=0; i<genes.length; i++)
+                genes[i] = (random.nextInt(10) == 0) ? -1 - random.nextInt(3) : 1 + random.nextInt(alphabetSize);
+            chromosomes.add(new Chromosome(genes, j, true));
+        }
+        Genome genome = new Genome(0, chromosomes);
+        genome.initializeForCalculation(alphabetSize, IntStorageFactory.HEAP);
+
+        for (int c=-3; c<=alphabetSize; c++) {
+            List<Integer> expectedChromosomes = new ArrayList<>();
+            for (int j=0; j<genome.getNumberOfChromosomes(); j++) {
+                Chromosome chr = genome.get(j);
+                List<Integer> expectedPositions = new ArrayList<>();
+                for (int i=1; i<=chr.getEffectiveGeneNumber(); i++)
+                    if (c >= 0 && chr.getGene(i) == c)
+                        expectedPositions.add(i);
+                if (!expectedPositions.isEmpty())
+                    expectedChromosomes.add(j);
+
+                List<Integer> positions = new ArrayList<>();
+                for (int p=chr.getPOSOffset(c); p<chr.getPOSOffset(c)+chr.getPOSLength(c); p++)
+                    positions.add(chr.getPosition(p));
+                assertEquals(expectedPositions, positions);
+            }
+
+            List<Integer> indexedChromosomes = new ArrayList<>();
+            for (int o=genome.getCHROffset(c); o<genome.getCHROffset(c)+genome.getCHRLength(c); o++)
+                indexedChromosomes.add(genome.getCHR(o));
+            assertEquals(expectedChromosomes, indexedChromosomes);
+            if (c >= 0)
+                assertEquals(expectedChromosomes.isEmpty() ? 1 : 0, genome.noOcc(c));
+        }
+    }
+
+    @Test
+    public void testLowerBound() {
+        Random random = new Random(5);
+        int[] genes = new int[300];
+        for (int i=0; i<genes.length; i++)
+            genes[i] = 1 + random.nextInt(4);
+        Chromosome chr = new Chromosome(genes, 0, true);
+        chr.initializeForCalculation(4);
+
+        for (int c=1; c<=4; c++) {
+            int from = chr.getPOSOffset(c);
+            int to = from + chr.getPOSLength(c);
+            for (int position=0; position<=genes.length+1; position++) {
+                int expected = from;
+                while (expected < to && chr.getPosition(expected) < position)
+                    expected++;
+                assertEquals(expected, chr.getPOSLowerBound(from, to, position));
+                assertEquals(to, chr.getPOSLowerBound(to, to, position));
+            }
+        }
+    }
+}
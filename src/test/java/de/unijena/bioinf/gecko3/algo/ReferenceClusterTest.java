@@ -19,11 +19,16 @@
 
 package de.unijena.bioinf.gecko3.algo;
 
+import de.unijena.bioinf.gecko3.GeckoInstance;
+import de.unijena.bioinf.gecko3.datastructures.DataSet;
+import de.unijena.bioinf.gecko3.datastructures.GeneCluster;
 import de.unijena.bioinf.gecko3.datastructures.Parameter;
+import de.unijena.bioinf.gecko3.io.CogFileReader;
 import de.unijena.bioinf.gecko3.testUtils.*;
 import de.unijena.bioinf.gecko3.algo.GeneClusterTestUtils.PValueComparison;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.text.ParseException;
@@ -32,6 +37,7 @@ import java.util.zip.DataFormatException;
 
 import static de.unijena.bioinf.gecko3.algo.GeneClusterTestUtils.automaticGeneClusterTestFromFile;
 import static de.unijena.bioinf.gecko3.algo.GeneClusterTestUtils.compareReferenceClusters;
+import static org.junit.Assert.*;
 
 /**
  * The class tests the computeClusters algorithm from the Gecko3 program
@@ -1000,6 +1006,21 @@ public class ReferenceClusterTest
         automaticGeneClusterTestFromFile(settings);
     }
 
+    /**
+     * The hits in the reference genome that overlap the reference occurrence are not stored, so the statistics of
+     * clusters searched in the reference genome can not be recomputed and have to be refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void recomputeStatisticsRefInRefMemoryReduction() throws IOException, ParseException {
+        CogFileReader reader = new CogFileReader(new File(GeneClusterTestUtils.class.getResource("/memoryReductionData.cog").getFile()));
+        DataSet data = reader.readData();
+        Parameter p = new Parameter(2, 4, 2, Parameter.OperationMode.reference, Parameter.ReferenceType.allAgainstAll, true, false);
+
+        List<GeneCluster> clusters = GeckoInstance.computeClustersJava(data, p, null, true, null);
+        assertFalse(clusters.isEmpty());
+        ReferenceClusterAlgorithm.recomputeStatistics(data, clusters, p, true, null, null);
+    }
+
 	@Test
 	public void fiveProteobacterReferenceClusterTest() throws URISyntaxException, IOException, DataFormatException, ParseException {
         ReferenceClusterTestSettings settings = ReferenceClusterTestSettings.fiveProteobacterD3S6Q4();
@@ -1090,5 +1111,260 @@ public class ReferenceClusterTest
 
         GeneClusterTestUtils.performTest(p, genomes, genomeGroups, referenceClusterValues);
 	}
-}
 
+    /**
+     * Enough genomes to search the delta locations of each pattern extension in parallel.
+     */
+    @Test
+    public void testManyGenomesParallelTargetGenomes() {
+        int[][][] genomes = randomGenomesWithCluster(new Random(13), ReferenceClusterAlgorithm.MIN_GENOMES_FOR_PARALLEL_SEARCH + 6);
+
+        Parameter p = new Parameter(1, 4, 0, Parameter.OperationMode.reference, Parameter.ReferenceType.genome);
+        List<ReferenceCluster> javaRes = ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null);
+        p.setNrOfThreads(4);
+        p.setParallelMode(Parameter.ParallelMode.targetGenomes);
+        List<ReferenceCluster> parallelRes = ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null);
+
+        assertFalse(javaRes.isEmpty());
+        compareReferenceClusters(javaRes, parallelRes, PValueComparison.COMPARE_ALL);
+    }
+
+    /**
+     * Storing the working arrays in direct buffers or a mapped scratch file has to give the same results.
+     */
+    @Test
+    public void testStorageModes() {
+        int[][][] genomes = randomGenomesWithCluster(new Random(17), 8);
+
+        Parameter p = new Parameter(1, 4, 6, Parameter.OperationMode.reference, Parameter.ReferenceType.allAgainstAll, true, false);
+        List<ReferenceCluster> heapRes = ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null);
+        assertFalse(heapRes.isEmpty());
+
+        for (Parameter.StorageMode mode : new Parameter.StorageMode[]{Parameter.StorageMode.direct, Parameter.StorageMode.mapped}) {
+            p.setStorageMode(mode);
+            p.setNrOfThreads(1);
+            compareReferenceClusters(heapRes, ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null), PValueComparison.COMPARE_ALL);
+            p.setNrOfThreads(4);
+            p.setParallelMode(Parameter.ParallelMode.leftBorders);
+            compareReferenceClusters(heapRes, ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null), PValueComparison.COMPARE_ALL);
+            p.setParallelMode(Parameter.ParallelMode.referenceGenomes);
+        }
+    }
+
+    /**
+     * A buffer can not hold more than 2 GB, larger storages have to be refused before allocating.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testStorageModeSizeLimit() {
+        new IntStorageFactory(Parameter.StorageMode.direct, null).allocate(IntStorageFactory.MAX_BUFFER_SIZE + 1, 0);
+    }
+
+    /**
+     * Inserting into the index has to give the same clusters in the same order as comparing each new cluster
+     * with all found clusters. The clusters of several searches with different delta are nested in each other.
+     */
+    @Test
+    public void testReferenceClusterIndex() {
+        int[][][] genomes = randomGenomesWithCluster(new Random(23), 6);
+        List<ReferenceCluster> clusters = new ArrayList<>();
+        for (int delta=0; delta<=3; delta++) {
+            Parameter p = new Parameter(delta, 2, 2, Parameter.OperationMode.reference, Parameter.ReferenceType.allAgainstAll, false, true);
+            clusters.addAll(ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null));
+        }
+        Collections.shuffle(clusters, new Random(5));
+
+        ReferenceClusterIndex indexed = new ReferenceClusterIndex(true);
+        ReferenceClusterIndex linear = new ReferenceClusterIndex(false);
+        for (ReferenceCluster cluster : clusters)
+            assertEquals(linear.insert(cluster), indexed.insert(cluster));
+
+        List<ReferenceCluster> expected = linear.toList();
+        List<ReferenceCluster> actual = indexed.toList();
+        assertTrue(expected.size() < clusters.size());
+        assertEquals(expected.size(), actual.size());
+        for (int i=0; i<expected.size(); i++)
+            assertSame(expected.get(i), actual.get(i));
+    }
+
+    /**
+     * Counting the missing characters per chromosome must not change the results. The genomes are split into
+     * several chromosomes, so the bound is tighter than counting the characters missing in the whole genome.
+     */
+    @Test
+    public void testCoveragePruning() {
+        Random random = new Random(29);
+        int[][][] genomes = randomGenomesWithCluster(random, 8);
+        for (int k=0; k<genomes.length; k++) {
+            int[] genes = genomes[k][0];
+            int split = 1 + random.nextInt(genes.length - 2);
+            genomes[k] = new int[][]{Arrays.copyOfRange(genes, 0, split + 1), Arrays.copyOfRange(genes, split, genes.length)};
+            genomes[k][0][split] = 0;
+            genomes[k][1][0] = 0;
+        }
+
+        for (int q : new int[]{0, 6}) {
+            Parameter p = new Parameter(2, 3, q, Parameter.OperationMode.reference, Parameter.ReferenceType.allAgainstAll, false, false);
+            List<ReferenceCluster> prunedRes = ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null);
+            p.setCoveragePruning(false);
+            List<ReferenceCluster> unprunedRes = ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null);
+            assertFalse(unprunedRes.isEmpty());
+            compareReferenceClusters(unprunedRes, prunedRes, PValueComparison.COMPARE_ALL);
+        }
+    }
+
+    /**
+     * Closely related strains, where most left borders occur identically in a genome with a smaller number.
+     */
+    @Test
+    public void testLeftBorderSkipping() {
+        Random random = new Random(31);
+        int[][][] genomes = nearIdenticalGenomes(random, 6, 120, 3);
+        for (int q : new int[]{0, 3}) {
+            Parameter p = new Parameter(1, 3, q, Parameter.OperationMode.reference, Parameter.ReferenceType.allAgainstAll, false, false);
+            p.setAlphabetSize(120);
+            List<ReferenceCluster> skippingRes = ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null);
+            p.setLeftBorderSkipping(false);
+            List<ReferenceCluster> res = ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null);
+            assertFalse(res.isEmpty());
+            compareReferenceClusters(res, skippingRes, PValueComparison.COMPARE_ALL);
+        }
+    }
+
+    @Test
+    public void testAreAll_dLocsNested() {
+        Random random = new Random(21);
+        for (int round=0; round<2000; round++) {
+            List<DeltaLocation> first = new ArrayList<>();
+            List<DeltaLocation> second = new ArrayList<>();
+            for (List<DeltaLocation> list : Arrays.asList(first, second)) {
+                int count = random.nextInt(round % 2 == 0 ? 4 : 40);
+                for (int i=0; i<count; i++) {
+                    int l = 1 + random.nextInt(40);
+                    list.add(new DeltaLocation(0, random.nextInt(3), l, l + random.nextInt(10), random.nextInt(4), 0, 0, 3, 2, true));
+                }
+            }
+            // mostly nested lists
+            if (random.nextBoolean())
+                for (DeltaLocation dLoc : second)
+                    if (random.nextInt(4) != 0)
+                        first.add(new DeltaLocation(0, dLoc.getChrNr(), dLoc.getL() + random.nextInt(2), dLoc.getR(), dLoc.getDistance() + random.nextInt(2), 0, 0, 3, 2, true));
+            Collections.shuffle(first, random);
+            Collections.shuffle(second, random);
+
+            assertEquals(ReferenceCluster.areAll_dLocsNested(first, second),
+                    ReferenceCluster.areAll_dLocsNested(ReferenceCluster.sortByPosition(first), ReferenceCluster.sortByPosition(second)));
+        }
+    }
+
+    /**
+     * Bounding the cluster size drops the larger clusters, all smaller clusters of the unbounded run are still found.
+     */
+    @Test
+    public void testMaxClusterSize() {
+        Random random = new Random(13);
+        int[][][] genomes = nearIdenticalGenomes(random, 5, 80, 4);
+        int maxClusterSize = 6;
+
+        Parameter p = new Parameter(2, 3, 4, Parameter.OperationMode.reference, Parameter.ReferenceType.allAgainstAll, false, false);
+        p.setAlphabetSize(80);
+        List<ReferenceCluster> unboundedRes = ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null);
+        p.setMaxClusterSize(maxClusterSize);
+        List<ReferenceCluster> boundedRes = ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null);
+
+        Set<String> bounded = new HashSet<>();
+        for (ReferenceCluster cluster : boundedRes) {
+            assertTrue(cluster.getSize() <= maxClusterSize);
+            bounded.add(clusterKey(cluster));
+        }
+        int smallClusters = 0;
+        boolean largeClusterFound = false;
+        for (ReferenceCluster cluster : unboundedRes) {
+            if (cluster.getSize() > maxClusterSize) {
+                largeClusterFound = true;
+            } else {
+                smallClusters++;
+                assertTrue(bounded.contains(clusterKey(cluster)));
+            }
+        }
+        assertTrue(largeClusterFound);
+        // small clusters that were nested in a dropped larger cluster are reported additionally
+        assertTrue(boundedRes.size() >= smallClusters);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeMaxClusterSize() {
+        Parameter p = new Parameter(2, 3, 4, Parameter.OperationMode.reference, Parameter.ReferenceType.allAgainstAll, false, false);
+        p.setMaxClusterSize(-1);
+    }
+
+    @Test
+    public void testParallelStatistics() {
+        Random random = new Random(17);
+        int[][][] genomes = nearIdenticalGenomes(random, 4, 120, 10);
+
+        Parameter p = new Parameter(2, 3, 4, Parameter.OperationMode.reference, Parameter.ReferenceType.allAgainstAll, false, false);
+        p.setAlphabetSize(120);
+        List<ReferenceCluster> sequentialRes = ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null);
+        p.setNrOfThreads(4);
+        List<ReferenceCluster> parallelRes = ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null);
+
+        // more clusters than one task handles, so each genome is split into several tasks
+        assertTrue(sequentialRes.size() > 2 * 64);
+        assertEquals(sequentialRes.size(), parallelRes.size());
+        for (int i=0; i<sequentialRes.size(); i++) {
+            ReferenceCluster expected = sequentialRes.get(i);
+            ReferenceCluster actual = parallelRes.get(i);
+            assertEquals(clusterKey(expected), clusterKey(actual));
+            assertEquals(expected.getBestCombined_pValue(), actual.getBestCombined_pValue());
+            assertEquals(expected.getBestCombined_pValueCorrected(), actual.getBestCombined_pValueCorrected());
+            for (int k=0; k<genomes.length; k++) {
+                List<DeltaLocation> expectedDLocs = expected.getDeltaLocations(k);
+                List<DeltaLocation> actualDLocs = actual.getDeltaLocations(k);
+                assertEquals(expectedDLocs.size(), actualDLocs.size());
+                for (int j=0; j<expectedDLocs.size(); j++)
+                    assertEquals(Double.doubleToLongBits(expectedDLocs.get(j).getpValue()), Double.doubleToLongBits(actualDLocs.get(j).getpValue()));
+            }
+        }
+    }
+
+    private static String clusterKey(ReferenceCluster cluster) {
+        return String.format("%d %d %d %d %s", cluster.getGenomeNr(), cluster.getChrNr(), cluster.getLeftBorder(), cluster.getRightBorder(), cluster.getGeneContent());
+    }
+
+    /**
+     * Random genomes of one chromosome, each a copy of the same random chromosome with a few point mutations.
+     * The genes are between 1 and length, not all of them occur.
+     */
+    static int[][][] nearIdenticalGenomes(Random random, int nrOfGenomes, int length, int mutations) {
+        int[] base = new int[length + 2];
+        for (int i=1; i<base.length-1; i++)
+            base[i] = 1 + random.nextInt(length);
+        int[][][] genomes = new int[nrOfGenomes][1][];
+        for (int k=0; k<nrOfGenomes; k++) {
+            int[] chr = base.clone();
+            for (int m=0; m<mutations; m++)
+                chr[1 + random.nextInt(length)] = 1 + random.nextInt(length);
+            genomes[k][0] = chr;
+        }
+        return genomes;
+    }
+
+    /**
+     * Random genomes of one chromosome, each containing the cluster 31-35 with random gene order.
+     */
+    private static int[][][] randomGenomesWithCluster(Random random, int nrOfGenomes) {
+        int[][][] genomes = new int[nrOfGenomes][1][];
+        for (int k=0; k<nrOfGenomes; k++) {
+            int[] chr = new int[60 + 2];
+            for (int i=1; i<chr.length-1; i++)
+                chr[i] = 1 + random.nextInt(30);
+            int start = 1 + random.nextInt(50);
+            List<Integer> cluster = new ArrayList<>(Arrays.asList(31, 32, 33, 34, 35));
+            Collections.shuffle(cluster, random);
+            for (int i=0; i<cluster.size(); i++)
+                chr[start + i] = cluster.get(i);
+            genomes[k][0] = chr;
+        }
+        return genomes;
+    }
+}
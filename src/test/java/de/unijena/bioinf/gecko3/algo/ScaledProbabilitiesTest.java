@@ -0,0 +1,150 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.unijena.bioinf.gecko3.algo;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the arithmetic of probabilities below the double range and the combination of p-values with quorum.
+ */
+public class ScaledProbabilitiesTest {
+    private static final MathContext PRECISION = new MathContext(40);
+
+    private static void assertRelativeEquals(BigDecimal expected, BigDecimal actual, double tolerance) {
+        if (expected.signum() == 0) {
+            assertEquals(0, actual.signum());
+            return;
+        }
+        BigDecimal error = expected.subtract(actual).abs().divide(expected, PRECISION);
+        assertTrue("expected:<" + expected + "> but was:<" + actual + ">", error.doubleValue() <= tolerance);
+    }
+
+    /**
+     * The probability that at least q of the p-values occur, computed exactly in BigDecimal.
+     */
+    private static BigDecimal combineExact(double[] pValue, int q) {
+        BigDecimal[] exactly = new BigDecimal[pValue.length + 1];
+        exactly[0] = BigDecimal.ONE;
+        for (int j=1; j<exactly.length; j++)
+            exactly[j] = BigDecimal.ZERO;
+        for (int i=0; i<pValue.length; i++) {
+            BigDecimal p = new BigDecimal(pValue[i]);
+            BigDecimal notP = BigDecimal.ONE.subtract(p);
+            for (int j=i+1; j>=1; j--)
+                exactly[j] = exactly[j].multiply(notP, PRECISION).add(exactly[j-1].multiply(p, PRECISION), PRECISION);
+            exactly[0] = exactly[0].multiply(notP, PRECISION);
+        }
+        BigDecimal sum = BigDecimal.ZERO;
+        for (int j=q; j<exactly.length; j++)
+            sum = sum.add(exactly[j], PRECISION);
+        return sum;
+    }
+
+    @Test
+    public void testProductBelowDoubleRange() {
+        ScaledProbabilities values = new ScaledProbabilities(1);
+        values.set(0, 1.0);
+        BigDecimal expected = BigDecimal.ONE;
+        for (int i=0; i<100; i++) {
+            values.multiply(0, 1e-50);
+            expected = expected.multiply(new BigDecimal(1e-50), PRECISION);
+        }
+        assertEquals(0.0, values.toDouble(0), 0.0);
+        assertRelativeEquals(expected, values.toBigDecimal(0), 1e-13);
+
+        values.multiply(0, Double.MIN_VALUE);
+        expected = expected.multiply(new BigDecimal(Double.MIN_VALUE), PRECISION);
+        assertRelativeEquals(expected, values.toBigDecimal(0), 1e-13);
+
+        values.multiply(0, 0.0);
+        assertEquals(BigDecimal.ZERO, values.toBigDecimal(0));
+    }
+
+    @Test
+    public void testAddAndCompare() {
+        ScaledProbabilities values = new ScaledProbabilities(3);
+        values.set(0, 0.75);
+        values.set(1, 0.5);
+        values.add(0, values, 1);
+        assertEquals(1.25, values.toDouble(0), 0.0);
+        assertEquals(new BigDecimal(1.25), values.toBigDecimal(0));
+
+        values.set(2, 1e-300);
+        values.multiply(2, 1e-300);
+        assertTrue(values.compare(2, values, 1) < 0);
+        assertTrue(values.compare(1, values, 2) > 0);
+        assertEquals(0, values.compare(2, values, 2));
+        values.clear(0, 3);
+        assertEquals(0, values.compare(0, values, 1));
+    }
+
+    @Test
+    public void testAddTrial() {
+        ScaledProbabilities distribution = new ScaledProbabilities(4);
+        distribution.set(0, 1.0);
+        distribution.addTrial(1, 0.5);
+        distribution.addTrial(2, 0.25);
+        distribution.addTrial(3, 0.0);
+        assertEquals(0.375, distribution.toDouble(0), 0.0);  // 0.5 * 0.75
+        assertEquals(0.5, distribution.toDouble(1), 0.0);    // 0.5 * 0.75 + 0.5 * 0.25
+        assertEquals(0.125, distribution.toDouble(2), 0.0);  // 0.5 * 0.25
+        assertEquals(0.0, distribution.toDouble(3), 0.0);
+    }
+
+    @Test
+    public void testCombineWithQuorum() {
+        Random random = new Random(11);
+        for (int round=0; round<200; round++) {
+            int nrOfGroups = 2 + random.nextInt(round < 150 ? 20 : 300);
+            double[] pValue = new double[nrOfGroups];
+            for (int k=0; k<nrOfGroups; k++)
+                pValue[k] = Math.pow(10, -30 * random.nextDouble());
+            int references = 1 + random.nextInt(Math.min(2, nrOfGroups - 1));
+            for (int k=0; k<references; k++)
+                pValue[k * (nrOfGroups - 1)] = 1.0;      // the reference occurrences, not only at the start
+            // at least one occurrence besides the references is always required
+            int q = references + 1 + random.nextInt(nrOfGroups - references);
+
+            ScaledProbabilities qArray = new ScaledProbabilities(nrOfGroups + 1);
+            ScaledProbabilities result = new ScaledProbabilities(1);
+            Statistics.combine_pValuesWithQuorum(pValue, q, nrOfGroups + 1, qArray, result, 0);
+            assertRelativeEquals(combineExact(pValue, q), result.toBigDecimal(0), 1e-9);
+        }
+    }
+
+    @Test
+    public void testCombineAllGenomes() {
+        double[] pValue = new double[500];
+        Arrays.fill(pValue, 1e-10);
+        pValue[0] = 1.0;
+        ScaledProbabilities result = new ScaledProbabilities(1);
+        Statistics.combine_pValuesWithQuorum(pValue, 500, 500, new ScaledProbabilities(501), result, 0);
+        assertRelativeEquals(new BigDecimal("1e-4990"), result.toBigDecimal(0), 1e-12);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2014 Sascha Winter, Tobias Mann, Hans-Martin Haase, Leon Kuchenbecker and Katharina Jahn
+ *
+ * This file is part of Gecko3.
+ *
+ * Gecko3 is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Gecko3 is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Gecko3.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.unijena.bioinf.gecko3.algo;
+
+import de.unijena.bioinf.gecko3.datastructures.Parameter;
+import de.unijena.bioinf.gecko3.testUtils.PerformanceTest;
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the memory allocated by the search for each left border, for a large alphabet.
+ * The scratch structures of the search are reused, so the allocation per left border must not depend on the alphabet size.
+ */
+@Category(PerformanceTest.class)
+public class SearchAllocationTest {
+    private static final int ALPHABET_SIZE = 50000;
+
+    @Test
+    public void allocationPerLeftBorder() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        Random random = new Random(5);
+        int[][][] genomes = new int[4][1][];
+        int leftBorders = 0;
+        for (int k=0; k<genomes.length; k++) {
+            int[] chr = new int[4000 + 2];
+            for (int i=1; i<chr.length-1; i++)
+                chr[i] = 1 + random.nextInt(300);
+            genomes[k][0] = chr;
+            leftBorders += chr.length - 2;
+        }
+        Parameter p = new Parameter(1, 5, 0, Parameter.OperationMode.reference, Parameter.ReferenceType.allAgainstAll, false, true);
+        p.setAlphabetSize(ALPHABET_SIZE);
+
+        // warm up
+        ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null);
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        ReferenceClusterAlgorithm.computeReferenceClusters(genomes, p, null);
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        long bytesPerLeftBorder = allocated / leftBorders;
+        System.out.println(String.format("Allocated %d bytes, %d bytes per left border", allocated, bytesPerLeftBorder));
+        assertTrue(bytesPerLeftBorder < ALPHABET_SIZE / 4);
+    }
+}